@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the throughput of all the streams it wraps, together, to a number of bytes per second. Allows a burst of one
+ * second worth of data after an idle period.
+ *
+ * @since 2023.1
+ */
+public class BandwidthLimiter {
+
+    protected static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    protected final long bytesPerSecond;
+
+    // Time at which the bytes already consumed are "paid"
+    protected long next = System.nanoTime();
+
+    public BandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Blocks until the bytes can be consumed
+     */
+    public void consume(int bytes) throws InterruptedIOException {
+        if (bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            next = Math.max(next, now - ONE_SECOND_NANOS);
+            next += bytes * ONE_SECOND_NANOS / bytesPerSecond;
+            waitNanos = next - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    consume(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                consume(n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                consume((int) Math.min(skipped, Integer.MAX_VALUE));
+                return skipped;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One file stored in a {@link HttpBlobCache}
+ *
+ * @since 2023.1
+ */
+public class CacheEntry {
+
+    protected final String key;
+
+    protected final File file;
+
+    // Where the file is, null if unknown
+    protected final CacheVolume volume;
+
+    protected final long length;
+
+    protected final long created;
+
+    protected volatile long lastAccess;
+
+    // Orders the entries for the LRU, finer than lastAccess
+    protected volatile long lastAccessNanos;
+
+    // Number of accesses, to find the hot files
+    protected final AtomicLong hits = new AtomicLong();
+
+    // Last time the remote server confirmed the file is up to date
+    protected volatile long validated;
+
+    protected volatile String etag;
+
+    protected volatile String lastModified;
+
+    protected volatile String url;
+
+    public CacheEntry(String key, File file) {
+        this(key, file, null);
+    }
+
+    public CacheEntry(String key, File file, CacheVolume volume) {
+        this.key = key;
+        this.file = file;
+        this.volume = volume;
+        length = file.length();
+        created = System.currentTimeMillis();
+        lastAccess = created;
+        lastAccessNanos = System.nanoTime();
+        validated = created;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public CacheVolume getVolume() {
+        return volume;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public long getValidated() {
+        return validated;
+    }
+
+    /**
+     * The ETag returned by the remote server, if any
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * The Last-Modified header returned by the remote server, if any
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * The URL the file was downloaded from, if known
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setValidators(String etag, String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Called when the remote server confirmed the file is up to date
+     */
+    public void validated() {
+        validated = System.currentTimeMillis();
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Carries the accesses of a previous entry of the same file (replaced, or cached before a restart)
+     */
+    public void addHits(long count) {
+        hits.addAndGet(count);
+    }
+
+    /*
+     * Lock free, called on each cache hit
+     */
+    protected void touch() {
+        lastAccess = System.currentTimeMillis();
+        lastAccessNanos = System.nanoTime();
+        hits.incrementAndGet();
+    }
+
+}
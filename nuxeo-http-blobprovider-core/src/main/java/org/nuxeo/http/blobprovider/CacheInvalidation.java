@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Files to remove from the cache because they changed on the origin, see
+ * {@link HttpBlobProvider#invalidate(CacheInvalidation)}
+ *
+ * @since 2023.1
+ */
+public class CacheInvalidation {
+
+    public enum Type {
+        DIGEST, URL, URL_PREFIX, ETAG
+    }
+
+    protected final Type type;
+
+    protected final String value;
+
+    public CacheInvalidation(Type type, String value) {
+        if (type == null || StringUtils.isEmpty(value)) {
+            throw new IllegalArgumentException("An invalidation needs a type and a value");
+        }
+        this.type = type;
+        this.value = type == Type.ETAG ? normalizeEtag(value) : value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * The same ETag, weak or strong, quoted or not, is the same version of the file
+     */
+    public static String normalizeEtag(String etag) {
+        String result = etag.trim();
+        if (result.startsWith("W/")) {
+            result = result.substring(2);
+        }
+        return StringUtils.removeEnd(StringUtils.removeStart(result, "\""), "\"");
+    }
+
+    /**
+     * @param entry an entry of the cache
+     * @return true if the entry must be removed
+     */
+    public boolean matches(CacheEntry entry) {
+        switch (type) {
+        case DIGEST:
+            return value.equals(HttpBlobCache.digestOf(entry.getKey()));
+        case URL:
+            return value.equals(entry.getUrl());
+        case URL_PREFIX:
+            return entry.getUrl() != null && entry.getUrl().startsWith(value);
+        case ETAG:
+            return entry.getEtag() != null && value.equals(normalizeEtag(entry.getEtag()));
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + value;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.pubsub.PubSubService;
+
+/**
+ * Sends the invalidations of a provider to the other nodes of the cluster, and applies theirs, with the Nuxeo pub/sub
+ * (in memory on a single node, Redis or the stream on a cluster).
+ * <p>
+ * One message per invalidation: <code>node TAB type TAB value</code>. The messages of this node are ignored, they are
+ * already applied.
+ *
+ * @since 2023.1
+ */
+public class CacheInvalidationBroker {
+
+    private static final Logger log = LogManager.getLogger(CacheInvalidationBroker.class);
+
+    public static final String TOPIC_PREFIX = "httpblobprovider-invalidation-";
+
+    protected final String topic;
+
+    // Not the cluster node id: unique even when several servers share it
+    protected final String nodeId = UUID.randomUUID().toString();
+
+    protected final Consumer<CacheInvalidation> handler;
+
+    // The same instance to register and unregister
+    protected final BiConsumer<String, byte[]> subscriber = this::onMessage;
+
+    protected PubSubService pubSub;
+
+    /**
+     * @param providerId the id of the provider, the same on all the nodes
+     * @param handler applies the invalidations received from the other nodes
+     */
+    public CacheInvalidationBroker(String providerId, Consumer<CacheInvalidation> handler) {
+        topic = TOPIC_PREFIX + providerId;
+        this.handler = handler;
+    }
+
+    /**
+     * @return false if the pub/sub service is not available, the invalidations are then local only
+     */
+    public boolean start() {
+        pubSub = Framework.getService(PubSubService.class);
+        if (pubSub == null) {
+            return false;
+        }
+        pubSub.registerSubscriber(topic, subscriber);
+        return true;
+    }
+
+    public void close() {
+        if (pubSub != null) {
+            pubSub.unregisterSubscriber(topic, subscriber);
+            pubSub = null;
+        }
+    }
+
+    public void publish(CacheInvalidation invalidation) {
+        PubSubService service = pubSub;
+        if (service != null) {
+            service.publish(topic, serialize(invalidation));
+        }
+    }
+
+    protected byte[] serialize(CacheInvalidation invalidation) {
+        return (nodeId + '\t' + invalidation.getType() + '\t' + invalidation.getValue()).getBytes(
+                StandardCharsets.UTF_8);
+    }
+
+    protected void onMessage(String topic, byte[] message) {
+        String[] parts = new String(message, StandardCharsets.UTF_8).split("\t", 3);
+        if (parts.length != 3) {
+            log.warn("Invalid cache invalidation on " + topic);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        CacheInvalidation invalidation;
+        try {
+            invalidation = new CacheInvalidation(CacheInvalidation.Type.valueOf(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cache invalidation on " + topic + ": " + e.getMessage());
+            return;
+        }
+        try {
+            handler.accept(invalidation);
+        } catch (RuntimeException e) {
+            log.warn("Cannot apply the cache invalidation " + invalidation + ": " + e.getMessage(), e);
+        }
+    }
+
+}
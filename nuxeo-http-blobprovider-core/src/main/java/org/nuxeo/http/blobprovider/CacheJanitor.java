@@ -0,0 +1,218 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Background maintenance of a {@link HttpBlobCache}.
+ * <p>
+ * When the cache goes above the high watermark (a percentage of the max. size or of the max. count), or when the free
+ * space on the cache volume goes below the configured minimum, the least recently used files are evicted until the
+ * cache is back to the low watermark. Temporary files left behind by failed downloads are removed too.
+ * <p>
+ * When the cache has several volumes, their state is checked (see {@link HttpBlobCache#checkVolumes()}), and each one
+ * is also kept under the watermarks of its own max. size and above the min. free space of its disk.
+ * <p>
+ * Each run is summarized in a {@link Report}, logged and available with {@link #getLastReport()}.
+ *
+ * @since 2023.1
+ */
+public class CacheJanitor implements Runnable {
+
+    private static final Logger log = LogManager.getLogger(CacheJanitor.class);
+
+    protected final HttpBlobCache cache;
+
+    protected final long maxSize;
+
+    protected final long maxCount;
+
+    protected final long minAgeMillis;
+
+    protected final int highWatermark;
+
+    protected final int lowWatermark;
+
+    protected final long minFreeSpace;
+
+    protected final long orphanMaxAgeMillis;
+
+    protected final AtomicBoolean running = new AtomicBoolean(false);
+
+    protected volatile Report lastReport;
+
+    /**
+     * What a run of the janitor did
+     */
+    public static class Report {
+
+        public final long timestamp;
+
+        public final long durationMillis;
+
+        public final boolean lowDiskSpace;
+
+        public final int evictedCount;
+
+        public final long evictedBytes;
+
+        public final int orphansDeleted;
+
+        public final long sizeAfter;
+
+        public final int countAfter;
+
+        public final long freeSpaceAfter;
+
+        public Report(long timestamp, long durationMillis, boolean lowDiskSpace, int evictedCount, long evictedBytes,
+                int orphansDeleted, long sizeAfter, int countAfter, long freeSpaceAfter) {
+            this.timestamp = timestamp;
+            this.durationMillis = durationMillis;
+            this.lowDiskSpace = lowDiskSpace;
+            this.evictedCount = evictedCount;
+            this.evictedBytes = evictedBytes;
+            this.orphansDeleted = orphansDeleted;
+            this.sizeAfter = sizeAfter;
+            this.countAfter = countAfter;
+            this.freeSpaceAfter = freeSpaceAfter;
+        }
+
+        @Override
+        public String toString() {
+            return "evicted " + evictedCount + " files (" + evictedBytes + " bytes), deleted " + orphansDeleted
+                    + " orphaned files" + (lowDiskSpace ? ", low disk space" : "") + ", cache now holds " + countAfter
+                    + " files (" + sizeAfter + " bytes), " + freeSpaceAfter + " bytes free on the volumes, took "
+                    + durationMillis + "ms";
+        }
+    }
+
+    /**
+     * @param cache the cache to maintain
+     * @param maxSize max. size of the cache, in bytes
+     * @param maxCount max. number of files in the cache
+     * @param minAge files younger than this (in seconds) are not evicted
+     * @param highWatermark percentage of maxSize/maxCount above which eviction starts
+     * @param lowWatermark percentage of maxSize/maxCount to go back to when evicting
+     * @param minFreeSpace min. free space (in bytes) on the cache volume, 0 to ignore the free space
+     * @param orphanMaxAge temporary or unreferenced files older than this (in seconds) are deleted
+     */
+    public CacheJanitor(HttpBlobCache cache, long maxSize, long maxCount, long minAge, int highWatermark,
+            int lowWatermark, long minFreeSpace, long orphanMaxAge) {
+        this.cache = cache;
+        this.maxSize = maxSize;
+        this.maxCount = maxCount;
+        this.minAgeMillis = minAge * 1000;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.minFreeSpace = minFreeSpace;
+        this.orphanMaxAgeMillis = orphanMaxAge * 1000;
+    }
+
+    protected long percentOf(long value, int percent) {
+        return value / 100 * percent + value % 100 * percent / 100;
+    }
+
+    protected boolean isLowOnDiskSpace(CacheVolume volume) {
+        return minFreeSpace > 0 && volume.isOnline() && volume.getUsableSpace() < minFreeSpace;
+    }
+
+    protected boolean isAboveHighWatermark(CacheVolume volume) {
+        return volume.getMaxSize() > 0 && volume.getSize() > percentOf(volume.getMaxSize(), highWatermark);
+    }
+
+    protected long getUsableSpace() {
+        return cache.getVolumes().stream().mapToLong(CacheVolume::getUsableSpace).sum();
+    }
+
+    /**
+     * Cheap check, called after a file is added to the cache to decide if the janitor should run before its next
+     * scheduled time.
+     */
+    public boolean isAboveHighWatermark() {
+        return cache.getSize() > percentOf(maxSize, highWatermark)
+                || cache.getNumberOfItems() > percentOf(maxCount, highWatermark)
+                || cache.getVolumes().stream().anyMatch(this::isAboveHighWatermark);
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    @Override
+    public void run() {
+        // Scheduled run and on-demand run can overlap, one is enough
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+
+            cache.checkVolumes();
+            int orphans = cache.deleteOrphanedFiles(orphanMaxAgeMillis);
+
+            // Each volume: its own max. size and free space
+            boolean lowDiskSpace = false;
+            int evictedCount = 0;
+            long evictedBytes = 0;
+            for (CacheVolume volume : cache.getVolumes()) {
+                boolean low = isLowOnDiskSpace(volume);
+                lowDiskSpace |= low;
+                if (low || isAboveHighWatermark(volume)) {
+                    long targetSize = percentOf(volume.getMaxSize() > 0 ? volume.getMaxSize() : maxSize,
+                            lowWatermark);
+                    if (low) {
+                        long missing = minFreeSpace - volume.getUsableSpace();
+                        targetSize = Math.max(0, Math.min(targetSize, volume.getSize() - missing));
+                    }
+                    HttpBlobCache.EvictionResult result = cache.evict(volume, targetSize, minAgeMillis);
+                    evictedCount += result.count;
+                    evictedBytes += result.bytes;
+                }
+            }
+
+            // The whole cache
+            if (cache.getSize() > percentOf(maxSize, highWatermark)
+                    || cache.getNumberOfItems() > percentOf(maxCount, highWatermark)) {
+                HttpBlobCache.EvictionResult result = cache.evict(percentOf(maxSize, lowWatermark),
+                        percentOf(maxCount, lowWatermark), minAgeMillis);
+                evictedCount += result.count;
+                evictedBytes += result.bytes;
+            }
+
+            Report report = new Report(start, System.currentTimeMillis() - start, lowDiskSpace, evictedCount,
+                    evictedBytes, orphans, cache.getSize(), cache.getNumberOfItems(), getUsableSpace());
+            lastReport = report;
+            if (report.evictedCount > 0 || report.orphansDeleted > 0 || lowDiskSpace) {
+                log.info("Cache " + cache.getDirectory() + ": " + report);
+            } else {
+                log.debug("Cache " + cache.getDirectory() + ": " + report);
+            }
+        } catch (RuntimeException e) {
+            // Never kill the scheduled task
+            log.error("Error while maintaining the cache " + cache.getDirectory(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+}
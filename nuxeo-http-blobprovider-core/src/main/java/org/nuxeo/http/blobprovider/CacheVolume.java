@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * One directory of a {@link HttpBlobCache}, typically on its own disk, with its own quota.
+ * <p>
+ * A volume is offline when its directory cannot be written (disk unmounted, failed, read only, ...): no file is placed
+ * on it, until a check finds it writable again.
+ *
+ * @since 2023.1
+ */
+public class CacheVolume {
+
+    private static final Logger log = LogManager.getLogger(CacheVolume.class);
+
+    protected final File dir;
+
+    protected final long maxSize;
+
+    protected final AtomicLong size = new AtomicLong();
+
+    protected volatile boolean online = true;
+
+    protected volatile String lastError;
+
+    /**
+     * @param dir the directory, created if needed
+     * @param maxSize max. size of the files on this volume, in bytes, 0 for no limit other than the limit of the cache
+     */
+    public CacheVolume(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public long getUsableSpace() {
+        return online ? dir.getUsableSpace() : 0;
+    }
+
+    /**
+     * @return true if files can be written to the directory (creates it if needed)
+     */
+    public boolean isWritable() {
+        return (dir.isDirectory() || dir.mkdirs()) && dir.canWrite();
+    }
+
+    protected void setOffline(String error) {
+        lastError = error;
+        if (online) {
+            online = false;
+            log.warn("Cache volume " + dir + " is offline: " + error);
+        }
+    }
+
+    protected void setOnline() {
+        if (!online) {
+            online = true;
+            log.info("Cache volume " + dir + " is back online");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return dir + (online ? "" : " (offline)");
+    }
+
+}
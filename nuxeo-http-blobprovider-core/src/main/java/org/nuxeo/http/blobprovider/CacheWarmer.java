@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+/**
+ * Downloads a list of blobs to the cache of a {@link HttpBlobProvider}, with a bounded number of concurrent fetches.
+ * <p>
+ * The fetches run as {@link FetchPriority#BACKGROUND}, so a warm-up never competes with users. Blobs already cached
+ * and fresh are not downloaded again.
+ *
+ * @since 2023.1
+ */
+public class CacheWarmer {
+
+    private static final Logger log = LogManager.getLogger(CacheWarmer.class);
+
+    public static final int MAX_REPORTED_ERRORS = 10;
+
+    protected final HttpBlobProvider provider;
+
+    protected final int concurrency;
+
+    /**
+     * What a warm-up did
+     */
+    public static class Report {
+
+        public final int total;
+
+        public final int fetched;
+
+        public final int alreadyCached;
+
+        public final int failed;
+
+        public final long durationMillis;
+
+        // The first errors only
+        public final List<String> errors;
+
+        public Report(int total, int fetched, int alreadyCached, int failed, long durationMillis,
+                List<String> errors) {
+            this.total = total;
+            this.fetched = fetched;
+            this.alreadyCached = alreadyCached;
+            this.failed = failed;
+            this.durationMillis = durationMillis;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            return total + " blobs: " + fetched + " fetched, " + alreadyCached + " already cached, " + failed
+                    + " failed, took " + durationMillis + "ms";
+        }
+    }
+
+    /**
+     * @param provider the provider, its cache must be enabled
+     * @param concurrency max. number of concurrent fetches
+     */
+    public CacheWarmer(HttpBlobProvider provider, int concurrency) {
+        this.provider = provider;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public CompletableFuture<Report> warm(Collection<? extends ManagedBlob> blobs) {
+
+        long start = System.currentTimeMillis();
+        Queue<ManagedBlob> queue = new ConcurrentLinkedQueue<>(blobs);
+        int total = queue.size();
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger alreadyCached = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        // Each worker takes the next blob until the queue is empty
+        Runnable worker = () -> {
+            ManagedBlob blob;
+            while ((blob = queue.poll()) != null) {
+                try {
+                    if (warm(blob)) {
+                        fetched.incrementAndGet();
+                    } else {
+                        alreadyCached.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    String error = blob.getKey() + ": " + e.getMessage();
+                    log.debug("Cannot warm " + error);
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(error);
+                    }
+                }
+            }
+        };
+
+        int workers = Math.min(concurrency, Math.max(1, total));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(worker, provider.getFetchExecutor());
+        }
+
+        return CompletableFuture.allOf(futures).thenApply(v -> {
+            Report report = new Report(total, fetched.get(), alreadyCached.get(), failed.get(),
+                    System.currentTimeMillis() - start, new ArrayList<>(errors));
+            log.info("Cache warm-up of blob provider " + provider.blobProviderId + ": " + report);
+            return report;
+        });
+    }
+
+    /*
+     * Returns true if the blob was downloaded, false if it was already cached
+     */
+    protected boolean warm(ManagedBlob blob) throws Exception {
+
+        String digest = blob.getDigest();
+        if (digest == null) {
+            throw new IllegalArgumentException("No digest");
+        }
+        // A warm-up is not an access, it must not count as a hit
+        CacheEntry entry = provider.fileCache.peekEntry(provider.cacheKey(digest));
+        if (entry != null && entry.getFile().exists() && provider.isFresh(entry)) {
+            return false;
+        }
+        FetchPriority.runAs(FetchPriority.BACKGROUND, () -> provider.getCachedFile(blob, digest));
+        return true;
+    }
+
+}
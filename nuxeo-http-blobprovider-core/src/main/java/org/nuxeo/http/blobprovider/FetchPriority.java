@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Priority class of a fetch from the remote server.
+ * <p>
+ * A user waiting for a download is {@link #INTERACTIVE}, a Work (fulltext extraction, thumbnail, video conversion,
+ * ...) is {@link #BACKGROUND}. By default, {@link HttpBlobProvider} derives the priority from the name of the calling
+ * thread. Code knowing better can force it with {@link #runAs(FetchPriority, Callable)}.
+ *
+ * @since 2023.1
+ */
+public enum FetchPriority {
+
+    INTERACTIVE, BACKGROUND;
+
+    protected static final ThreadLocal<FetchPriority> FORCED = new ThreadLocal<>();
+
+    /**
+     * @return the priority forced for the current thread, null if none
+     */
+    public static FetchPriority getForced() {
+        return FORCED.get();
+    }
+
+    /**
+     * Runs the callable with the given priority for all the fetches done by the current thread.
+     */
+    public static <T> T runAs(FetchPriority priority, Callable<T> callable) throws Exception {
+        FetchPriority previous = FORCED.get();
+        FORCED.set(priority);
+        try {
+            return callable.call();
+        } finally {
+            if (previous == null) {
+                FORCED.remove();
+            } else {
+                FORCED.set(previous);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent fetches from the remote server, favoring {@link FetchPriority#INTERACTIVE} ones:
+ * <ul>
+ * <li>Interactive fetches can use all the slots</li>
+ * <li>Background fetches can use at most <code>maxBackground</code> slots, and never start while an interactive fetch
+ * is waiting for a slot</li>
+ * </ul>
+ * With <code>maxConcurrent</code> &lt;= 0, interactive fetches are not limited, only background ones are.
+ * A slot is taken with {@link #acquire(FetchPriority)} and must be given back with {@link #release(FetchPriority)}.
+ * Waiting for a slot is bounded by the acquire timeout, so a remote server that holds all the connections fails the
+ * new fetches instead of blocking their threads forever.
+ *
+ * @since 2023.1
+ */
+public class FetchScheduler {
+
+    protected final int maxConcurrent;
+
+    protected final int maxBackground;
+
+    protected final long acquireTimeoutNanos;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected final Condition interactiveCondition = lock.newCondition();
+
+    protected final Condition backgroundCondition = lock.newCondition();
+
+    protected int inFlight = 0;
+
+    protected int backgroundInFlight = 0;
+
+    protected int interactiveWaiting = 0;
+
+    /**
+     * No acquire timeout
+     */
+    public FetchScheduler(int maxConcurrent, int maxBackground) {
+        this(maxConcurrent, maxBackground, 0);
+    }
+
+    /**
+     * @param maxConcurrent max. number of fetches, &lt;= 0 for unlimited
+     * @param acquireTimeoutMillis max. time to wait for a slot, 0 to wait forever
+     */
+    public FetchScheduler(int maxConcurrent, int maxBackground, long acquireTimeoutMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxBackground = maxConcurrent > 0 ? Math.min(maxBackground, maxConcurrent) : maxBackground;
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+    }
+
+    /**
+     * Waits for a slot.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     * @throws IOException if no slot was free before the acquire timeout
+     */
+    public void acquire(FetchPriority priority) throws IOException {
+        lock.lock();
+        try {
+            long nanos = acquireTimeoutNanos;
+            if (priority == FetchPriority.INTERACTIVE) {
+                interactiveWaiting++;
+                try {
+                    while (isFull()) {
+                        nanos = await(interactiveCondition, nanos);
+                    }
+                } finally {
+                    interactiveWaiting--;
+                    if (interactiveWaiting == 0) {
+                        // Background fetches may have been waiting for us only
+                        backgroundCondition.signalAll();
+                    }
+                }
+            } else {
+                while (isFull() || backgroundInFlight >= maxBackground || interactiveWaiting > 0) {
+                    nanos = await(backgroundCondition, nanos);
+                }
+                backgroundInFlight++;
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to fetch from the remote server");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected boolean isFull() {
+        return maxConcurrent > 0 && inFlight >= maxConcurrent;
+    }
+
+    /*
+     * Returns the time left, throws if there is none
+     */
+    protected long await(Condition condition, long nanos) throws InterruptedException, IOException {
+        if (acquireTimeoutNanos <= 0) {
+            condition.await();
+            return nanos;
+        }
+        if (nanos <= 0) {
+            throw new IOException("No fetch slot available after " + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos)
+                    + "ms (" + inFlight + " fetches in progress, " + backgroundInFlight + " in the background)");
+        }
+        return condition.awaitNanos(nanos);
+    }
+
+    public void release(FetchPriority priority) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (priority == FetchPriority.BACKGROUND) {
+                backgroundInFlight--;
+            }
+            if (interactiveWaiting > 0) {
+                interactiveCondition.signal();
+            } else {
+                backgroundCondition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBackgroundInFlight() {
+        lock.lock();
+        try {
+            return backgroundInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+
+import io.opencensus.common.Scope;
+import io.opencensus.trace.AttributeValue;
+import io.opencensus.trace.Span;
+import io.opencensus.trace.Status;
+import io.opencensus.trace.Tracer;
+import io.opencensus.trace.Tracing;
+
+/**
+ * Tracing spans of {@link HttpBlobProvider}, using the OpenCensus tracer of Nuxeo: a span started during a request is a
+ * child of the span of the request, and is exported with it.
+ * <p>
+ * Spans are named <code>HttpBlobProvider/&lt;phase&gt;</code>:
+ * <ul>
+ * <li><code>getStream</code>, <code>getFile</code>, <code>downloadFile</code>: the whole call, with the cache outcome
+ * (<code>cache.outcome</code>: hit, stale, miss, revalidated, notModified, staleIfError, peer)</li>
+ * <li><code>head</code>: the HEAD request used to guess the infos of a URL</li>
+ * <li><code>connect</code>: DNS, TCP and TLS</li>
+ * <li><code>waitResponse</code>: from the request to the response headers (time to first byte)</li>
+ * <li><code>transfer</code>: reading the body, with the number of bytes</li>
+ * </ul>
+ * The query string of the URLs is never recorded, it may hold credentials.
+ *
+ * @since 2023.1
+ */
+public class FetchTracing {
+
+    public static final String SPAN_PREFIX = "HttpBlobProvider/";
+
+    public static final String ATTR_PROVIDER = "blobprovider.id";
+
+    public static final String ATTR_HOST = "http.host";
+
+    public static final String ATTR_PATH = "http.path";
+
+    public static final String ATTR_STATUS_CODE = "http.status_code";
+
+    public static final String ATTR_BYTES = "bytes";
+
+    public static final String ATTR_CACHE_OUTCOME = "cache.outcome";
+
+    public static final String ATTR_HEDGED = "hedged.to";
+
+    public static final String ATTR_RANGE = "http.range";
+
+    protected static final Tracer tracer = Tracing.getTracer();
+
+    /**
+     * A traced call, the exception is thrown as is
+     */
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private FetchTracing() {
+        // utility class
+    }
+
+    /**
+     * Runs the call in a new span, child of the current one. An exception sets the status of the span.
+     */
+    public static <T, E extends Exception> T trace(String phase, TracedCall<T, E> call) throws E {
+        Span span = tracer.spanBuilder(SPAN_PREFIX + phase).startSpan();
+        try (Scope scope = tracer.withSpan(span)) {
+            return call.call();
+        } catch (Exception e) {
+            span.setStatus(Status.UNKNOWN.withDescription(e.toString()));
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Wraps the callable so it runs in the current span, whatever the thread running it
+     */
+    public static <T> Callable<T> withCurrentSpan(Callable<T> callable) {
+        return tracer.withSpan(tracer.getCurrentSpan(), callable);
+    }
+
+    public static Runnable withCurrentSpan(Runnable runnable) {
+        return tracer.withSpan(tracer.getCurrentSpan(), runnable);
+    }
+
+    public static void putAttribute(String key, String value) {
+        if (value != null) {
+            tracer.getCurrentSpan().putAttribute(key, AttributeValue.stringAttributeValue(value));
+        }
+    }
+
+    public static void putAttribute(String key, long value) {
+        tracer.getCurrentSpan().putAttribute(key, AttributeValue.longAttributeValue(value));
+    }
+
+    /**
+     * Host and path of the URL, without the query string
+     */
+    public static void putUrlAttributes(String url) {
+        try {
+            URI uri = new URI(url);
+            putAttribute(ATTR_HOST, uri.getHost());
+            putAttribute(ATTR_PATH, uri.getRawPath());
+        } catch (Exception e) {
+            // Not worth failing the request
+        }
+    }
+
+}
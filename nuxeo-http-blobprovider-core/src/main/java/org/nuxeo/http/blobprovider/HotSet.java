@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The most accessed files of a cache, saved to a small text file so they can be downloaded again after a restart.
+ * <p>
+ * One line per file, hottest first: <code>digest TAB hits TAB length TAB url</code>.
+ *
+ * @since 2023.1
+ */
+public class HotSet {
+
+    private static final Logger log = LogManager.getLogger(HotSet.class);
+
+    public static final String HEADER = "# HttpBlobProvider hot set 1";
+
+    // Most accessed first, then most recently accessed
+    public static final Comparator<CacheEntry> HOTTEST_FIRST = Comparator.comparingLong(CacheEntry::getHits)
+                                                                           .thenComparingLong(
+                                                                                   CacheEntry::getLastAccessNanos)
+                                                                           .reversed();
+
+    /**
+     * A file of the hot set
+     */
+    public static class Item {
+
+        public final String digest;
+
+        public final long hits;
+
+        public final long length;
+
+        public final String url;
+
+        public Item(String digest, long hits, long length, String url) {
+            this.digest = digest;
+            this.hits = hits;
+            this.length = length;
+            this.url = url;
+        }
+    }
+
+    private HotSet() {
+        // utility class
+    }
+
+    /**
+     * @return the max hottest entries. Entries without URL cannot be downloaded again, they are ignored
+     */
+    public static List<Item> select(Collection<CacheEntry> entries, int max) {
+        return entries.stream()
+                      .filter(entry -> entry.getUrl() != null)
+                      .sorted(HOTTEST_FIRST)
+                      .limit(max)
+                      .map(entry -> new Item(HttpBlobCache.digestOf(entry.getKey()), entry.getHits(),
+                              entry.getLength(), entry.getUrl()))
+                      .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes to a temporary file renamed at the end, so a crash never leaves a truncated hot set
+     */
+    public static void write(File file, List<Item> items) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Item item : items) {
+                    writer.write(item.digest + '\t' + item.hits + '\t' + item.length + '\t' + item.url);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return the items, in the order they were written. Empty if the file does not exist or is not a hot set.
+     *         Invalid lines are skipped
+     */
+    public static List<Item> read(File file) throws IOException {
+        List<Item> items = new ArrayList<>();
+        if (!file.exists()) {
+            return items;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) {
+                log.warn("Not a hot set file, ignored: " + file);
+                return items;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length != 4 || parts[0].isEmpty() || parts[3].isEmpty()) {
+                    continue;
+                }
+                try {
+                    items.add(new Item(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+                } catch (NumberFormatException e) {
+                    // skip
+                }
+            }
+        }
+        return items;
+    }
+
+}
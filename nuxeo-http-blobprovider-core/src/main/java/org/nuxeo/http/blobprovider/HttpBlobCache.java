@@ -0,0 +1,669 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * File system cache used by {@link HttpBlobProvider}.
+ * <p>
+ * Works like the <code>LRUFileCache</code> of nuxeo-common (files are stored in a directory, the key is the file name,
+ * least recently used files are removed first), with major differences:
+ * <ul>
+ * <li>Adding a file never evicts anything. The eviction is done in the background by a {@link CacheJanitor}, so a
+ * request thread never pays for it</li>
+ * <li>Files are spread in {@value #SHARDS} subdirectories, named after the first characters of the hash of the key, so
+ * no directory holds tens of thousands of files</li>
+ * <li>There is no global lock: lookups and access time updates are lock free, and adding or removing an entry only
+ * locks one of {@value #LOCK_STRIPES} stripes, chosen by the key. The LRU order is computed when evicting, from the
+ * access time of the entries</li>
+ * <li>The cache can span several {@link CacheVolume}s (directories on different disks). Each key is placed on a volume
+ * by consistent hashing, weighted by the max. size of the volumes, so adding, removing, or losing a volume only moves
+ * the keys of this volume. An offline volume is skipped until it is writable again, see {@link #checkVolumes()}</li>
+ * </ul>
+ * <p>
+ * Keys can be pinned: a pinned entry is never evicted (it can still be removed explicitly). A key can be pinned before
+ * it is cached.
+ * <p>
+ * A cache can be shared by several providers, each one using its own namespace: its keys are
+ * <code>namespace:digest</code>, see {@link #key(String, String)}. Each namespace has a weight, and a quota of the max.
+ * size in proportion. A namespace can use more than its quota while the cache is not full: when evicting, the entries
+ * of the namespaces above their quota go first, and only then the least recently used ones of all namespaces.
+ *
+ * @since 2023.1
+ */
+public class HttpBlobCache {
+
+    private static final Logger log = LogManager.getLogger(HttpBlobCache.class);
+
+    public static final String TEMP_PREFIX = "nxhttp-";
+
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    // Number of subdirectories, 2 hexadecimal characters
+    public static final int SHARDS = 256;
+
+    public static final int LOCK_STRIPES = 64;
+
+    // Points of a volume on the hash ring, for a volume of the smallest size
+    protected static final int VIRTUAL_NODES = 100;
+
+    // Max. weight of a volume, relative to the smallest one
+    protected static final int MAX_WEIGHT = 16;
+
+    protected static final Pattern SIMPLE_KEY = Pattern.compile("[a-zA-Z0-9_\\-]+");
+
+    public static final char NAMESPACE_SEPARATOR = ':';
+
+    protected static final Comparator<CacheEntry> LEAST_RECENTLY_USED_FIRST = Comparator.comparingLong(
+            CacheEntry::getLastAccessNanos);
+
+    protected final List<CacheVolume> volumes;
+
+    // Hash => volume. Only the online volumes, rebuilt when a volume goes offline or back online
+    protected volatile NavigableMap<Long, CacheVolume> ring;
+
+    protected final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    // Changes of a key (put, remove) are done under the lock of its stripe
+    protected final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    protected final AtomicLong size = new AtomicLong();
+
+    protected final Set<String> pinned = ConcurrentHashMap.newKeySet();
+
+    // Size of each namespace, "" for the keys without namespace
+    protected final Map<String, AtomicLong> namespaceSizes = new ConcurrentHashMap<>();
+
+    // Registered namespaces. The others (a provider that was closed) have no quota
+    protected final Map<String, Integer> namespaceWeights = new ConcurrentHashMap<>();
+
+    /**
+     * Result of a call to {@link HttpBlobCache#evict(long, long, long)}
+     */
+    public static class EvictionResult {
+
+        public final int count;
+
+        public final long bytes;
+
+        public EvictionResult(int count, long bytes) {
+            this.count = count;
+            this.bytes = bytes;
+        }
+    }
+
+    public HttpBlobCache(File dir) {
+        this(List.of(new CacheVolume(dir, 0)));
+    }
+
+    public HttpBlobCache(List<CacheVolume> volumes) {
+        if (volumes.isEmpty()) {
+            throw new IllegalArgumentException("No cache volume");
+        }
+        this.volumes = Collections.unmodifiableList(new ArrayList<>(volumes));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        for (CacheVolume volume : volumes) {
+            if (!volume.isWritable()) {
+                volume.setOffline("Cannot write to the directory");
+            }
+        }
+        buildRing();
+    }
+
+    /**
+     * @return <code>namespace:digest</code>, or the digest if namespace is null
+     */
+    public static String key(String namespace, String digest) {
+        return namespace == null ? digest : namespace + NAMESPACE_SEPARATOR + digest;
+    }
+
+    /**
+     * @return the namespace of the key, "" if it has none
+     */
+    public static String namespaceOf(String key) {
+        int separator = key.indexOf(NAMESPACE_SEPARATOR);
+        return separator < 0 ? "" : key.substring(0, separator);
+    }
+
+    /**
+     * @return the key without its namespace
+     */
+    public static String digestOf(String key) {
+        return key.substring(key.indexOf(NAMESPACE_SEPARATOR) + 1);
+    }
+
+    /**
+     * Registers a namespace, or changes its weight
+     */
+    public void setNamespaceWeight(String namespace, int weight) {
+        namespaceWeights.put(namespace, Math.max(1, weight));
+    }
+
+    /**
+     * The entries of the namespace are kept, they have no quota anymore: they are evicted first
+     */
+    public void removeNamespace(String namespace) {
+        namespaceWeights.remove(namespace);
+    }
+
+    public Map<String, Integer> getNamespaceWeights() {
+        return Collections.unmodifiableMap(namespaceWeights);
+    }
+
+    /**
+     * @return the share of maxSize of the namespace, in proportion of its weight. 0 if it is not registered, maxSize
+     *         if no namespace is registered
+     */
+    public long getQuota(String namespace, long maxSize) {
+        if (namespaceWeights.isEmpty()) {
+            return maxSize;
+        }
+        Integer weight = namespaceWeights.get(namespace);
+        if (weight == null) {
+            return 0;
+        }
+        long total = namespaceWeights.values().stream().mapToLong(Integer::longValue).sum();
+        return (long) ((double) maxSize * weight / total);
+    }
+
+    public long getSize(String namespace) {
+        AtomicLong namespaceSize = namespaceSizes.get(namespace);
+        return namespaceSize == null ? 0 : namespaceSize.get();
+    }
+
+    protected void addSize(CacheEntry entry, long sign) {
+        long length = sign * entry.getLength();
+        size.addAndGet(length);
+        entry.getVolume().size.addAndGet(length);
+        namespaceSizes.computeIfAbsent(namespaceOf(entry.getKey()), k -> new AtomicLong()).addAndGet(length);
+    }
+
+    /**
+     * @return the directory of the first volume
+     */
+    public File getDirectory() {
+        return volumes.get(0).getDirectory();
+    }
+
+    public List<CacheVolume> getVolumes() {
+        return volumes;
+    }
+
+    /**
+     * @return true if at least one volume is online
+     */
+    public boolean isAvailable() {
+        return !ring.isEmpty();
+    }
+
+    protected static long hash(String value) {
+        byte[] md5 = DigestUtils.md5(value.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (md5[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    protected void buildRing() {
+        long smallest = volumes.stream().mapToLong(CacheVolume::getMaxSize).filter(s -> s > 0).min().orElse(0);
+        NavigableMap<Long, CacheVolume> newRing = new TreeMap<>();
+        for (CacheVolume volume : volumes) {
+            if (!volume.isOnline()) {
+                continue;
+            }
+            long weight = smallest > 0 && volume.getMaxSize() > 0
+                    ? Math.min(MAX_WEIGHT, Math.round((double) volume.getMaxSize() / smallest))
+                    : 1;
+            String path = volume.getDirectory().getAbsolutePath();
+            for (int i = 0; i < VIRTUAL_NODES * weight; i++) {
+                newRing.put(hash(path + "#" + i), volume);
+            }
+        }
+        ring = newRing;
+    }
+
+    /*
+     * The volume for a key, from the ring of online volumes
+     */
+    protected CacheVolume volumeFor(String key) throws IOException {
+        NavigableMap<Long, CacheVolume> current = ring;
+        if (current.isEmpty()) {
+            throw new IOException("No cache volume available");
+        }
+        Map.Entry<Long, CacheVolume> entry = current.ceilingEntry(hash(key));
+        return entry == null ? current.firstEntry().getValue() : entry.getValue();
+    }
+
+    /*
+     * The volume for a new file: checked first, a volume that cannot be written is set offline, the key goes to the
+     * next one
+     */
+    protected CacheVolume writableVolumeFor(String key) throws IOException {
+        for (int i = 0; i < volumes.size(); i++) {
+            CacheVolume volume = volumeFor(key);
+            if (volume.isWritable()) {
+                return volume;
+            }
+            setOffline(volume, "Cannot write to the directory");
+        }
+        throw new IOException("No cache volume available");
+    }
+
+    /*
+     * Can be called under a stripe lock: the entries of the volume are removed later, when accessed or by
+     * checkVolumes()
+     */
+    protected void setOffline(CacheVolume volume, String error) {
+        if (volume.isOnline()) {
+            volume.setOffline(error);
+            buildRing();
+        }
+    }
+
+    /**
+     * Sets offline the volumes that cannot be written anymore, and back online the ones that can be written again
+     *
+     * @return true if a volume changed state
+     */
+    public boolean checkVolumes() {
+        boolean changed = false;
+        for (CacheVolume volume : volumes) {
+            boolean writable = volume.isWritable();
+            if (volume.isOnline() && !writable) {
+                setOffline(volume, "Cannot write to the directory");
+                changed = true;
+            } else if (!volume.isOnline() && writable) {
+                volume.setOnline();
+                buildRing();
+                changed = true;
+            }
+        }
+        // The files of the offline volumes are not reachable, forget them
+        for (CacheEntry entry : entries.values()) {
+            if (!entry.getVolume().isOnline()) {
+                removeEntry(entry, false);
+            }
+        }
+        return changed;
+    }
+
+    protected ReentrantLock lockFor(String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /*
+     * The key is used as a file name. Digests are fine, anything else is hashed.
+     */
+    protected String fileName(String key) {
+        return SIMPLE_KEY.matcher(key).matches() ? key : DigestUtils.md5Hex(key);
+    }
+
+    /*
+     * The hash spreads the files evenly, whatever the keys look like
+     */
+    protected File fileFor(CacheVolume volume, String key) {
+        String shard = DigestUtils.md5Hex(key).substring(0, 2);
+        File shardDir = new File(volume.getDirectory(), shard);
+        shardDir.mkdir();
+        return new File(shardDir, fileName(key));
+    }
+
+    /**
+     * Returns a new temporary file in the cache directory. The caller is expected to either move it to the cache with
+     * {@link #putFile(String, File)} or to delete it. Temporary files left behind are removed by the
+     * {@link CacheJanitor}.
+     */
+    public File getTempFile() throws IOException {
+        return getTempFile(null);
+    }
+
+    /**
+     * Same as {@link #getTempFile()}, on the volume where the key will be stored, so moving it to the cache is just a
+     * rename.
+     */
+    public File getTempFile(String key) throws IOException {
+        CacheVolume volume = writableVolumeFor(key == null ? "" : key);
+        try {
+            return File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, volume.getDirectory());
+        } catch (IOException e) {
+            setOffline(volume, e.toString());
+            throw e;
+        }
+    }
+
+    public File getFile(String key) {
+        CacheEntry entry = getEntry(key);
+        return entry == null ? null : entry.getFile();
+    }
+
+    /**
+     * @return the entry, null if the key is not cached
+     */
+    public CacheEntry getEntry(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.getVolume().isOnline() || !entry.getFile().exists()) {
+            // Removed behind our back
+            removeEntry(entry, false);
+            return null;
+        }
+        entry.touch();
+        return entry;
+    }
+
+    /**
+     * Same as {@link #getEntry(String)}, but does not count as an access (the LRU order is not changed). Meant for
+     * administration.
+     */
+    public CacheEntry peekEntry(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @return a copy of the entries, least recently used first
+     */
+    public List<CacheEntry> getEntries() {
+        List<CacheEntry> list = new ArrayList<>(entries.values());
+        list.sort(LEAST_RECENTLY_USED_FIRST);
+        return list;
+    }
+
+    public File putFile(String key, File file) throws IOException {
+        return putFile(key, file, false);
+    }
+
+    /**
+     * Moves the file to the cache.
+     *
+     * @param replace if false and the key is already cached, the file is just deleted. If true, the file replaces the
+     *            cached one.
+     * @return the cached file
+     */
+    public File putFile(String key, File file, boolean replace) throws IOException {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            CacheEntry entry = entries.get(key);
+            if (!replace && entry != null && entry.getVolume().isOnline() && entry.getFile().exists()) {
+                file.delete();
+                entry.touch();
+                return entry.getFile();
+            }
+
+            CacheVolume volume = writableVolumeFor(key);
+            File target = fileFor(volume, key);
+            try {
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                if (!volume.isWritable()) {
+                    setOffline(volume, e.toString());
+                }
+                throw e;
+            }
+            CacheEntry newEntry = new CacheEntry(key, target, volume);
+            CacheEntry previous = entries.put(key, newEntry);
+            if (previous != null) {
+                newEntry.addHits(previous.getHits());
+                addSize(previous, -1);
+                // Placed on another volume since then
+                if (!previous.getFile().equals(target)) {
+                    previous.getFile().delete();
+                }
+            }
+            addSize(newEntry, 1);
+
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the stream to the cache. The stream is not closed.
+     *
+     * @return the cached file
+     */
+    public File putFile(String key, InputStream in) throws IOException {
+        File tmp = getTempFile();
+        try {
+            FileUtils.copyInputStreamToFile(in, tmp);
+            return putFile(key, tmp);
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /*
+     * Removes this entry, unless it was replaced in the meantime. The file is deleted under the lock, so a new file
+     * for the same key is never deleted by mistake.
+     */
+    protected boolean removeEntry(CacheEntry entry, boolean deleteFile) {
+        ReentrantLock lock = lockFor(entry.getKey());
+        lock.lock();
+        try {
+            if (!entries.remove(entry.getKey(), entry)) {
+                return false;
+            }
+            addSize(entry, -1);
+            if (deleteFile && !entry.getFile().delete() && entry.getFile().exists()) {
+                log.warn("Could not delete cached file " + entry.getFile());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean remove(String key) {
+        CacheEntry entry = entries.get(key);
+        return entry != null && removeEntry(entry, true);
+    }
+
+    /**
+     * Removes the entries matching the predicate, pinned or not.
+     *
+     * @return the number of entries removed
+     */
+    public int removeIf(Predicate<CacheEntry> predicate) {
+        int count = 0;
+        for (CacheEntry entry : entries.values()) {
+            if (predicate.test(entry) && removeEntry(entry, true)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Pins the key: its entry, current or future, is never evicted
+     */
+    public void pin(String key) {
+        pinned.add(key);
+    }
+
+    public boolean unpin(String key) {
+        return pinned.remove(key);
+    }
+
+    public boolean isPinned(String key) {
+        return pinned.contains(key);
+    }
+
+    public Set<String> getPinned() {
+        return new HashSet<>(pinned);
+    }
+
+    public int getNumberOfItems() {
+        return entries.size();
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public void clear() {
+        for (CacheEntry entry : entries.values()) {
+            removeEntry(entry, true);
+        }
+        pinned.clear();
+    }
+
+    /**
+     * Removes the least recently used entries until the cache holds no more than <code>maxSize</code> bytes and
+     * <code>maxCount</code> files. Entries created less than <code>minAgeMillis</code> ago, and pinned entries, are
+     * kept.
+     */
+    public EvictionResult evict(long maxSize, long maxCount, long minAgeMillis) {
+        BooleanSupplier done = () -> size.get() <= maxSize && entries.size() <= maxCount;
+        if (namespaceWeights.isEmpty() && namespaceSizes.size() <= 1) {
+            return evict(null, done, minAgeMillis);
+        }
+        // The namespaces above their quota first
+        Map<String, Long> quotas = new HashMap<>();
+        EvictionResult borrowed = evict(entry -> {
+            String namespace = namespaceOf(entry.getKey());
+            long quota = quotas.computeIfAbsent(namespace, ns -> getQuota(ns, maxSize));
+            return getSize(namespace) > quota;
+        }, done, minAgeMillis);
+        EvictionResult others = evict(null, done, minAgeMillis);
+        return new EvictionResult(borrowed.count + others.count, borrowed.bytes + others.bytes);
+    }
+
+    /**
+     * Same as {@link #evict(long, long, long)}, for the entries of one volume only
+     */
+    public EvictionResult evict(CacheVolume volume, long maxSize, long minAgeMillis) {
+        return evict(entry -> entry.getVolume() == volume, () -> volume.getSize() <= maxSize, minAgeMillis);
+    }
+
+    /*
+     * Least recently used first, among the entries accepted by the filter (all of them if null)
+     */
+    protected EvictionResult evict(Predicate<CacheEntry> filter, BooleanSupplier done, long minAgeMillis) {
+        int count = 0;
+        long bytes = 0;
+        if (done.getAsBoolean()) {
+            return new EvictionResult(count, bytes);
+        }
+        long minCreated = System.currentTimeMillis() - minAgeMillis;
+        // Entries accessed while sorting are at worst evicted a bit early
+        for (CacheEntry entry : getEntries()) {
+            if (done.getAsBoolean()) {
+                break;
+            }
+            if ((filter != null && !filter.test(entry)) || entry.getCreated() > minCreated
+                    || pinned.contains(entry.getKey())) {
+                continue;
+            }
+            if (removeEntry(entry, true)) {
+                count++;
+                bytes += entry.getLength();
+            }
+        }
+        return new EvictionResult(count, bytes);
+    }
+
+    /**
+     * Deletes the temporary files, and the files not referenced by any entry, that were last modified before
+     * <code>maxAgeMillis</code>.
+     *
+     * @return the number of files deleted
+     */
+    public int deleteOrphanedFiles(long maxAgeMillis) {
+        Set<File> referenced = new HashSet<>();
+        for (CacheEntry entry : entries.values()) {
+            referenced.add(entry.getFile());
+        }
+        int count = 0;
+        long maxLastModified = System.currentTimeMillis() - maxAgeMillis;
+        for (CacheVolume volume : volumes) {
+            if (volume.isOnline()) {
+                count += deleteOrphanedFiles(volume.getDirectory(), referenced, maxLastModified);
+            }
+        }
+        return count;
+    }
+
+    protected int deleteOrphanedFiles(File dir, Set<File> referenced, long maxLastModified) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                File[] shardFiles = file.listFiles();
+                if (shardFiles != null) {
+                    for (File shardFile : shardFiles) {
+                        count += deleteIfOrphaned(shardFile, referenced, maxLastModified);
+                    }
+                }
+            } else {
+                count += deleteIfOrphaned(file, referenced, maxLastModified);
+            }
+        }
+        return count;
+    }
+
+    protected int deleteIfOrphaned(File file, Set<File> referenced, long maxLastModified) {
+        if (!file.isFile() || file.lastModified() > maxLastModified || referenced.contains(file)) {
+            return 0;
+        }
+        return file.delete() ? 1 : 0;
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.DefaultComponent;
+import org.nuxeo.runtime.trackers.files.FileEventTracker;
+
+/**
+ * Implementation of {@link HttpBlobCacheService}. The cache is created when the first provider registers, from these
+ * nuxeo.conf properties (same meaning and default values as the cache properties of a provider):
+ * <ul>
+ * <li>http.blobprovider.sharedCache.volumes: <code>[{"path": "/mnt/disk1", "maxSize": 100000000000}, ...]</code>.
+ * Default: a temporary directory</li>
+ * <li>http.blobprovider.sharedCache.maxSize (default: the sum of the volume sizes, or 500 MB)</li>
+ * <li>http.blobprovider.sharedCache.maxCount, minAge, highWatermark, lowWatermark, minFreeSpace, janitorInterval,
+ * orphanMaxAge</li>
+ * </ul>
+ * The cache is emptied when the component is deactivated.
+ *
+ * @since 2023.1
+ */
+public class HttpBlobCacheComponent extends DefaultComponent implements HttpBlobCacheService {
+
+    private static final Logger log = LogManager.getLogger(HttpBlobCacheComponent.class);
+
+    public static final String CONFIGURATION_PREFIX = "http.blobprovider.sharedCache.";
+
+    public static final String DIRECTORY_NAME = "httpblobprovider_shared_cache";
+
+    protected HttpBlobCache cache;
+
+    protected CacheJanitor janitor;
+
+    protected long maxSize;
+
+    protected ScheduledExecutorService scheduler;
+
+    protected final List<File> directories = new ArrayList<>();
+
+    @Override
+    public synchronized HttpBlobCache register(String namespace, int weight) {
+        if (cache == null) {
+            try {
+                createCache();
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot create the shared cache of the HTTP blob providers", e);
+            }
+        }
+        cache.setNamespaceWeight(namespace, weight);
+        return cache;
+    }
+
+    @Override
+    public synchronized void unregister(String namespace) {
+        if (cache != null) {
+            cache.removeNamespace(namespace);
+        }
+    }
+
+    @Override
+    public synchronized HttpBlobCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public synchronized CacheJanitor getJanitor() {
+        return janitor;
+    }
+
+    @Override
+    public synchronized long getQuota(String namespace) {
+        return cache == null ? 0 : cache.getQuota(namespace, maxSize);
+    }
+
+    protected String getProperty(String name) {
+        return Framework.getProperty(CONFIGURATION_PREFIX + name);
+    }
+
+    protected long getLong(String name, long defaultValue) {
+        String value = getProperty(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            long result = Long.parseLong(value.trim());
+            return result > 0 ? result : defaultValue;
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for " + CONFIGURATION_PREFIX + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    protected void createCache() throws IOException {
+
+        List<CacheVolume> volumes = new ArrayList<>();
+        String json = getProperty("volumes");
+        if (StringUtils.isNotBlank(json)) {
+            try {
+                JSONArray array = new JSONArray(json);
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject obj = array.getJSONObject(i);
+                    File dir = new File(obj.getString("path"), DIRECTORY_NAME);
+                    volumes.add(new CacheVolume(dir, obj.optLong("maxSize", 0)));
+                    directories.add(dir);
+                }
+            } catch (JSONException e) {
+                throw new IOException("Invalid " + CONFIGURATION_PREFIX + "volumes", e);
+            }
+        } else {
+            File dir = Framework.createTempFile(DIRECTORY_NAME, "");
+            dir.delete();
+            dir.mkdir();
+            volumes.add(new CacheVolume(dir, 0));
+            directories.add(dir);
+        }
+
+        maxSize = getLong("maxSize", HttpBlobProvider.DEFAULT_CACHE_MAX_FILE_SIZE);
+        if (StringUtils.isBlank(getProperty("maxSize")) && volumes.stream().allMatch(v -> v.getMaxSize() > 0)) {
+            maxSize = volumes.stream().mapToLong(CacheVolume::getMaxSize).sum();
+        }
+        long maxCount = getLong("maxCount", HttpBlobProvider.DEFAULT_CACHE_MAX_COUNT);
+        long minAge = getLong("minAge", HttpBlobProvider.DEFAULT_CACHE_MIN_AGE);
+        long high = getLong("highWatermark", HttpBlobProvider.DEFAULT_CACHE_HIGH_WATERMARK);
+        long low = getLong("lowWatermark", HttpBlobProvider.DEFAULT_CACHE_LOW_WATERMARK);
+        if (high > 100 || low >= high) {
+            log.warn("Invalid watermarks for the shared cache (high: " + high + ", low: " + low
+                    + "), using the default values");
+            high = HttpBlobProvider.DEFAULT_CACHE_HIGH_WATERMARK;
+            low = HttpBlobProvider.DEFAULT_CACHE_LOW_WATERMARK;
+        }
+        long minFreeSpace = getLong("minFreeSpace", HttpBlobProvider.DEFAULT_CACHE_MIN_FREE_SPACE);
+        long interval = getLong("janitorInterval", HttpBlobProvider.DEFAULT_CACHE_JANITOR_INTERVAL);
+        long orphanMaxAge = getLong("orphanMaxAge", HttpBlobProvider.DEFAULT_CACHE_ORPHAN_MAX_AGE);
+
+        cache = new HttpBlobCache(volumes);
+        janitor = new CacheJanitor(cache, maxSize, maxCount, minAge, (int) high, (int) low, minFreeSpace,
+                orphanMaxAge);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Nuxeo-HttpBlobProvider-SharedCache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(janitor, interval, interval, TimeUnit.SECONDS);
+
+        for (CacheVolume volume : volumes) {
+            FileEventTracker.registerProtectedPath(volume.getDirectory().getAbsolutePath());
+        }
+        log.info("Shared cache of the HTTP blob providers created in " + directories + ", max. size: " + maxSize);
+    }
+
+    /*
+     * Not in stop(): the providers save their hot set when they are closed, which can happen after
+     */
+    @Override
+    public synchronized void deactivate(ComponentContext context) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (cache != null) {
+            cache.clear();
+            cache = null;
+            janitor = null;
+        }
+        // The index of the cache is in memory, the files would be orphans
+        for (File dir : directories) {
+            try {
+                FileUtils.deleteDirectory(dir);
+            } catch (IOException e) {
+                log.warn("Cannot delete the cache directory " + dir + ": " + e.getMessage());
+            }
+        }
+        directories.clear();
+    }
+
+}
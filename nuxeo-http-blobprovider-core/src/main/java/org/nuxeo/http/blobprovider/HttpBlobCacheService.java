@@ -0,0 +1,60 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+/**
+ * A cache shared by the {@link HttpBlobProvider}s of the node that set <code>sharedCache</code>, so the disk is not
+ * statically split between them: each provider has its own namespace, with a quota in proportion of its weight, and
+ * can use the space the others do not use.
+ * <p>
+ * Configured in nuxeo.conf, see {@link HttpBlobCacheComponent}.
+ *
+ * @since 2023.1
+ */
+public interface HttpBlobCacheService {
+
+    /**
+     * Registers the namespace of a provider, or changes its weight. Creates the cache if needed.
+     *
+     * @return the shared cache
+     */
+    HttpBlobCache register(String namespace, int weight);
+
+    /**
+     * The files of the namespace stay in the cache. They are evicted first, unless it is registered again (a provider
+     * being re-initialized for example).
+     */
+    void unregister(String namespace);
+
+    /**
+     * @return the shared cache, null if no provider registered yet
+     */
+    HttpBlobCache getCache();
+
+    /**
+     * @return the janitor of the shared cache, null if no provider registered yet
+     */
+    CacheJanitor getJanitor();
+
+    /**
+     * @return the share of the max. size of the cache the namespace can use when the cache is full
+     */
+    long getQuota(String namespace);
+
+}
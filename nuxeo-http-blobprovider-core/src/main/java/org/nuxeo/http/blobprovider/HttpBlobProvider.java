@@ -19,36 +19,80 @@ package org.nuxeo.http.blobprovider;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.nuxeo.common.file.FileCache;
-import org.nuxeo.common.file.LRUFileCache;
+import org.nuxeo.common.Environment;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
 import org.nuxeo.ecm.core.blob.AbstractBlobProvider;
 import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.ManagedBlob;
 import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.http.blobprovider.auth.BasicAuthenticator;
+import org.nuxeo.http.blobprovider.auth.BearerTokenAuthenticator;
+import org.nuxeo.http.blobprovider.auth.HttpAuthenticator;
+import org.nuxeo.http.blobprovider.auth.OAuth2ClientCredentialsAuthenticator;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.trackers.files.FileEventTracker;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Base64;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 
 /**
  * Handle a blob living on a remote HTTP server, in read-only (no write to the
@@ -57,7 +101,9 @@ import java.util.Map.Entry;
  * Nuxeo will handle the blob as if it was living in its own blob store:
  * Thumbnail, full text, video storyboard, ...
  * <p>
- * First implementation: Support unauthenticated URLs or BASIC authentication
+ * First implementation: Support unauthenticated URLs or BASIC authentication.
+ * Bearer tokens, OAuth2 client credentials and custom authentications are
+ * supported via {@link HttpAuthenticator}
  * <p>
  * Because we don't redirect the URL (we don't override <code>getURI()</code>),
  * any download will fetch the file on the remote server => We should have some
@@ -147,6 +193,8 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 	public static final String PROPERTY_MORE_HEADERS = "moreHeadersJson";
 
+	public static final String PROPERTY_AUTHENTICATOR_CLASS = "authenticatorClass";
+
 	public static final String PROPERTY_USE_CACHE = "useCache";
 
 	public static final String PROPERTY_CACHE_MAX_SIZE = "cacheMaxSize";
@@ -155,12 +203,127 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 	public static final String PROPERTY_CACHE_MIN_AGE = "cacheMinAge";
 
+	public static final String PROPERTY_CACHE_HIGH_WATERMARK = "cacheHighWatermark";
+
+	public static final String PROPERTY_CACHE_LOW_WATERMARK = "cacheLowWatermark";
+
+	public static final String PROPERTY_CACHE_MIN_FREE_SPACE = "cacheMinFreeSpace";
+
+	public static final String PROPERTY_CACHE_JANITOR_INTERVAL = "cacheJanitorInterval";
+
+	public static final String PROPERTY_CACHE_ORPHAN_MAX_AGE = "cacheOrphanMaxAge";
+
+	public static final String PROPERTY_CACHE_MAX_AGE = "cacheMaxAge";
+
+	public static final String PROPERTY_CACHE_STALE_WHILE_REVALIDATE = "cacheStaleWhileRevalidate";
+
+	public static final String PROPERTY_CACHE_STALE_IF_ERROR = "cacheStaleIfError";
+
+	public static final String PROPERTY_CACHE_VOLUMES = "cacheVolumesJson";
+
+	public static final String PROPERTY_USE_VIRTUAL_THREADS = "useVirtualThreads";
+
+	public static final String PROPERTY_FETCH_MAX_THREADS = "fetchMaxThreads";
+
+	public static final String PROPERTY_FETCH_MAX_CONCURRENT = "fetchMaxConcurrent";
+
+	public static final String PROPERTY_FETCH_MAX_BACKGROUND_CONCURRENT = "fetchMaxBackgroundConcurrent";
+
+	public static final String PROPERTY_FETCH_ACQUIRE_TIMEOUT = "fetchAcquireTimeout";
+
+	public static final String PROPERTY_BACKGROUND_MAX_BANDWIDTH = "backgroundMaxBandwidth";
+
+	public static final String PROPERTY_BACKGROUND_THREAD_NAME_PATTERN = "backgroundThreadNamePattern";
+
+	public static final String PROPERTY_DOWNLOAD_MEMORY_THRESHOLD = "downloadMemoryThreshold";
+
+	public static final String PROPERTY_USE_NEGATIVE_CACHE = "useNegativeCache";
+
+	public static final String PROPERTY_NEGATIVE_CACHE_NOT_FOUND_TTL = "negativeCacheNotFoundTtl";
+
+	public static final String PROPERTY_NEGATIVE_CACHE_FORBIDDEN_TTL = "negativeCacheForbiddenTtl";
+
+	public static final String PROPERTY_NEGATIVE_CACHE_SERVER_ERROR_TTL = "negativeCacheServerErrorTtl";
+
+	public static final String PROPERTY_DEFER_METADATA_RESOLUTION = "deferMetadataResolution";
+
+	public static final String PROPERTY_METADATA_RESOLUTION_BATCH_SIZE = "metadataResolutionBatchSize";
+
+	public static final String PROPERTY_METADATA_RESOLUTION_INTERVAL = "metadataResolutionInterval";
+
+	public static final String PROPERTY_PREWARM_CONNECTIONS = "prewarmConnections";
+
+	public static final String PROPERTY_HEALTH_CHECK_URL = "healthCheckUrl";
+
+	public static final String PROPERTY_HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+	public static final String PROPERTY_HEALTH_CHECK_TIMEOUT = "healthCheckTimeout";
+
+	public static final String PROPERTY_HEALTH_CHECK_FAILURE_THRESHOLD = "healthCheckFailureThreshold";
+
+	public static final String PROPERTY_FAIL_FAST = "failFast";
+
+	public static final String PROPERTY_MIRRORS = "mirrors";
+
+	public static final String PROPERTY_HEDGE_PERCENTILE = "hedgePercentile";
+
+	public static final String PROPERTY_HEDGE_MIN_DELAY = "hedgeMinDelay";
+
+	public static final String PROPERTY_VERIFY_DOWNLOADS = "verifyDownloads";
+
+	public static final String PROPERTY_VERIFY_BLOB_DIGEST = "verifyBlobDigest";
+
+	public static final String PROPERTY_STREAM_IDLE_TIMEOUT = "streamIdleTimeout";
+
+	public static final String PROPERTY_STREAM_MAX_DURATION = "streamMaxDuration";
+
+	public static final String PROPERTY_STREAM_LEAK_DETECTION = "streamLeakDetection";
+
+	public static final String PROPERTY_PROBE_WITH_RANGE = "probeWithRange";
+
+	public static final String PROPERTY_CACHE_ON_RANGE_REQUEST = "cacheOnRangeRequest";
+
+	public static final String PROPERTY_HOT_SET_SIZE = "hotSetSize";
+
+	public static final String PROPERTY_HOT_SET_INTERVAL = "hotSetInterval";
+
+	public static final String PROPERTY_HOT_SET_FILE = "hotSetFile";
+
+	public static final String PROPERTY_HOT_SET_WARM_CONCURRENCY = "hotSetWarmConcurrency";
+
+	public static final String PROPERTY_SHARED_CACHE = "sharedCache";
+
+	public static final String PROPERTY_SHARED_CACHE_WEIGHT = "sharedCacheWeight";
+
+	public static final String PROPERTY_CLUSTER_INVALIDATION = "clusterInvalidation";
+
+	public static final String PROPERTY_INVALIDATION_GROUP = "invalidationGroup";
+
+	public static final String PROPERTY_CACHE_ADMIN_GROUP = "cacheAdminGroup";
+
+	public static final String PROPERTY_PEERS = "peers";
+
+	public static final String PROPERTY_PEER_SELF = "peerSelf";
+
+	public static final String PROPERTY_PEER_PORT = "peerPort";
+
+	public static final String PROPERTY_PEER_BIND_ADDRESS = "peerBindAddress";
+
+	public static final String PROPERTY_PEER_SECRET = "peerSecret";
+
+	public static final String PROPERTY_PEER_TIMEOUT = "peerTimeout";
+
 	// <-------------------- Other constants -------------------->
 	protected static final String AUTH_NONE = "None";
 
 	protected static final String AUTH_BASIC = "Basic";
 
-	public static final String[] SUPPORTED_AUTHENTICATION_METHODS = { AUTH_NONE, AUTH_BASIC };
+	protected static final String AUTH_BEARER = "Bearer";
+
+	protected static final String AUTH_OAUTH2 = "OAuth2";
+
+	public static final String[] SUPPORTED_AUTHENTICATION_METHODS = { AUTH_NONE, AUTH_BASIC, AUTH_BEARER,
+			AUTH_OAUTH2 };
 
 	public static final String DEFAULT_PROVIDER = "http";
 
@@ -170,6 +333,121 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 	public static final long DEFAULT_CACHE_MIN_AGE = 3600; // 1h
 
+	public static final long DEFAULT_CACHE_HIGH_WATERMARK = 90; // %
+
+	public static final long DEFAULT_CACHE_LOW_WATERMARK = 75; // %
+
+	public static final long DEFAULT_CACHE_MIN_FREE_SPACE = 0; // Not checked
+
+	public static final long DEFAULT_CACHE_JANITOR_INTERVAL = 60; // 1mn
+
+	public static final long DEFAULT_CACHE_ORPHAN_MAX_AGE = 3600; // 1h
+
+	public static final long DEFAULT_CACHE_MAX_AGE = 0; // Never expires
+
+	public static final long DEFAULT_CACHE_STALE_WHILE_REVALIDATE = 0; // Disabled
+
+	public static final long DEFAULT_CACHE_STALE_IF_ERROR = 0; // Disabled
+
+	public static final long DEFAULT_FETCH_MAX_THREADS = 64;
+
+	public static final long DEFAULT_FETCH_MAX_CONCURRENT = 0; // Unlimited
+
+	public static final long DEFAULT_FETCH_MAX_BACKGROUND_CONCURRENT = 16;
+
+	public static final long DEFAULT_FETCH_ACQUIRE_TIMEOUT = 60; // s
+
+	public static final long DEFAULT_BACKGROUND_MAX_BANDWIDTH = 0; // Unlimited
+
+	// Threads of the WorkManager ("Nuxeo-Work-<queue>-n") or of the stream
+	// computations ("<name>Pool-nn"), plus our own background threads
+	public static final String DEFAULT_BACKGROUND_THREAD_NAME_PATTERN = "Nuxeo-Work-.*|.*Pool-\\d+.*|Nuxeo-HttpBlobProvider-.*";
+
+	public static final long DEFAULT_DOWNLOAD_MEMORY_THRESHOLD = 256 * 1024;
+
+	public static final int DOWNLOAD_MAX_POOLED_BUFFERS = 16;
+
+	public static final long DEFAULT_NEGATIVE_CACHE_NOT_FOUND_TTL = 60;
+
+	public static final long DEFAULT_NEGATIVE_CACHE_FORBIDDEN_TTL = 30;
+
+	public static final long DEFAULT_NEGATIVE_CACHE_SERVER_ERROR_TTL = 5;
+
+	public static final long DEFAULT_METADATA_RESOLUTION_BATCH_SIZE = 50;
+
+	public static final long DEFAULT_METADATA_RESOLUTION_INTERVAL = 30; // seconds
+
+	public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+	public static final long DEFAULT_PREWARM_CONNECTIONS = 0; // Disabled
+
+	public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 0; // Disabled
+
+	public static final long DEFAULT_HEALTH_CHECK_TIMEOUT = 5000; // ms
+
+	public static final long DEFAULT_HEALTH_CHECK_FAILURE_THRESHOLD = 3;
+
+	public static final long DEFAULT_HEDGE_PERCENTILE = 0; // Disabled
+
+	public static final long DEFAULT_HEDGE_MIN_DELAY = 50; // ms
+
+	public static final long DEFAULT_STREAM_IDLE_TIMEOUT = 300; // 5mn
+
+	public static final long DEFAULT_STREAM_MAX_DURATION = 0; // No limit
+
+	public static final long DEFAULT_HOT_SET_SIZE = 0; // Disabled
+
+	public static final long DEFAULT_HOT_SET_INTERVAL = 600; // 10mn
+
+	public static final long DEFAULT_HOT_SET_WARM_CONCURRENCY = 4;
+
+	public static final long DEFAULT_SHARED_CACHE_WEIGHT = 1;
+
+	public static final long DEFAULT_PEER_PORT = 8899;
+
+	public static final long DEFAULT_PEER_TIMEOUT = 60; // s
+
+	public static final long STREAM_REAPER_INTERVAL = 10; // s
+
+	// Not in HttpURLConnection
+	protected static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+	// Hold threads, slots, scheduled tasks or files: cannot be changed by
+	// reconfigure(), the provider must be re-initialized
+	public static final Set<String> RESTART_PROPERTIES = Set.of(PROPERTY_USE_CACHE, PROPERTY_CACHE_VOLUMES,
+			PROPERTY_USE_VIRTUAL_THREADS, PROPERTY_FETCH_MAX_THREADS, PROPERTY_DEFER_METADATA_RESOLUTION,
+			PROPERTY_PREWARM_CONNECTIONS, PROPERTY_HEALTH_CHECK_INTERVAL, PROPERTY_STREAM_IDLE_TIMEOUT,
+			PROPERTY_STREAM_MAX_DURATION, PROPERTY_STREAM_LEAK_DETECTION,
+			PROPERTY_HOT_SET_SIZE, PROPERTY_HOT_SET_INTERVAL, PROPERTY_HOT_SET_FILE, PROPERTY_SHARED_CACHE,
+			PROPERTY_CLUSTER_INVALIDATION, PROPERTY_PEERS, PROPERTY_PEER_SELF, PROPERTY_PEER_PORT, PROPERTY_PEER_SECRET,
+			PROPERTY_PEER_TIMEOUT, PROPERTY_PEER_BIND_ADDRESS);
+
+	protected static final Set<String> AUTHENTICATION_PROPERTIES = Set.of(PROPERTY_AUTHENTICATION_TYPE,
+			PROPERTY_LOGIN, PROPERTY_PWD, PROPERTY_AUTHENTICATOR_CLASS, BearerTokenAuthenticator.PROPERTY_BEARER_TOKEN,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_TOKEN_URL,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_CLIENT_ID,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_CLIENT_SECRET,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_SCOPE,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_CLIENT_AUTH_METHOD,
+			OAuth2ClientCredentialsAuthenticator.PROPERTY_REFRESH_BEFORE);
+
+	protected static final Set<String> CACHE_LIMIT_PROPERTIES = Set.of(PROPERTY_CACHE_MAX_SIZE,
+			PROPERTY_CACHE_MAX_COUNT, PROPERTY_CACHE_MIN_AGE, PROPERTY_CACHE_HIGH_WATERMARK,
+			PROPERTY_CACHE_LOW_WATERMARK, PROPERTY_CACHE_MIN_FREE_SPACE, PROPERTY_CACHE_JANITOR_INTERVAL,
+			PROPERTY_CACHE_ORPHAN_MAX_AGE, PROPERTY_CACHE_MAX_AGE, PROPERTY_CACHE_STALE_WHILE_REVALIDATE,
+			PROPERTY_CACHE_STALE_IF_ERROR);
+
+	protected static final Set<String> FETCH_SCHEDULER_PROPERTIES = Set.of(PROPERTY_FETCH_MAX_CONCURRENT,
+			PROPERTY_FETCH_MAX_BACKGROUND_CONCURRENT, PROPERTY_FETCH_ACQUIRE_TIMEOUT);
+
+	protected static final Set<String> NEGATIVE_CACHE_PROPERTIES = Set.of(PROPERTY_USE_NEGATIVE_CACHE,
+			PROPERTY_NEGATIVE_CACHE_NOT_FOUND_TTL, PROPERTY_NEGATIVE_CACHE_FORBIDDEN_TTL,
+			PROPERTY_NEGATIVE_CACHE_SERVER_ERROR_TTL);
+
+	protected static final Set<String> MIRROR_PROPERTIES = Set.of(PROPERTY_ORIGIN, PROPERTY_MIRRORS,
+			PROPERTY_HEALTH_CHECK_URL, PROPERTY_HEALTH_CHECK_TIMEOUT, PROPERTY_HEALTH_CHECK_FAILURE_THRESHOLD,
+			PROPERTY_FAIL_FAST, PROPERTY_HEDGE_PERCENTILE, PROPERTY_HEDGE_MIN_DELAY);
+
 	// <-------------------- Implementation -------------------->
 	protected String origin;
 
@@ -179,13 +457,126 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 	protected String authenticationPwd;
 
-	protected String basicAuthentication;
+	// Replaced, not modified, by reconfigure()
+	protected volatile HashMap<String, String> moreHeaders;
 
-	protected HashMap<String, String> moreHeaders;
+	// null if no authentication
+	protected volatile HttpAuthenticator authenticator = null;
 
 	protected File cachedir = null;
 
-	protected FileCache fileCache = null;
+	// The directories of the cache, when it has several volumes
+	protected List<File> cacheVolumeDirs = new ArrayList<>();
+
+	protected HttpBlobCache fileCache = null;
+
+	// Prefix of the keys in the cache, when it is shared with the other
+	// providers (see HttpBlobCacheService). null if the cache is our own
+	protected String cacheNamespace = null;
+
+	protected volatile CacheJanitor cacheJanitor = null;
+
+	protected ScheduledFuture<?> cacheJanitorTask = null;
+
+	// Freshness of the cached files, and grace periods when they are stale.
+	// All in milliseconds
+	protected long cacheMaxAge = 0;
+
+	protected long cacheStaleWhileRevalidate = 0;
+
+	protected long cacheStaleIfError = 0;
+
+	// Digests of the files being revalidated in the background
+	protected final Map<String, Boolean> revalidating = new ConcurrentHashMap<>();
+
+	// The invalidations applied while downloads to the cache were in
+	// progress, by sequence number, so a download started before one of them
+	// does not put the old file back. Guarded by itself, like the two below
+	protected final NavigableMap<Long, CacheInvalidation> recentInvalidations = new TreeMap<>();
+
+	protected long invalidationSequence = 0;
+
+	// Number of downloads to the cache in progress, by the sequence number
+	// they started at
+	protected final NavigableMap<Long, Integer> cacheFetchesInProgress = new TreeMap<>();
+
+	// Interactive vs background fetches. Replaced by reconfigure(), a fetch
+	// gives its slot back to the scheduler it took it from
+	protected volatile FetchScheduler fetchScheduler = null;
+
+	// null if unlimited
+	protected volatile BandwidthLimiter backgroundBandwidthLimiter = null;
+
+	protected volatile Pattern backgroundThreadNamePattern = null;
+
+	// Buffers for downloadFile. Their size is the max. size of a download
+	// kept in memory, plus one (to detect larger files)
+	protected volatile BufferPool downloadBufferPool = null;
+
+	// URLs that recently failed. null if not used
+	protected volatile NegativeCache negativeCache = null;
+
+	// Background tasks (cache maintenance, ...)
+	protected ScheduledExecutorService scheduler = null;
+
+	// Asynchronous and background fetches (revalidation, ...)
+	protected ExecutorService fetchExecutor = null;
+
+	// createBlob does not wait for the remote server, see ResolveBlobMetadataWork
+	protected boolean deferMetadataResolution = false;
+
+	protected int metadataResolutionBatchSize;
+
+	protected long metadataResolutionInterval; // ms
+
+	// The blobs created in the current transaction, resolved after it commits
+	protected final ThreadLocal<List<PendingMetadata>> transactionPendingMetadata = new ThreadLocal<>();
+
+	// The origin and its mirrors, with their availability. null if there is
+	// no origin
+	protected volatile MirrorSet mirrorSet = null;
+
+	// Sends the requests to the mirrors, null if there is no origin
+	protected volatile RequestDispatcher requestDispatcher = null;
+
+	// The hedged requests, not on the fetch executor of the callers
+	protected ExecutorService hedgeExecutor = null;
+
+	protected int healthCheckTimeout;
+
+	// Requests to an unavailable origin fail immediately
+	protected boolean failFast = false;
+
+	// Length and checksums of the downloads are checked while they are read
+	protected boolean verifyDownloads = true;
+
+	// The digests of the blobs are hashes of their content
+	protected boolean verifyBlobDigest = false;
+
+	// Streams returned when the cache is not used
+	protected StreamTracker streamTracker = null;
+
+	// When HEAD fails or is not precise enough, GET the first bytes
+	protected boolean probeWithRange = true;
+
+	// A range of a file not in the cache is fetched from the remote server,
+	// and the whole file is cached in the background
+	protected boolean cacheOnRangeRequest = true;
+
+	// Where the most accessed files of the cache are saved, null if not used
+	protected File hotSetFile = null;
+
+	protected int hotSetSize;
+
+	// Not saved before the previous one was downloaded again, it would lose
+	// the files not downloaded yet
+	protected volatile boolean hotSetRewarmed = false;
+
+	// Sends our invalidations to the other nodes, null if not used
+	protected CacheInvalidationBroker invalidationBroker = null;
+
+	// Asks the other nodes before the origin, null if not used
+	protected PeerCache peerCache = null;
 
 	// <============================================================================>
 	// <============================ NON PUBLIC METHODS
@@ -196,8 +587,11 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 	 * URL
 	 */
 	protected String extractUrl(ManagedBlob blob) {
+		return extractUrl(blob.getKey());
+	}
+
+	protected String extractUrl(String key) {
 
-		String key = blob.getKey();
 		// strip prefix
 		int colon = key.indexOf(':');
 		if (colon >= 0 && key.substring(0, colon).equals(blobProviderId)) {
@@ -240,22 +634,72 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 			authenticationType = AUTH_NONE;
 		} else if (authenticationType.toLowerCase().equals(AUTH_BASIC.toLowerCase())) {
 			authenticationType = AUTH_BASIC;
-
-			String authString = authenticationLogin + ":" + authenticationPwd;
-			basicAuthentication = "Basic " + new String(Base64.getEncoder().encode(authString.getBytes()));
+		} else if (authenticationType.toLowerCase().equals(AUTH_BEARER.toLowerCase())) {
+			authenticationType = AUTH_BEARER;
+		} else if (authenticationType.toLowerCase().equals(AUTH_OAUTH2.toLowerCase())) {
+			authenticationType = AUTH_OAUTH2;
 		}
 
-		moreHeaders = new HashMap<String, String>();
+		HashMap<String, String> headers = new HashMap<String, String>();
 		if (!moreHeadersJson.isEmpty()) {
 			JSONArray array = new JSONArray(moreHeadersJson);
 			int max = array.length();
 			JSONObject obj;
 			for (int i = 0; i < max; ++i) {
 				obj = array.getJSONObject(i);
-				moreHeaders.put(obj.getString("key"), obj.getString("value"));
+				headers.put(obj.getString("key"), obj.getString("value"));
+			}
+		}
+		moreHeaders = headers;
+
+		verifyDownloads = getBooleanFromProperties(PROPERTY_VERIFY_DOWNLOADS, true);
+		verifyBlobDigest = getBooleanFromProperties(PROPERTY_VERIFY_BLOB_DIGEST, false);
+		probeWithRange = getBooleanFromProperties(PROPERTY_PROBE_WITH_RANGE, true);
+		cacheOnRangeRequest = getBooleanFromProperties(PROPERTY_CACHE_ON_RANGE_REQUEST, true);
+
+	}
+
+	/*
+	 * A custom authenticator class wins over the authentication type
+	 */
+	protected void setupAuthentication() throws IOException {
+		authenticator = newAuthenticator();
+	}
+
+	protected HttpAuthenticator newAuthenticator() throws IOException {
+
+		HttpAuthenticator auth;
+		String className = properties.get(PROPERTY_AUTHENTICATOR_CLASS);
+		if (StringUtils.isNotBlank(className)) {
+			try {
+				Class<?> klass = Thread.currentThread().getContextClassLoader().loadClass(className.trim());
+				auth = (HttpAuthenticator) klass.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new IOException("Cannot instantiate the authenticator " + className, e);
+			}
+		} else {
+			switch (authenticationType) {
+			case AUTH_BASIC:
+				auth = new BasicAuthenticator();
+				break;
+
+			case AUTH_BEARER:
+				auth = new BearerTokenAuthenticator();
+				break;
+
+			case AUTH_OAUTH2:
+				auth = new OAuth2ClientCredentialsAuthenticator();
+				break;
+
+			default:
+				auth = null;
 			}
 		}
 
+		if (auth != null) {
+			auth.initialize(properties, getScheduler(), command -> getFetchExecutor().execute(command));
+		}
+		return auth;
 	}
 
 	protected void setupCache() throws IOException {
@@ -265,167 +709,1637 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 		String str = properties.get(PROPERTY_USE_CACHE);
 		useCache = StringUtils.isNotBlank(str) && str.toLowerCase().equals("true");
 
-		if (useCache) {
+		if (useCache && getBooleanFromProperties(PROPERTY_SHARED_CACHE, false)) {
+			cacheNamespace = blobProviderId;
+			HttpBlobCacheService service = Framework.getService(HttpBlobCacheService.class);
+			fileCache = service.register(cacheNamespace, getSharedCacheWeight());
+			cacheJanitor = service.getJanitor();
+			setupCacheFreshness();
+		} else if (useCache) {
 			String name = StringUtils.replace(blobProviderId, " ", "") + "_cache";
-			cachedir = Framework.createTempFile(name, "");
-			cachedir.delete();
-			cachedir.mkdir();
-
-			long maxSize = getLongFromProperties(PROPERTY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_FILE_SIZE);
-			long maxCount = getLongFromProperties(PROPERTY_CACHE_MAX_COUNT, DEFAULT_CACHE_MAX_COUNT);
-			long minAge = getLongFromProperties(PROPERTY_CACHE_MIN_AGE, DEFAULT_CACHE_MIN_AGE);
+			List<CacheVolume> volumes = getCacheVolumes(name);
+			if (volumes.isEmpty()) {
+				cachedir = Framework.createTempFile(name, "");
+				cachedir.delete();
+				cachedir.mkdir();
+				volumes.add(new CacheVolume(cachedir, 0));
+			}
 
-			fileCache = new LRUFileCache(cachedir, maxSize, maxCount, minAge);
+			fileCache = new HttpBlobCache(volumes);
+			setupCacheLimits();
 
 			// be sure FileTracker won't steal our files!
-			FileEventTracker.registerProtectedPath(cachedir.getAbsolutePath());
+			for (CacheVolume volume : volumes) {
+				FileEventTracker.registerProtectedPath(volume.getDirectory().getAbsolutePath());
+			}
 		}
 	}
 
-	protected long getLongFromProperties(String key, long defaultValue) {
-
-		long value;
-		String str = properties.get(key);
+	protected int getSharedCacheWeight() {
+		return (int) getLongFromProperties(PROPERTY_SHARED_CACHE_WEIGHT, DEFAULT_SHARED_CACHE_WEIGHT);
+	}
 
-		try {
-			value = Long.parseLong(str);
-		} catch (NumberFormatException e) {
-			value = -1;
-		}
+	/*
+	 * The key of a digest in the cache, prefixed when the cache is shared
+	 */
+	protected String cacheKey(String digest) {
+		return HttpBlobCache.key(cacheNamespace, digest);
+	}
 
-		if (value <= 0) {
-			value = defaultValue;
-		}
+	/*
+	 * Our entries, the shared cache also has those of the other providers
+	 */
+	protected boolean isOwnCacheEntry(CacheEntry entry) {
+		return cacheNamespace == null || cacheNamespace.equals(HttpBlobCache.namespaceOf(entry.getKey()));
+	}
 
-		return value;
+	protected void setupCacheFreshness() {
+		cacheMaxAge = getLongFromProperties(PROPERTY_CACHE_MAX_AGE, DEFAULT_CACHE_MAX_AGE) * 1000;
+		cacheStaleWhileRevalidate = getLongFromProperties(PROPERTY_CACHE_STALE_WHILE_REVALIDATE,
+				DEFAULT_CACHE_STALE_WHILE_REVALIDATE) * 1000;
+		cacheStaleIfError = getLongFromProperties(PROPERTY_CACHE_STALE_IF_ERROR, DEFAULT_CACHE_STALE_IF_ERROR) * 1000;
 	}
 
 	/*
-	 * Just a centralization of adding the headers if needed.
+	 * Freshness and janitor of the cache. Called again by reconfigure(): the
+	 * janitor is replaced, the cached files are kept
 	 */
-	protected void addHeaders(HttpURLConnection connection, String urlStr) {
+	protected void setupCacheLimits() {
 
-		// No authentication type or not the original domain => Assume the url
-		// does not require authentication.
-		// Else => authentication
-		if (StringUtils.isNotBlank(origin) && urlStr.toLowerCase().startsWith(origin)) {
+		setupCacheFreshness();
+		if (cacheNamespace != null) {
+			// The limits and the janitor are those of the shared cache
+			return;
+		}
 
-			switch (authenticationType) {
-			case AUTH_BASIC:
-				connection.setRequestProperty("Authorization", basicAuthentication);
-				break;
+		List<CacheVolume> volumes = fileCache.getVolumes();
+		long maxSize = getLongFromProperties(PROPERTY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_FILE_SIZE);
+		if (StringUtils.isBlank(properties.get(PROPERTY_CACHE_MAX_SIZE))
+				&& volumes.stream().allMatch(v -> v.getMaxSize() > 0)) {
+			// The volumes define the size of the cache
+			maxSize = volumes.stream().mapToLong(CacheVolume::getMaxSize).sum();
+		}
+		long maxCount = getLongFromProperties(PROPERTY_CACHE_MAX_COUNT, DEFAULT_CACHE_MAX_COUNT);
+		long minAge = getLongFromProperties(PROPERTY_CACHE_MIN_AGE, DEFAULT_CACHE_MIN_AGE);
+		long high = getLongFromProperties(PROPERTY_CACHE_HIGH_WATERMARK, DEFAULT_CACHE_HIGH_WATERMARK);
+		long low = getLongFromProperties(PROPERTY_CACHE_LOW_WATERMARK, DEFAULT_CACHE_LOW_WATERMARK);
+		if (high > 100 || low >= high) {
+			log.warn("Invalid cache watermarks for blob provider " + blobProviderId + " (high: " + high + ", low: "
+					+ low + "), using the default values");
+			high = DEFAULT_CACHE_HIGH_WATERMARK;
+			low = DEFAULT_CACHE_LOW_WATERMARK;
+		}
+		long minFreeSpace = getLongFromProperties(PROPERTY_CACHE_MIN_FREE_SPACE, DEFAULT_CACHE_MIN_FREE_SPACE);
+		long interval = getLongFromProperties(PROPERTY_CACHE_JANITOR_INTERVAL, DEFAULT_CACHE_JANITOR_INTERVAL);
+		long orphanMaxAge = getLongFromProperties(PROPERTY_CACHE_ORPHAN_MAX_AGE, DEFAULT_CACHE_ORPHAN_MAX_AGE);
+
+		CacheJanitor previous = cacheJanitor;
+		CacheJanitor janitor = new CacheJanitor(fileCache, maxSize, maxCount, minAge, (int) high, (int) low,
+				minFreeSpace, orphanMaxAge);
+		if (previous != null) {
+			janitor.lastReport = previous.getLastReport();
+		}
+		cacheJanitor = janitor;
+		if (cacheJanitorTask != null) {
+			cacheJanitorTask.cancel(false);
+		}
+		cacheJanitorTask = getScheduler().scheduleWithFixedDelay(janitor, interval, interval, TimeUnit.SECONDS);
+		if (previous != null && janitor.isAboveHighWatermark()) {
+			// The limits were lowered
+			getScheduler().execute(janitor);
+		}
+	}
 
-			// . . . Other cases . . .
-			}
+	/*
+	 * [{"path": "/mnt/disk1/nuxeo", "maxSize": 100000000000}, ...]. Each
+	 * provider has its own subdirectory, so the paths can be shared
+	 */
+	protected List<CacheVolume> getCacheVolumes(String name) throws IOException {
+
+		List<CacheVolume> volumes = new ArrayList<>();
+		String json = properties.get(PROPERTY_CACHE_VOLUMES);
+		if (StringUtils.isBlank(json)) {
+			return volumes;
 		}
-		
-		connection.setRequestProperty("Accept", "*");
 
-		if (moreHeaders.size() > 0) {
-			for (Entry<String, String> entry : moreHeaders.entrySet()) {
-				connection.setRequestProperty(entry.getKey(), entry.getValue());
+		try {
+			JSONArray array = new JSONArray(json);
+			for (int i = 0; i < array.length(); i++) {
+				JSONObject obj = array.getJSONObject(i);
+				File dir = new File(obj.getString("path"), name);
+				volumes.add(new CacheVolume(dir, obj.optLong("maxSize", 0)));
+				cacheVolumeDirs.add(dir);
 			}
+		} catch (JSONException e) {
+			throw new IOException("Invalid \"" + PROPERTY_CACHE_VOLUMES + "\" for blob provider " + blobProviderId, e);
 		}
+
+		return volumes;
 	}
 
-	protected boolean isBasicAuthentication() {
-		return StringUtils.isNotBlank(authenticationType) && authenticationType.equals(AUTH_BASIC);
+	protected void setupScheduling() {
+
+		fetchScheduler = newFetchScheduler();
+		setupThrottling();
 	}
 
-	protected boolean isNoAuthentication() {
-		return StringUtils.isBlank(authenticationType) || authenticationType.equals(AUTH_NONE);
+	/*
+	 * Called again by reconfigure()
+	 */
+	protected FetchScheduler newFetchScheduler() {
+
+		int maxConcurrent = (int) getLongOrZeroFromProperties(PROPERTY_FETCH_MAX_CONCURRENT,
+				DEFAULT_FETCH_MAX_CONCURRENT);
+		int maxBackground = (int) getLongFromProperties(PROPERTY_FETCH_MAX_BACKGROUND_CONCURRENT,
+				DEFAULT_FETCH_MAX_BACKGROUND_CONCURRENT);
+		long acquireTimeout = getLongOrZeroFromProperties(PROPERTY_FETCH_ACQUIRE_TIMEOUT,
+				DEFAULT_FETCH_ACQUIRE_TIMEOUT);
+		return new FetchScheduler(maxConcurrent, maxBackground, acquireTimeout * 1000);
 	}
 
-	// <============================================================================>
-	// <============================== PUBLIC METHODS
-	// ==============================>
-	// <============================================================================>
+	/*
+	 * Called again by reconfigure(). The buffers of the previous pool are
+	 * dropped when released
+	 */
+	protected void setupThrottling() {
 
-	@Override
-	public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
-		super.initialize(blobProviderId, properties);
+		long maxBandwidth = getLongFromProperties(PROPERTY_BACKGROUND_MAX_BANDWIDTH, DEFAULT_BACKGROUND_MAX_BANDWIDTH);
+		backgroundBandwidthLimiter = maxBandwidth > 0 ? new BandwidthLimiter(maxBandwidth) : null;
 
-		try {
-			setupFromProperties();
-			setupCache();
-		} catch (JSONException e) {
-			throw new IOException("Failed to load extra headers from the configuration", e);
+		int memoryThreshold = (int) Math.min(Integer.MAX_VALUE - 8,
+				getLongFromProperties(PROPERTY_DOWNLOAD_MEMORY_THRESHOLD, DEFAULT_DOWNLOAD_MEMORY_THRESHOLD));
+		downloadBufferPool = new BufferPool(memoryThreshold + 1, DOWNLOAD_MAX_POOLED_BUFFERS);
+
+		String pattern = properties.get(PROPERTY_BACKGROUND_THREAD_NAME_PATTERN);
+		backgroundThreadNamePattern = Pattern
+				.compile(StringUtils.isBlank(pattern) ? DEFAULT_BACKGROUND_THREAD_NAME_PATTERN : pattern.trim());
+	}
+
+	/*
+	 * Forced priority, or derived from the calling thread
+	 */
+	protected FetchPriority getPriority() {
+
+		FetchPriority priority = FetchPriority.getForced();
+		if (priority != null) {
+			return priority;
 		}
+
+		return backgroundThreadNamePattern.matcher(Thread.currentThread().getName()).matches()
+				? FetchPriority.BACKGROUND
+				: FetchPriority.INTERACTIVE;
 	}
 
-	@Override
-	public void close() {
+	protected InputStream throttle(InputStream stream, FetchPriority priority) {
 
-		if (fileCache != null) {
-			fileCache.clear();
+		if (priority == FetchPriority.BACKGROUND && backgroundBandwidthLimiter != null) {
+			return backgroundBandwidthLimiter.wrap(stream);
 		}
 
-		if (cachedir != null) {
-			try {
-				FileUtils.deleteDirectory(cachedir);
-			} catch (IOException e) {
-				throw new NuxeoException(e);
-			}
+		return stream;
+	}
+
+	protected void setupNegativeCache() {
+
+		if (getBooleanFromProperties(PROPERTY_USE_NEGATIVE_CACHE, true)) {
+			// 0 to not remember a class of errors
+			long notFoundTtl = getLongOrZeroFromProperties(PROPERTY_NEGATIVE_CACHE_NOT_FOUND_TTL,
+					DEFAULT_NEGATIVE_CACHE_NOT_FOUND_TTL);
+			long forbiddenTtl = getLongOrZeroFromProperties(PROPERTY_NEGATIVE_CACHE_FORBIDDEN_TTL,
+					DEFAULT_NEGATIVE_CACHE_FORBIDDEN_TTL);
+			long serverErrorTtl = getLongOrZeroFromProperties(PROPERTY_NEGATIVE_CACHE_SERVER_ERROR_TTL,
+					DEFAULT_NEGATIVE_CACHE_SERVER_ERROR_TTL);
+			negativeCache = new NegativeCache(notFoundTtl, forbiddenTtl, serverErrorTtl);
+		} else {
+			negativeCache = null;
 		}
 	}
 
-	@Override
-	public Blob readBlob(BlobInfo blobInfo) throws IOException {
-		return new SimpleManagedBlob(blobInfo);
+	protected void setupMetadataResolution() {
+
+		deferMetadataResolution = getBooleanFromProperties(PROPERTY_DEFER_METADATA_RESOLUTION, false);
+		metadataResolutionBatchSize = (int) getLongFromProperties(PROPERTY_METADATA_RESOLUTION_BATCH_SIZE,
+				DEFAULT_METADATA_RESOLUTION_BATCH_SIZE);
+		metadataResolutionInterval = getLongFromProperties(PROPERTY_METADATA_RESOLUTION_INTERVAL,
+				DEFAULT_METADATA_RESOLUTION_INTERVAL) * 1000;
+	}
+
+	/*
+	 * The origin and its mirrors. Connections are opened in the background,
+	 * initialize does not wait for the remote servers
+	 */
+	protected void setupOriginHealth() {
+
+		int prewarm = (int) getLongFromProperties(PROPERTY_PREWARM_CONNECTIONS, DEFAULT_PREWARM_CONNECTIONS);
+		long interval = getLongFromProperties(PROPERTY_HEALTH_CHECK_INTERVAL, DEFAULT_HEALTH_CHECK_INTERVAL);
+
+		mirrorSet = newMirrorSet();
+		requestDispatcher = newRequestDispatcher(mirrorSet);
+		if (mirrorSet == null) {
+			if (prewarm > 0 || interval > 0 || failFast || StringUtils.isNotBlank(properties.get(PROPERTY_MIRRORS))) {
+				log.warn("Blob provider " + blobProviderId
+						+ ": mirrors, connection pre-warming and health check require the \"" + PROPERTY_ORIGIN
+						+ "\" property");
+			}
+			return;
+		}
+
+		if (prewarm > 0) {
+			for (MirrorSet.Mirror mirror : mirrorSet.getMirrors()) {
+				getScheduler().execute(() -> prewarmConnections(mirror.getHealth(), prewarm));
+			}
+		}
+		if (interval > 0) {
+			// Probes the current mirrors, they can be changed by reconfigure()
+			getScheduler().scheduleWithFixedDelay(() -> {
+				MirrorSet mirrors = mirrorSet;
+				if (mirrors != null) {
+					for (MirrorSet.Mirror mirror : mirrors.getMirrors()) {
+						getFetchExecutor().execute(() -> probe(mirror.getHealth()));
+					}
+				}
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+	/*
+	 * null if there is no origin
+	 */
+	protected MirrorSet newMirrorSet() {
+
+		failFast = getBooleanFromProperties(PROPERTY_FAIL_FAST, false);
+		if (StringUtils.isBlank(origin)) {
+			return null;
+		}
+
+		String originUrl = properties.get(PROPERTY_ORIGIN).trim();
+		List<String> baseUrls = new ArrayList<>();
+		baseUrls.add(originUrl);
+		String mirrors = properties.get(PROPERTY_MIRRORS);
+		if (StringUtils.isNotBlank(mirrors)) {
+			for (String mirror : mirrors.split(",")) {
+				if (StringUtils.isNotBlank(mirror)) {
+					baseUrls.add(mirror.trim());
+				}
+			}
+		}
+
+		// The health check URL is given for the origin, same path on the
+		// mirrors
+		String probeUrl = properties.get(PROPERTY_HEALTH_CHECK_URL);
+		if (StringUtils.isBlank(probeUrl) || !probeUrl.toLowerCase().startsWith(origin)) {
+			probeUrl = originUrl;
+		}
+		String probePath = probeUrl.substring(originUrl.length());
+
+		int threshold = (int) getLongFromProperties(PROPERTY_HEALTH_CHECK_FAILURE_THRESHOLD,
+				DEFAULT_HEALTH_CHECK_FAILURE_THRESHOLD);
+		healthCheckTimeout = (int) getLongFromProperties(PROPERTY_HEALTH_CHECK_TIMEOUT, DEFAULT_HEALTH_CHECK_TIMEOUT);
+		List<MirrorSet.Mirror> list = new ArrayList<>();
+		for (String baseUrl : baseUrls) {
+			list.add(new MirrorSet.Mirror(baseUrl,
+					new OriginHealth(baseUrl.toLowerCase(), baseUrl + probePath, threshold)));
+		}
+		int hedgePercentile = (int) getLongFromProperties(PROPERTY_HEDGE_PERCENTILE, DEFAULT_HEDGE_PERCENTILE);
+		if (hedgePercentile >= 100) {
+			log.warn("Invalid hedge percentile for blob provider " + blobProviderId + ": " + hedgePercentile
+					+ ", hedging is disabled");
+			hedgePercentile = 0;
+		}
+		long hedgeMinDelay = getLongFromProperties(PROPERTY_HEDGE_MIN_DELAY, DEFAULT_HEDGE_MIN_DELAY);
+		return new MirrorSet(list, hedgePercentile, hedgeMinDelay);
+	}
+
+	/*
+	 * Resolves the host, then probes the server with concurrent requests, so
+	 * each one opens (and handshakes) its own connection, left in the JDK
+	 * keep-alive pool for the first user requests.
+	 */
+	protected void prewarmConnections(OriginHealth health, int count) {
+
+		long start = System.currentTimeMillis();
+		try {
+			InetAddress.getAllByName(new URL(health.getProbeUrl()).getHost());
+		} catch (IOException e) {
+			health.recordFailure(e.toString());
+			log.warn("Blob provider " + blobProviderId + ": cannot resolve " + health.getProbeUrl() + ": "
+					+ e.getMessage());
+			return;
+		}
+
+		// Not joined: a fetch thread waiting for the others could starve the
+		// pool
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+		for (int i = 0; i < count; i++) {
+			futures[i] = CompletableFuture.runAsync(() -> probe(health), getFetchExecutor());
+		}
+		CompletableFuture.allOf(futures)
+				.whenComplete((v, e) -> log.info("Blob provider " + blobProviderId + ": pre-warmed " + count
+						+ " connections to " + health.getBaseUrl() + " in " + (System.currentTimeMillis() - start)
+						+ "ms, server " + (health.isAvailable() ? "available" : "not available")));
+	}
+
+	/*
+	 * A lightweight HEAD request, without authentication. The response is
+	 * fully read, so the connection stays open for the next request.
+	 */
+	protected void probe(OriginHealth health) {
+
+		String probeUrl = health.getProbeUrl();
+		long start = System.currentTimeMillis();
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(probeUrl).openConnection();
+			connection.setRequestMethod("HEAD");
+			connection.setConnectTimeout(healthCheckTimeout);
+			connection.setReadTimeout(healthCheckTimeout);
+
+			int responseCode = connection.getResponseCode();
+			try (InputStream in = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+				if (in != null) {
+					IOUtils.consume(in);
+				}
+			}
+
+			if (responseCode >= 500) {
+				health.recordFailure("HTTP " + responseCode);
+			} else {
+				health.recordSuccess(System.currentTimeMillis() - start);
+			}
+		} catch (IOException e) {
+			health.recordFailure(e.toString());
+		}
+	}
+
+	/*
+	 * Without cache (or when no cache volume is available), the callers read
+	 * the remote data directly: their streams hold connections, they are
+	 * tracked
+	 */
+	protected void setupStreamTracking() {
+
+		long idleTimeout = getLongFromProperties(PROPERTY_STREAM_IDLE_TIMEOUT, DEFAULT_STREAM_IDLE_TIMEOUT);
+		long maxDuration = getLongFromProperties(PROPERTY_STREAM_MAX_DURATION, DEFAULT_STREAM_MAX_DURATION);
+		boolean leakDetection = getBooleanFromProperties(PROPERTY_STREAM_LEAK_DETECTION, false);
+		streamTracker = new StreamTracker(blobProviderId, idleTimeout * 1000, maxDuration * 1000, leakDetection);
+		getScheduler().scheduleWithFixedDelay(streamTracker::reap, STREAM_REAPER_INTERVAL, STREAM_REAPER_INTERVAL,
+				TimeUnit.SECONDS);
+	}
+
+	protected void setupInvalidation() {
+
+		if (!getBooleanFromProperties(PROPERTY_CLUSTER_INVALIDATION, true)) {
+			return;
+		}
+		CacheInvalidationBroker broker = new CacheInvalidationBroker(blobProviderId, this::applyInvalidation);
+		if (broker.start()) {
+			invalidationBroker = broker;
+		} else {
+			log.debug("No pub/sub service, the cache invalidations of blob provider " + blobProviderId
+					+ " are local to this node");
+		}
+	}
+
+	/*
+	 * Same "peers" on all the nodes: each one finds itself in the list from
+	 * the port, unless "peerSelf" is set
+	 */
+	protected void setupPeerCache() throws IOException {
+
+		String peers = properties.get(PROPERTY_PEERS);
+		if (StringUtils.isBlank(peers)) {
+			return;
+		}
+		if (fileCache == null) {
+			log.warn("Blob provider " + blobProviderId + ": \"" + PROPERTY_PEERS + "\" requires the cache");
+			return;
+		}
+		// Else anyone reaching the port could make us download with our
+		// credentials
+		String secret = properties.get(PROPERTY_PEER_SECRET);
+		if (StringUtils.isBlank(secret)) {
+			log.error("Blob provider " + blobProviderId + ": \"" + PROPERTY_PEERS + "\" requires \""
+					+ PROPERTY_PEER_SECRET + "\", the cache is not shared with the peers");
+			return;
+		}
+
+		int port = (int) getLongFromProperties(PROPERTY_PEER_PORT, DEFAULT_PEER_PORT);
+		int timeout = (int) getLongFromProperties(PROPERTY_PEER_TIMEOUT, DEFAULT_PEER_TIMEOUT) * 1000;
+		String bindAddress = StringUtils.trimToNull(properties.get(PROPERTY_PEER_BIND_ADDRESS));
+		PeerCache peerTier = new PeerCache(blobProviderId, this::getForPeer, secret, timeout);
+		peerTier.start(bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+		peerTier.setPeers(Arrays.asList(StringUtils.split(peers, ",")),
+				StringUtils.trimToNull(properties.get(PROPERTY_PEER_SELF)));
+		peerCache = peerTier;
+		log.info("Blob provider " + blobProviderId + ": sharing the cache with the peers " + peers + " as "
+				+ peerTier.getSelf());
+	}
+
+	/*
+	 * Called by the other nodes, for the digests we own: a fresh cached file,
+	 * else downloaded from the origin (never from another node, no loop
+	 * whatever their list of peers)
+	 */
+	protected CacheEntry getForPeer(String digest, String url) throws IOException {
+
+		CacheEntry entry = fileCache.getEntry(cacheKey(digest));
+		if (entry != null && isFresh(entry)) {
+			return entry;
+		}
+		if (url == null) {
+			return null;
+		}
+		MirrorSet mirrors = mirrorSet;
+		if (mirrors == null || mirrors.find(url) == null) {
+			log.warn("Blob provider " + blobProviderId + ": a peer asked for " + url
+					+ ", which is not served by the origin");
+			return null;
+		}
+		if (!isDigestOf(digest, url, entry)) {
+			log.warn("Blob provider " + blobProviderId + ": a peer asked for " + url + " with the digest " + digest
+					+ ", which does not match");
+			return null;
+		}
+		fetchIntoCache(blobFor(url, digest), digest, entry, false);
+		return fileCache.peekEntry(cacheKey(digest));
+	}
+
+	/*
+	 * The default digest (the MD5 of the URL), the digest of a file already
+	 * cached from this URL, or a hash of the content, checked while it is
+	 * downloaded
+	 */
+	protected boolean isDigestOf(String digest, String url, CacheEntry entry) {
+		return digest.equals(DigestUtils.md5Hex(url)) || (entry != null && url.equals(entry.getUrl()))
+				|| !getBlobChecksums(blobFor(url, digest)).isEmpty();
+	}
+
+	/*
+	 * The hot set is saved periodically and when the provider is closed, and
+	 * downloaded again, in the background, when it starts
+	 */
+	protected void setupHotSet() {
+
+		hotSetSize = (int) getLongFromProperties(PROPERTY_HOT_SET_SIZE, DEFAULT_HOT_SET_SIZE);
+		if (hotSetSize <= 0) {
+			return;
+		}
+		if (fileCache == null) {
+			log.warn("Blob provider " + blobProviderId + ": \"" + PROPERTY_HOT_SET_SIZE + "\" requires the cache");
+			return;
+		}
+
+		String path = properties.get(PROPERTY_HOT_SET_FILE);
+		hotSetFile = StringUtils.isNotBlank(path) ? new File(path.trim())
+				: new File(new File(Environment.getDefault().getData(), "httpblobprovider"),
+						StringUtils.replace(blobProviderId, " ", "") + "-hotset.txt");
+
+		long interval = getLongFromProperties(PROPERTY_HOT_SET_INTERVAL, DEFAULT_HOT_SET_INTERVAL);
+		getScheduler().scheduleWithFixedDelay(this::saveHotSet, interval, interval, TimeUnit.SECONDS);
+		getScheduler().execute(this::rewarmHotSet);
+	}
+
+	/*
+	 * Hottest first, as long as they fit below the low watermark of the
+	 * cache. Their accesses are carried over (halved, so the files not used
+	 * anymore cool down), the next hot sets keep them.
+	 */
+	protected void rewarmHotSet() {
+
+		List<HotSet.Item> items;
+		try {
+			items = HotSet.read(hotSetFile);
+		} catch (IOException e) {
+			log.warn("Blob provider " + blobProviderId + ": cannot read the hot set " + hotSetFile + ": "
+					+ e.getMessage());
+			hotSetRewarmed = true;
+			return;
+		}
+		if (items.isEmpty()) {
+			hotSetRewarmed = true;
+			return;
+		}
+
+		CacheJanitor janitor = cacheJanitor;
+		long budget = janitor.percentOf(getCacheQuota(), janitor.lowWatermark);
+		long total = 0;
+		List<ManagedBlob> blobs = new ArrayList<>();
+		Map<String, Long> hits = new HashMap<>();
+		for (HotSet.Item item : items) {
+			total += Math.max(0, item.length);
+			if (total > budget || blobs.size() >= janitor.maxCount) {
+				break;
+			}
+			blobs.add(blobFor(item.url, item.digest));
+			hits.put(item.digest, item.hits / 2);
+		}
+
+		int concurrency = (int) getLongFromProperties(PROPERTY_HOT_SET_WARM_CONCURRENCY,
+				DEFAULT_HOT_SET_WARM_CONCURRENCY);
+		log.info("Blob provider " + blobProviderId + ": warming the cache with the " + blobs.size() + " files of "
+				+ hotSetFile);
+		warmCache(blobs, concurrency).whenComplete((report, e) -> {
+			hits.forEach((digest, count) -> {
+				CacheEntry entry = fileCache.peekEntry(cacheKey(digest));
+				if (entry != null) {
+					entry.addHits(count);
+				}
+			});
+			hotSetRewarmed = true;
+		});
+	}
+
+	/**
+	 * Saves the most accessed files of the cache, to download them again
+	 * after a restart. Done periodically and when the provider is closed.
+	 *
+	 * @return the number of files saved, -1 if the hot set is not used, is
+	 *         still being downloaded after the start, or could not be saved
+	 * @since 2023.1
+	 */
+	public int saveHotSet() {
+
+		if (hotSetFile == null || fileCache == null || !hotSetRewarmed) {
+			return -1;
+		}
+		List<HotSet.Item> items = HotSet.select(getCacheEntries(), hotSetSize);
+		try {
+			HotSet.write(hotSetFile, items);
+			return items.size();
+		} catch (IOException e) {
+			log.warn("Blob provider " + blobProviderId + ": cannot save the hot set " + hotSetFile + ": "
+					+ e.getMessage());
+			return -1;
+		}
+	}
+
+	/*
+	 * The blobs created in a transaction are resolved once it commits, one
+	 * work per batch
+	 */
+	protected void queueMetadataResolution(PendingMetadata pending) {
+		if (!TransactionHelper.isTransactionActive()) {
+			scheduleMetadataResolution(List.of(pending), 0);
+			return;
+		}
+		List<PendingMetadata> created = transactionPendingMetadata.get();
+		if (created == null) {
+			List<PendingMetadata> newCreated = new ArrayList<>();
+			TransactionHelper.registerSynchronization(new Synchronization() {
+
+				@Override
+				public void beforeCompletion() {
+					// Nothing to do
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					transactionPendingMetadata.remove();
+					if (status == Status.STATUS_COMMITTED) {
+						scheduleMetadataResolution(newCreated, 0);
+					}
+				}
+			});
+			transactionPendingMetadata.set(newCreated);
+			created = newCreated;
+		}
+		created.add(pending);
+	}
+
+	/**
+	 * Schedules the resolution of the metadata of the blobs, by batches. A
+	 * retry (<code>attempt</code> &gt; 0) is scheduled after the
+	 * "metadataResolutionInterval".
+	 *
+	 * @since 2023.1
+	 */
+	protected void scheduleMetadataResolution(List<PendingMetadata> pending, int attempt) {
+		long notBefore = attempt == 0 ? 0 : System.currentTimeMillis() + metadataResolutionInterval;
+		int batchSize = metadataResolutionBatchSize;
+		for (int i = 0; i < pending.size(); i += batchSize) {
+			List<PendingMetadata> batch = pending.subList(i, Math.min(i + batchSize, pending.size()));
+			scheduleWorkAt(new ResolveBlobMetadataWork(blobProviderId, batch, attempt, notBefore), notBefore);
+		}
+	}
+
+	/*
+	 * The WorkManager cannot delay a work: the scheduler of the provider
+	 * schedules it when it is due, so no worker thread waits for it
+	 */
+	protected void scheduleWorkAt(Work work, long notBefore) {
+		long delay = notBefore - System.currentTimeMillis();
+		if (delay <= 0) {
+			scheduleWork(work);
+			return;
+		}
+		try {
+			getScheduler().schedule(() -> scheduleWork(work), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			log.warn("Blob provider " + blobProviderId + " is closed, cannot schedule " + work.getTitle());
+		}
+	}
+
+	protected void scheduleWork(Work work) {
+		Framework.getService(WorkManager.class).schedule(work);
+	}
+
+	protected ThreadFactory newThreadFactory(String name) {
+		String threadName = "Nuxeo-HttpBlobProvider-" + blobProviderId + "-" + name;
+		return r -> {
+			Thread t = new Thread(r, threadName);
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	protected synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory("scheduler"));
+		}
+		return scheduler;
+	}
+
+	protected synchronized ExecutorService getHedgeExecutor() {
+		if (hedgeExecutor == null) {
+			hedgeExecutor = newHedgeExecutor();
+		}
+		return hedgeExecutor;
+	}
+
+	/*
+	 * Unbounded: the number of hedged requests is bounded by the number of
+	 * fetches
+	 */
+	protected ExecutorService newHedgeExecutor() {
+
+		if (getBooleanFromProperties(PROPERTY_USE_VIRTUAL_THREADS, true)) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Platform threads below
+			}
+		}
+		return Executors.newCachedThreadPool(newThreadFactory("hedge"));
+	}
+
+	protected synchronized ExecutorService getFetchExecutor() {
+		if (fetchExecutor == null) {
+			fetchExecutor = newFetchExecutor();
+		}
+		return fetchExecutor;
+	}
+
+	/*
+	 * One virtual thread per fetch when the JVM supports it (Java 21+), so
+	 * thousands of concurrent transfers don't need thousands of platform
+	 * threads. Else a bounded pool of platform threads.
+	 */
+	protected ExecutorService newFetchExecutor() {
+
+		if (getBooleanFromProperties(PROPERTY_USE_VIRTUAL_THREADS, true)) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				log.debug("Virtual threads not available, using platform threads for blob provider " + blobProviderId);
+			}
+		}
+
+		int maxThreads = (int) getLongFromProperties(PROPERTY_FETCH_MAX_THREADS, DEFAULT_FETCH_MAX_THREADS);
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), newThreadFactory("fetch"));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	protected long getLongFromProperties(String key, long defaultValue) {
+
+		long value;
+		String str = properties.get(key);
+
+		try {
+			value = Long.parseLong(str);
+		} catch (NumberFormatException e) {
+			value = -1;
+		}
+
+		if (value <= 0) {
+			value = defaultValue;
+		}
+
+		return value;
+	}
+
+	/*
+	 * For the properties where 0 has a meaning ("not cached", "no timeout"):
+	 * only a missing, invalid or negative value gives the default
+	 */
+	protected long getLongOrZeroFromProperties(String key, long defaultValue) {
+
+		String str = properties.get(key);
+		if (StringUtils.isBlank(str)) {
+			return defaultValue;
+		}
+
+		try {
+			long value = Long.parseLong(str.trim());
+			return value < 0 ? defaultValue : value;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	protected boolean getBooleanFromProperties(String key, boolean defaultValue) {
+
+		String str = properties.get(key);
+		if (StringUtils.isBlank(str)) {
+			return defaultValue;
+		}
+
+		return str.trim().toLowerCase().equals("true");
+	}
+
+	/*
+	 * Centralize the creation of a connection: fails immediately if the URL
+	 * recently failed (see NegativeCache), and adds the headers.
+	 */
+	protected HttpURLConnection openConnection(String urlStr, String method) throws IOException {
+		return openConnection(urlStr, urlStr, method);
+	}
+
+	/*
+	 * The negative cache and the headers depend on the URL of the blob, the
+	 * connection is opened to the target URL (the same URL on a mirror)
+	 */
+	protected HttpURLConnection openConnection(String urlStr, String targetUrl, String method) throws IOException {
+
+		NegativeCache failures = negativeCache;
+		if (failures != null) {
+			NegativeCache.Entry failure = failures.get(urlStr);
+			if (failure != null) {
+				throw httpError(urlStr, failure.status);
+			}
+		}
+
+		HttpURLConnection connection = newConnection(new URL(targetUrl));
+		if (method != null) {
+			connection.setRequestMethod(method);
+		}
+
+		addHeaders(connection, urlStr);
+
+		return connection;
+	}
+
+	/*
+	 * Not sent yet
+	 */
+	protected HttpURLConnection newConnection(URL url) throws IOException {
+		return (HttpURLConnection) url.openConnection();
+	}
+
+	/*
+	 * Sends the request and reads the response code (available with
+	 * connection.getResponseCode() without blocking).
+	 * <p>
+	 * When the URL is served by the origin, the request goes through the
+	 * RequestDispatcher: to one of the mirrors, to another one if it fails,
+	 * and hedged when enabled.
+	 */
+	protected HttpURLConnection sendRequest(String urlStr, String method,
+			RequestDispatcher.RequestCustomizer customizer) throws IOException {
+
+		RequestDispatcher dispatcher = requestDispatcher;
+		MirrorSet.Mirror mirror = dispatcher == null ? null : dispatcher.getMirrors().find(urlStr);
+		if (mirror == null) {
+			HttpURLConnection connection = openConnection(urlStr, method);
+			if (customizer != null) {
+				customizer.customize(connection);
+			}
+			getResponseCode(connection, urlStr);
+			return connection;
+		}
+
+		if (failFast && !dispatcher.getMirrors().isAnyAvailable()) {
+			OriginHealth health = mirror.getHealth();
+			throw new IOException("The remote server " + health.getBaseUrl() + " is not available ("
+					+ health.getLastError() + ")");
+		}
+
+		HttpURLConnection connection = dispatcher.send(urlStr, method, customizer);
+		checkResponseCode(connection.getResponseCode(), urlStr);
+		return connection;
+	}
+
+	protected RequestDispatcher newRequestDispatcher(MirrorSet mirrors) {
+		if (mirrors == null) {
+			return null;
+		}
+		return new RequestDispatcher(mirrors, new RequestDispatcher.Transport() {
+
+			@Override
+			public HttpURLConnection open(String url, String targetUrl, String method) throws IOException {
+				return openConnection(url, targetUrl, method);
+			}
+
+			@Override
+			public int send(HttpURLConnection connection) throws IOException {
+				return readResponseCode(connection);
+			}
+		}, command -> getHedgeExecutor().execute(command));
+	}
+
+	/*
+	 * Sends the request if not already done and returns the response code.
+	 * Errors are remembered in the negative cache, except a 401 on an
+	 * authenticated request: the credentials are dropped, and the next request
+	 * will get new ones.
+	 */
+	protected int getResponseCode(HttpURLConnection connection, String urlStr) throws IOException {
+
+		int responseCode = readResponseCode(connection);
+		checkResponseCode(responseCode, urlStr);
+
+		return responseCode;
+	}
+
+	protected int readResponseCode(HttpURLConnection connection) throws IOException {
+
+		FetchTracing.trace("connect", () -> {
+			FetchTracing.putAttribute(FetchTracing.ATTR_HOST, connection.getURL().getHost());
+			connection.connect();
+			return null;
+		});
+		return FetchTracing.trace("waitResponse", () -> {
+			int code = connection.getResponseCode();
+			FetchTracing.putAttribute(FetchTracing.ATTR_STATUS_CODE, code);
+			return code;
+		});
+	}
+
+	protected void checkResponseCode(int responseCode, String urlStr) {
+
+		HttpAuthenticator auth = authenticator;
+		NegativeCache failures = negativeCache;
+		if (responseCode == HttpURLConnection.HTTP_UNAUTHORIZED && auth != null && isAuthenticated(urlStr)) {
+			auth.invalidate();
+		} else if (responseCode >= 400 && failures != null) {
+			failures.recordFailure(urlStr, responseCode);
+		}
+	}
+
+	/*
+	 * Same exceptions as the ones thrown by HttpURLConnection#getInputStream
+	 */
+	protected IOException httpError(String urlStr, int responseCode) {
+
+		if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_GONE) {
+			return new FileNotFoundException(urlStr);
+		}
+
+		return new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + urlStr);
+	}
+
+	/*
+	 * No authentication or not the original domain (or one of its mirrors) =>
+	 * Assume the url does not require authentication.
+	 */
+	protected boolean isAuthenticated(String urlStr) {
+		return authenticator != null && mirrorSet != null && mirrorSet.find(urlStr) != null;
+	}
+
+	/*
+	 * Just a centralization of adding the headers if needed.
+	 */
+	protected void addHeaders(HttpURLConnection connection, String urlStr) throws IOException {
+
+		HttpAuthenticator auth = authenticator;
+		if (auth != null && isAuthenticated(urlStr)) {
+			String authorization = auth.getAuthorizationHeader();
+			if (authorization != null) {
+				connection.setRequestProperty("Authorization", authorization);
+			}
+		}
+
+		connection.setRequestProperty("Accept", "*");
+
+		if (moreHeaders.size() > 0) {
+			for (Entry<String, String> entry : moreHeaders.entrySet()) {
+				connection.setRequestProperty(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	protected boolean isBasicAuthentication() {
+		return StringUtils.isNotBlank(authenticationType) && authenticationType.equals(AUTH_BASIC);
+	}
+
+	protected boolean isNoAuthentication() {
+		return StringUtils.isBlank(authenticationType) || authenticationType.equals(AUTH_NONE);
+	}
+
+	// <============================================================================>
+	// <============================== PUBLIC METHODS
+	// ==============================>
+	// <============================================================================>
+
+	@Override
+	public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
+		super.initialize(blobProviderId, properties);
+
+		try {
+			setupFromProperties();
+			setupAuthentication();
+			setupCache();
+			setupScheduling();
+			setupNegativeCache();
+			setupMetadataResolution();
+			setupOriginHealth();
+			setupStreamTracking();
+			setupHotSet();
+			setupInvalidation();
+			setupPeerCache();
+		} catch (JSONException e) {
+			throw new IOException("Failed to load extra headers from the configuration", e);
+		}
+	}
+
+	@Override
+	public void close() {
+
+		// Before the cache is emptied
+		if (hotSetFile != null) {
+			saveHotSet();
+		}
+
+		if (authenticator != null) {
+			authenticator.close();
+		}
+
+		if (invalidationBroker != null) {
+			invalidationBroker.close();
+			invalidationBroker = null;
+		}
+
+		if (peerCache != null) {
+			peerCache.close();
+			peerCache = null;
+		}
+
+		if (streamTracker != null) {
+			streamTracker.abortAll("blob provider closed");
+		}
+
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+
+		if (fetchExecutor != null) {
+			fetchExecutor.shutdownNow();
+			fetchExecutor = null;
+		}
+
+		if (hedgeExecutor != null) {
+			hedgeExecutor.shutdownNow();
+			hedgeExecutor = null;
+		}
+
+		if (cacheNamespace != null) {
+			// Our files are evicted first from now on, the cache is not ours to
+			// empty
+			Framework.getService(HttpBlobCacheService.class).unregister(cacheNamespace);
+		} else if (fileCache != null) {
+			fileCache.clear();
+		}
+
+		if (cachedir != null) {
+			try {
+				FileUtils.deleteDirectory(cachedir);
+			} catch (IOException e) {
+				throw new NuxeoException(e);
+			}
+		}
+
+		// The index of the cache is in memory, the files would be orphans
+		for (File dir : cacheVolumeDirs) {
+			try {
+				FileUtils.deleteDirectory(dir);
+			} catch (IOException e) {
+				log.warn("Cannot delete the cache directory " + dir + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Applies new properties without re-initializing the provider: the cached
+	 * files, the pending metadata, the open streams and the connections kept
+	 * alive by the JDK are kept. Only what changed is rebuilt:
+	 * <ul>
+	 * <li>Authentication: a new authenticator replaces the previous one (which
+	 * is closed), and the recent 401/403 failures are forgotten</li>
+	 * <li>Headers, flags, bandwidth, thread name pattern</li>
+	 * <li>Fetch limits: a new scheduler, the running fetches give their slot
+	 * back to the previous one</li>
+	 * <li>Cache limits and freshness: a new janitor is scheduled</li>
+	 * <li>Negative cache: rebuilt, so emptied</li>
+	 * <li>Origin and mirrors: rebuilt, their health is reset</li>
+	 * </ul>
+	 * The properties of {@link #RESTART_PROPERTIES} cannot be changed this way.
+	 *
+	 * @param newProperties all the properties of the provider, not only the
+	 *            changed ones
+	 * @return the names of the properties that changed
+	 * @throws NuxeoException if one of them is in
+	 *             {@link #RESTART_PROPERTIES}. Nothing is changed then
+	 * @throws IOException if the extra headers or the authenticator cannot be
+	 *             set up. Nothing is changed then
+	 * @since 2023.1
+	 */
+	public synchronized Set<String> reconfigure(Map<String, String> newProperties) throws IOException {
+
+		Set<String> changed = new TreeSet<>();
+		Set<String> keys = new HashSet<>(properties.keySet());
+		keys.addAll(newProperties.keySet());
+		for (String key : keys) {
+			if (!Objects.equals(StringUtils.trimToNull(properties.get(key)),
+					StringUtils.trimToNull(newProperties.get(key)))) {
+				changed.add(key);
+			}
+		}
+		if (changed.isEmpty()) {
+			return changed;
+		}
+		List<String> restart = changed.stream().filter(RESTART_PROPERTIES::contains).collect(Collectors.toList());
+		if (!restart.isEmpty()) {
+			throw new NuxeoException(
+					"Blob provider " + blobProviderId + " must be re-initialized to change " + restart);
+		}
+
+		// A custom authenticator may use any property
+		boolean newAuth = changed.stream().anyMatch(AUTHENTICATION_PROPERTIES::contains)
+				|| StringUtils.isNotBlank(newProperties.get(PROPERTY_AUTHENTICATOR_CLASS));
+
+		// Whatever fails, nothing is changed
+		Map<String, String> previous = properties;
+		HttpAuthenticator auth = null;
+		properties = newProperties;
+		try {
+			setupFromProperties();
+			if (newAuth) {
+				auth = newAuthenticator();
+			}
+		} catch (IOException | RuntimeException e) {
+			properties = previous;
+			setupFromProperties();
+			if (e instanceof JSONException) {
+				throw new IOException("Failed to load extra headers from the configuration", e);
+			}
+			throw e;
+		}
+
+		if (newAuth) {
+			HttpAuthenticator old = authenticator;
+			authenticator = auth;
+			if (old != null) {
+				old.close();
+			}
+			NegativeCache failures = negativeCache;
+			if (failures != null) {
+				failures.removeForbidden();
+			}
+		}
+
+		if (changed.stream().anyMatch(FETCH_SCHEDULER_PROPERTIES::contains)) {
+			fetchScheduler = newFetchScheduler();
+		}
+		setupThrottling();
+		metadataResolutionBatchSize = (int) getLongFromProperties(PROPERTY_METADATA_RESOLUTION_BATCH_SIZE,
+				DEFAULT_METADATA_RESOLUTION_BATCH_SIZE);
+		metadataResolutionInterval = getLongFromProperties(PROPERTY_METADATA_RESOLUTION_INTERVAL,
+				DEFAULT_METADATA_RESOLUTION_INTERVAL) * 1000;
+
+		if (fileCache != null && changed.stream().anyMatch(CACHE_LIMIT_PROPERTIES::contains)) {
+			setupCacheLimits();
+		}
+		if (cacheNamespace != null && changed.contains(PROPERTY_SHARED_CACHE_WEIGHT)) {
+			Framework.getService(HttpBlobCacheService.class).register(cacheNamespace, getSharedCacheWeight());
+		}
+		if (changed.stream().anyMatch(NEGATIVE_CACHE_PROPERTIES::contains)) {
+			setupNegativeCache();
+		}
+		if (changed.stream().anyMatch(MIRROR_PROPERTIES::contains)) {
+			healthCheckTimeout = (int) getLongFromProperties(PROPERTY_HEALTH_CHECK_TIMEOUT,
+					DEFAULT_HEALTH_CHECK_TIMEOUT);
+			mirrorSet = newMirrorSet();
+			requestDispatcher = newRequestDispatcher(mirrorSet);
+		}
+
+		log.info("Blob provider " + blobProviderId + " reconfigured: " + changed);
+		return changed;
 	}
 
 	@Override
-	public InputStream getStream(ManagedBlob blob) throws IOException {
+	public Blob readBlob(BlobInfo blobInfo) throws IOException {
+		return new SimpleManagedBlob(blobInfo);
+	}
 
-		InputStream stream = null;
+	@Override
+	public InputStream getStream(ManagedBlob blob) throws IOException {
+		return FetchTracing.trace("getStream", () -> {
+			FetchTracing.putAttribute(FetchTracing.ATTR_PROVIDER, blobProviderId);
+			FetchTracing.putUrlAttributes(extractUrl(blob));
+			return doGetStream(blob);
+		});
+	}
 
-		String digest = null;
-		// Using cache: Either get the file from the cache or download it and
-		// add it to the cache
-		// TODO: If the file is not in the cache, let's put it later, in another
-		// thread, asynchronously
-		// so we don't delay the download form the client
+	/*
+	 * A file in the cache is returned as is. Else, the stream is opened now,
+	 * so the connection errors are thrown here and not at the first read:
+	 * it fetches the whole file (and caches it), a large skip then reopens it
+	 * on a range, see openRange()
+	 */
+	protected InputStream doGetStream(ManagedBlob blob) throws IOException {
 
-		if (fileCache != null) {
-			digest = blob.getDigest();
+		if (useCache()) {
+			String digest = blob.getDigest();
 			if (digest == null) {
 				throw new NuxeoException("This blob has no digest: " + blob.getKey());
 			}
-			File file = fileCache.getFile(digest);
-			if (file == null) {
-				Blob downloaded = downloadFile(blob);
-				file = downloaded.getFile();
-				fileCache.putFile(digest, file);
-				file = fileCache.getFile(digest);
+			// Peeked, getCachedFile() counts the access
+			if (fileCache.peekEntry(cacheKey(digest)) != null) {
+				return new FileInputStream(getCachedFile(blob, digest));
 			}
-			stream = new FileInputStream(file);
+		}
 
-		} else {
-			// Not using the cache: Just get the file from the http stream.
-			String urlStr = extractUrl(blob);
-			try {
-				URL url = new URL(urlStr);
-				HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		RemoteRangeStream stream = new RemoteRangeStream((offset, length) -> openRange(blob, offset, length));
+		stream.open();
+		return stream;
+	}
 
-				addHeaders(connection, urlStr);
+	/**
+	 * Byte ranges are read from the cached file or requested from the remote
+	 * server, see {@link #getStream(String, ByteRange)}
+	 *
+	 * @since 2023.1
+	 */
+	@Override
+	public boolean allowByteRange() {
+		return true;
+	}
 
-				stream = connection.getInputStream();
+	/**
+	 * Called by Nuxeo's download service for a HTTP <code>Range</code>
+	 * request. Only the key of the blob is given: the cached file is looked
+	 * up with the digest {@link #createBlob(BlobInfo)} gives by default (the
+	 * MD5 of the URL). A blob created with another digest gets its range from
+	 * the remote server.
+	 *
+	 * @since 2023.1
+	 */
+	@Override
+	public InputStream getStream(String blobKey, ByteRange byteRange) throws IOException {
+		String url = extractUrl(blobKey);
+		return getStream(blobForUrl(url), byteRange.getStart(), byteRange.getLength());
+	}
 
-			} catch (MalformedURLException e) {
-				throw new NuxeoException("Fatal protocol violation", e);
-			} catch (IOException e) {
-				throw new IOException("Fatal transport error", e);
-			} finally {
+	/**
+	 * Returns a stream on a byte range of the blob, without fetching the whole
+	 * file. The range is read from the cached file if any, else it is
+	 * requested from the remote server (and, if the cache is used, the whole
+	 * file is cached in the background). The stream is bounded to the range.
+	 *
+	 * @param blob
+	 * @param offset the first byte
+	 * @param length the number of bytes, -1 for up to the end of the file
+	 * @return the stream, empty if offset is after the end of the file
+	 * @since 2023.1
+	 */
+	public InputStream getStream(ManagedBlob blob, long offset, long length) throws IOException {
+		RemoteRangeStream stream = new RemoteRangeStream((o, l) -> openRange(blob, o, l), offset, length,
+				RemoteRangeStream.DEFAULT_SKIP_THRESHOLD);
+		stream.open();
+		return stream;
+	}
+
+	/*
+	 * Opens a stream starting at offset. It may return more than length bytes,
+	 * the caller bounds it. Reading the whole file goes through the cache as
+	 * usual.
+	 */
+	protected InputStream openRange(ManagedBlob blob, long offset, long length) throws IOException {
+		return FetchTracing.trace("getRange", () -> {
+			FetchTracing.putAttribute(FetchTracing.ATTR_PROVIDER, blobProviderId);
+			FetchTracing.putUrlAttributes(extractUrl(blob));
+			FetchTracing.putAttribute(FetchTracing.ATTR_RANGE, toRangeHeader(offset, length));
+
+			String digest = blob.getDigest();
+			if (useCache() && digest != null) {
+				boolean whole = offset == 0 && length < 0;
+				if (whole || fileCache.peekEntry(cacheKey(digest)) != null) {
+					return openFile(getCachedFile(blob, digest), offset);
+				}
+				FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "miss");
+				if (cacheOnRangeRequest) {
+					fillCacheInBackground(blob, digest);
+				}
 			}
-		}
+			return fetchRange(blob, offset, length);
+		});
+	}
 
+	protected InputStream openFile(File file, long offset) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		if (offset > 0) {
+			// Seeks, does not read
+			stream.getChannel().position(offset);
+		}
 		return stream;
+	}
+
+	/*
+	 * "bytes=100-199", or "bytes=100-" up to the end of the file
+	 */
+	protected static String toRangeHeader(long offset, long length) {
+		return "bytes=" + offset + "-" + (length < 0 ? "" : String.valueOf(offset + length - 1));
+	}
+
+	/*
+	 * Requests the range to the remote server. The whole file is requested
+	 * without a Range header. Servers ignoring the Range send the whole file,
+	 * the bytes before offset are then skipped.
+	 */
+	protected InputStream fetchRange(ManagedBlob blob, long offset, long length) throws IOException {
+
+		String urlStr = extractUrl(blob);
+		boolean ranged = offset > 0 || length >= 0;
+		FetchPriority priority = getPriority();
+		FetchScheduler scheduler = fetchScheduler;
+		scheduler.acquire(priority);
+		try {
+			// The idle timeout applies to the server too
+			HttpURLConnection connection = sendRequest(urlStr, null, conn -> {
+				conn.setReadTimeout((int) streamTracker.getIdleTimeoutMillis());
+				if (ranged) {
+					conn.setRequestProperty("Range", toRangeHeader(offset, length));
+				}
+			});
+
+			int responseCode = connection.getResponseCode();
+			if (ranged && responseCode == HTTP_RANGE_NOT_SATISFIABLE) {
+				// After the end of the file
+				connection.disconnect();
+				return InputStream.nullInputStream();
+			}
+			if (responseCode >= 400) {
+				connection.disconnect();
+				throw httpError(urlStr, responseCode);
+			}
+
+			InputStream in = connection.getInputStream();
+			if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+				long start = getRangeStart(connection.getHeaderField("Content-Range"));
+				if (start != offset) {
+					connection.disconnect();
+					throw new IOException("Unexpected range for " + urlStr + ": "
+							+ connection.getHeaderField("Content-Range") + ", expected start: " + offset);
+				}
+			} else if (offset > 0) {
+				try {
+					IOUtils.skipFully(in, offset);
+				} catch (EOFException e) {
+					connection.disconnect();
+					return InputStream.nullInputStream();
+				}
+			}
+
+			// The connection is held until the caller closes the stream. The
+			// fetch slot is not: the caller may keep the stream open as long as
+			// it wants, the slot only covers getting the response
+			return streamTracker.track(throttle(in, priority), connection, urlStr, null);
+
+		} catch (MalformedURLException e) {
+			throw new NuxeoException("Fatal protocol violation", e);
+		} catch (IOException e) {
+			throw new IOException("Fatal transport error", e);
+		} finally {
+			scheduler.release(priority);
+		}
+	}
+
+	/**
+	 * When the cache is used, returns the cached file, downloading it first if
+	 * needed. So converters (thumbnail, full text, picture views, ...) read it
+	 * directly, instead of copying the stream to yet another temp. file.
+	 * <p>
+	 * Without cache, or if the file cannot be fetched, returns null (the caller
+	 * then uses the stream)
+	 * <p>
+	 * The file belongs to the cache, it must not be modified or deleted. It is
+	 * valid only while it stays in the cache: it can be evicted (once older
+	 * than "cacheMinAge"), replaced by a revalidation or removed by an
+	 * invalidation at any time. Read it right away (a file already opened
+	 * stays readable), or copy it to keep it. Files that must stay can be
+	 * pinned, see the HTTPBlobProvider.PinCache operation.
+	 *
+	 * @since 2023.1
+	 */
+	@Override
+	public File getFile(ManagedBlob blob) {
+
+		if (!useCache() || blob.getDigest() == null) {
+			return null;
+		}
+
+		try {
+			return FetchTracing.trace("getFile", () -> {
+				FetchTracing.putAttribute(FetchTracing.ATTR_PROVIDER, blobProviderId);
+				FetchTracing.putUrlAttributes(extractUrl(blob));
+				return getCachedFile(blob, blob.getDigest());
+			});
+		} catch (IOException e) {
+			log.warn("Cannot get the file for " + blob.getKey() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the cached file, downloading it if needed. When the file is
+	 * stale (older than cacheMaxAge):
+	 * - Within the stale-while-revalidate window: Returned as is, revalidated in
+	 * the background
+	 * - Else revalidated now, and if the remote server fails, returned as is
+	 * within the stale-if-error window
+	 */
+	protected File getCachedFile(ManagedBlob blob, String digest) throws IOException {
+
+		CacheEntry entry = fileCache.getEntry(cacheKey(digest));
+		if (entry == null) {
+			FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "miss");
+			return fetchIntoCache(blob, digest, null);
+		}
+
+		long age = System.currentTimeMillis() - entry.getValidated();
+		if (isFresh(entry)) {
+			FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "hit");
+			return entry.getFile();
+		}
+
+		if (age <= cacheMaxAge + cacheStaleWhileRevalidate) {
+			FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "stale");
+			revalidateInBackground(blob, digest, entry);
+			return entry.getFile();
+		}
+
+		try {
+			FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "revalidated");
+			return fetchIntoCache(blob, digest, entry);
+		} catch (FileNotFoundException e) {
+			// Not an error, the file was removed
+			fileCache.remove(cacheKey(digest));
+			throw e;
+		} catch (IOException e) {
+			if (age <= cacheMaxAge + cacheStaleIfError) {
+				FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "staleIfError");
+				log.warn("Cannot revalidate " + extractUrl(blob) + ", using the stale cached file: " + e.getMessage());
+				return entry.getFile();
+			}
+			throw e;
+		}
+	}
+
+	/*
+	 * The cache is configured and at least one of its volumes is online
+	 */
+	protected boolean useCache() {
+		return fileCache != null && fileCache.isAvailable();
+	}
+
+	protected boolean isFresh(CacheEntry entry) {
+		return cacheMaxAge <= 0 || System.currentTimeMillis() - entry.getValidated() <= cacheMaxAge;
+	}
+
+	protected void revalidateInBackground(ManagedBlob blob, String digest, CacheEntry entry) {
+		fetchInBackground(blob, digest, entry);
+	}
+
+	/*
+	 * Caches the whole file while a range of it is read
+	 */
+	protected void fillCacheInBackground(ManagedBlob blob, String digest) {
+		fetchInBackground(blob, digest, null);
+	}
+
+	/*
+	 * One background fetch per digest at a time. Without cached entry, does
+	 * nothing if the file was cached in the meantime
+	 */
+	protected void fetchInBackground(ManagedBlob blob, String digest, CacheEntry entry) {
+
+		if (revalidating.putIfAbsent(digest, Boolean.TRUE) != null) {
+			return;
+		}
+		try {
+			getFetchExecutor().execute(FetchTracing.withCurrentSpan(() -> {
+				try {
+					FetchPriority.runAs(FetchPriority.BACKGROUND, () -> {
+						if (entry == null && fileCache.getEntry(cacheKey(digest)) != null) {
+							return null;
+						}
+						return fetchIntoCache(blob, digest, entry);
+					});
+				} catch (Exception e) {
+					log.warn("Cannot " + (entry == null ? "cache " : "revalidate ") + extractUrl(blob) + ": "
+							+ e.getMessage());
+				} finally {
+					revalidating.remove(digest);
+				}
+			}));
+		} catch (RuntimeException e) {
+			// Rejected (provider closing)
+			revalidating.remove(digest);
+		}
+	}
+
+	/*
+	 * Downloads the file to the cache. If the cached entry is passed, this is a
+	 * revalidation: the request is conditional and the cached file is replaced
+	 * only if it was modified.
+	 */
+	protected File fetchIntoCache(ManagedBlob blob, String digest, CacheEntry cached) throws IOException {
+		return fetchIntoCache(blob, digest, cached, true);
+	}
+
+	/*
+	 * A missing file is first asked to its owner node, if any, unless askPeer
+	 * is false (we are the owner, serving another node)
+	 */
+	protected File fetchIntoCache(ManagedBlob blob, String digest, CacheEntry cached, boolean askPeer)
+			throws IOException {
+
+		File tmp = fileCache.getTempFile(cacheKey(digest));
+		long started = startCacheFetch();
+		try {
+			HttpURLConnection connection = null;
+			PeerCache peers = peerCache;
+			if (cached == null && askPeer && peers != null) {
+				connection = peers.download(digest, extractUrl(blob), tmp, getBlobChecksums(blob));
+				if (connection != null) {
+					FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "peer");
+				}
+			}
+			if (connection == null) {
+				connection = downloadTo(blob, tmp, cached);
+			}
+			if (cached != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				// The entry may have been evicted or invalidated during the
+				// request: its file is gone, download it again
+				CacheEntry current = fileCache.getEntry(cacheKey(digest));
+				if (current == null) {
+					return fetchIntoCache(blob, digest, null, askPeer);
+				}
+				FetchTracing.putAttribute(FetchTracing.ATTR_CACHE_OUTCOME, "notModified");
+				current.validated();
+				return current.getFile();
+			}
 
+			File file = fileCache.putFile(cacheKey(digest), tmp, cached != null);
+			CacheEntry entry = fileCache.getEntry(cacheKey(digest));
+			if (entry != null) {
+				entry.setValidators(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+				entry.setUrl(extractUrl(blob));
+				// Checked once the entry is complete: an invalidation applied
+				// later finds it in the cache
+				if (isInvalidatedSince(started, entry)) {
+					log.debug("Blob provider " + blobProviderId + ": " + extractUrl(blob)
+							+ " was invalidated during its download, downloading it again");
+					fileCache.remove(cacheKey(digest));
+					return fetchIntoCache(blob, digest, null, askPeer);
+				}
+			}
+
+			// Eviction is not our job, but let the janitor know it should run now
+			if (cacheJanitor.isAboveHighWatermark()) {
+				getScheduler().execute(cacheJanitor);
+			}
+
+			return file;
+		} finally {
+			tmp.delete();
+			endCacheFetch(started);
+		}
+	}
+
+	/*
+	 * @return the sequence number to pass to isInvalidatedSince() and
+	 * endCacheFetch()
+	 */
+	protected long startCacheFetch() {
+		synchronized (recentInvalidations) {
+			cacheFetchesInProgress.merge(invalidationSequence, 1, Integer::sum);
+			return invalidationSequence;
+		}
+	}
+
+	protected void endCacheFetch(long started) {
+		synchronized (recentInvalidations) {
+			cacheFetchesInProgress.computeIfPresent(started, (sequence, count) -> count == 1 ? null : count - 1);
+			// Not needed by the downloads still in progress
+			if (cacheFetchesInProgress.isEmpty()) {
+				recentInvalidations.clear();
+			} else {
+				recentInvalidations.headMap(cacheFetchesInProgress.firstKey(), true).clear();
+			}
+		}
+	}
+
+	/*
+	 * Kept only if downloads to the cache are in progress
+	 */
+	protected void recordInvalidation(CacheInvalidation invalidation) {
+		synchronized (recentInvalidations) {
+			invalidationSequence++;
+			if (!cacheFetchesInProgress.isEmpty()) {
+				recentInvalidations.put(invalidationSequence, invalidation);
+			}
+		}
+	}
+
+	protected boolean isInvalidatedSince(long started, CacheEntry entry) {
+		synchronized (recentInvalidations) {
+			for (CacheInvalidation invalidation : recentInvalidations.tailMap(started, false).values()) {
+				if (invalidation.matches(entry)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link #getStream(ManagedBlob)}: the remote
+	 * server is contacted in another thread (a virtual thread when the JVM
+	 * supports it). A fresh file in the cache is returned immediately.
+	 *
+	 * @param blob
+	 * @return a future completed with the stream, or completed exceptionally
+	 *         with the IOException
+	 * @since 2023.1
+	 */
+	public CompletableFuture<InputStream> getStreamAsync(ManagedBlob blob) {
+
+		if (fileCache != null && blob.getDigest() != null) {
+			CacheEntry entry = fileCache.getEntry(cacheKey(blob.getDigest()));
+			if (entry != null && isFresh(entry)) {
+				try {
+					return CompletableFuture.completedFuture(new FileInputStream(entry.getFile()));
+				} catch (FileNotFoundException e) {
+					// Evicted in the meantime, let's fetch it
+				}
+			}
+		}
+
+		// Opened now, in the other thread
+		return supplyAsync(() -> getStream(blob));
+	}
+
+	/**
+	 * Asynchronous version of {@link #downloadFile(ManagedBlob)}
+	 *
+	 * @param blob
+	 * @return a future completed with the downloaded blob, or completed
+	 *         exceptionally with the IOException
+	 * @since 2023.1
+	 */
+	public CompletableFuture<Blob> downloadFileAsync(ManagedBlob blob) {
+		return supplyAsync(() -> downloadFile(blob));
+	}
+
+	@FunctionalInterface
+	protected interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+
+	/*
+	 * The fetch keeps the priority of the caller
+	 */
+	protected <T> CompletableFuture<T> supplyAsync(IOSupplier<T> supplier) {
+		FetchPriority priority = getPriority();
+		Callable<T> call = FetchTracing.withCurrentSpan(() -> FetchPriority.runAs(priority, supplier::get));
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return call.call();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, getFetchExecutor());
 	}
 
 	/**
-	 * Downloads the remote data, returns a temp. blob, with ".tmp" as file
-	 * extension
+	 * Downloads the remote data, returns a temp. blob.
+	 * <p>
+	 * Small files (up to the "downloadMemoryThreshold" property, using the
+	 * Content-Length returned by the server when there is one) are kept in
+	 * memory. Larger files, or files of unknown length that turn out to be
+	 * larger, are written to a temp. file, with ".tmp" as file extension.
 	 * <p>
 	 * (used by unit tests so far)
 	 *
@@ -435,34 +2349,227 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 	 * @since 8.1
 	 */
 	public Blob downloadFile(ManagedBlob blob) throws IOException {
+		return FetchTracing.trace("downloadFile", () -> {
+			FetchTracing.putAttribute(FetchTracing.ATTR_PROVIDER, blobProviderId);
+			FetchTracing.putUrlAttributes(extractUrl(blob));
+			return doDownloadFile(blob);
+		});
+	}
+
+	protected Blob doDownloadFile(ManagedBlob blob) throws IOException {
 
 		Blob result = null;
 
-		String urlStr = extractUrl(blob);
+		String fileName = blob.getFilename();
+		String mimeType = blob.getMimeType();
+
+		FetchPriority priority = getPriority();
+		FetchScheduler scheduler = fetchScheduler;
+		scheduler.acquire(priority);
+		try {
+			HttpURLConnection connection = openDownload(blob, null);
+			result = FetchTracing.trace("transfer", () -> {
+				try (InputStream inputStream = verifying(blob, connection,
+						throttle(connection.getInputStream(), priority))) {
+					Blob downloaded = bufferDownload(inputStream, connection.getContentLengthLong(), mimeType);
+					FetchTracing.putAttribute(FetchTracing.ATTR_BYTES, downloaded.getLength());
+					verify(inputStream, downloaded);
+					return downloaded;
+				}
+			});
+		} finally {
+			scheduler.release(priority);
+		}
+
+		result.setFilename(fileName);
+		result.setMimeType(mimeType);
+
+		return result;
+	}
+
+	/*
+	 * In memory if small enough, else in a temp. file
+	 */
+	protected Blob bufferDownload(InputStream inputStream, long contentLength, String mimeType) throws IOException {
+
+		int threshold = downloadBufferPool.getBufferSize() - 1;
+		if (contentLength > threshold) {
+			return spillDownload(inputStream, null, 0);
+		}
+
+		if (contentLength >= 0) {
+			// Known length: read directly in an array of the right size
+			byte[] bytes = new byte[(int) contentLength];
+			int read = IOUtils.read(inputStream, bytes);
+			if (read < contentLength) {
+				throw new EOFException("Expected " + contentLength + " bytes, got " + read);
+			}
+			return new ByteArrayBlob(bytes, mimeType);
+		}
+
+		// Unknown length: fill a pooled buffer, spill to disk if it's not enough
+		byte[] buffer = downloadBufferPool.acquire();
+		try {
+			int read = IOUtils.read(inputStream, buffer);
+			if (read <= threshold) {
+				return new ByteArrayBlob(Arrays.copyOf(buffer, read), mimeType);
+			}
+			return spillDownload(inputStream, buffer, read);
+		} finally {
+			downloadBufferPool.release(buffer);
+		}
+	}
+
+	protected Blob spillDownload(InputStream inputStream, byte[] head, int headLength) throws IOException {
+
+		Blob result = Blobs.createBlobWithExtension(".tmp");
+		try (FileOutputStream outputStream = new FileOutputStream(result.getFile())) {
+			if (head != null) {
+				outputStream.write(head, 0, headLength);
+			}
+			IOUtils.copyLarge(inputStream, outputStream);
+		} catch (IOException e) {
+			result.getFile().delete();
+			throw e;
+		}
+
+		return result;
+	}
+
+	/*
+	 * Wraps the body of the response so its length and checksums are checked
+	 * while it is read. The expected checksums are the ones sent by the server,
+	 * and the digest of the blob if it is a hash of the content (not the
+	 * default digest, the MD5 of the URL)
+	 */
+	protected InputStream verifying(ManagedBlob blob, HttpURLConnection connection, InputStream inputStream)
+			throws IOException {
+
+		if (!verifyDownloads) {
+			return inputStream;
+		}
+
+		Map<String, byte[]> expected = VerifyingInputStream.getExpectedChecksums(connection);
+		getBlobChecksums(blob).forEach(expected::putIfAbsent);
+
+		return new VerifyingInputStream(inputStream, extractUrl(blob), connection.getContentLengthLong(), expected);
+	}
+
+	/*
+	 * The digest of the blob, when it is checked and is a hash of the content
+	 */
+	protected Map<String, byte[]> getBlobChecksums(ManagedBlob blob) {
+
+		Map<String, byte[]> checksums = new HashMap<>();
+		String digest = blob.getDigest();
+		if (verifyDownloads && verifyBlobDigest && digest != null
+				&& !digest.equals(DigestUtils.md5Hex(extractUrl(blob)))) {
+			VerifyingInputStream.putHexDigest(checksums, digest);
+		}
+		return checksums;
+	}
+
+	/*
+	 * The end of the stream may not have been reached (known length), check
+	 * now. A corrupted download is discarded
+	 */
+	protected void verify(InputStream inputStream, Blob downloaded) throws IOException {
+
+		if (inputStream instanceof VerifyingInputStream) {
+			try {
+				((VerifyingInputStream) inputStream).verify();
+			} catch (IOException e) {
+				if (downloaded.getFile() != null) {
+					downloaded.getFile().delete();
+				}
+				throw e;
+			}
+		}
+	}
+
+	/*
+	 * Copies the remote data to the file
+	 */
+	protected HttpURLConnection downloadTo(ManagedBlob blob, File file) throws IOException {
+		return downloadTo(blob, file, null);
+	}
+
+	/*
+	 * Copies the remote data to the file, returns the connection so the caller
+	 * can read the response headers. When a cached entry is passed, the request
+	 * is conditional, and nothing is copied if the remote server returns 304
+	 * (Not Modified)
+	 */
+	protected HttpURLConnection downloadTo(ManagedBlob blob, File file, CacheEntry cached) throws IOException {
+
+		FetchPriority priority = getPriority();
+		FetchScheduler scheduler = fetchScheduler;
+		scheduler.acquire(priority);
+		try {
+			return downloadTo(blob, file, cached, priority);
+		} finally {
+			scheduler.release(priority);
+		}
+	}
+
+	protected HttpURLConnection downloadTo(ManagedBlob blob, File file, CacheEntry cached, FetchPriority priority)
+			throws IOException {
+
+		HttpURLConnection connection = openDownload(blob, cached);
+		if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			return connection;
+		}
+
+		// The file is checked while it is written, before it goes to the cache
+		FetchTracing.trace("transfer", () -> {
+			long total = 0;
+			try (InputStream inputStream = verifying(blob, connection,
+					throttle(connection.getInputStream(), priority));
+					FileOutputStream outputStream = new FileOutputStream(file)) {
+				int bytesRead = -1;
+				byte[] buffer = new byte[10240];
+				while ((bytesRead = inputStream.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, bytesRead);
+					total += bytesRead;
+				}
+			} catch (VerifyingInputStream.IntegrityException e) {
+				log.warn(e.getMessage());
+				throw e;
+			} finally {
+				FetchTracing.putAttribute(FetchTracing.ATTR_BYTES, total);
+			}
+			return null;
+		});
+
+		return connection;
+	}
 
-		URL url = new URL(urlStr);
-		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+	/*
+	 * Sends the GET request, conditional if a cached entry is passed. Returns
+	 * the connection, ready to read the body (unless the response is 304)
+	 */
+	protected HttpURLConnection openDownload(ManagedBlob blob, CacheEntry cached) throws IOException {
 
-		addHeaders(connection, urlStr);
+		String urlStr = extractUrl(blob);
 
-		String fileName = blob.getFilename();
-		String mimeType = blob.getMimeType();
+		HttpURLConnection connection = sendRequest(urlStr, null, conn -> {
+			if (cached != null) {
+				if (cached.getEtag() != null) {
+					conn.setRequestProperty("If-None-Match", cached.getEtag());
+				}
+				if (cached.getLastModified() != null) {
+					conn.setRequestProperty("If-Modified-Since", cached.getLastModified());
+				}
+			}
+		});
 
-		result = Blobs.createBlobWithExtension(".tmp");
-		FileOutputStream outputStream = new FileOutputStream(result.getFile());
-		InputStream inputStream = connection.getInputStream();
-		int bytesRead = -1;
-		byte[] buffer = new byte[10240];
-		while ((bytesRead = inputStream.read(buffer)) != -1) {
-			outputStream.write(buffer, 0, bytesRead);
+		int responseCode = connection.getResponseCode();
+		if (responseCode >= 400) {
+			connection.disconnect();
+			throw httpError(urlStr, responseCode);
 		}
-		outputStream.close();
-		inputStream.close();
-
-		result.setFilename(fileName);
-		result.setMimeType(mimeType);
 
-		return result;
+		return connection;
 	}
 
 	/**
@@ -492,6 +2599,11 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 	 * <li>blobInfo <i>must</i> contain the mime type and the filename. If they
 	 * don't, the code tries to guess the values by sending a HEAD request. If
 	 * this fails, an error is thrown.</li>
+	 * <li>Unless the "deferMetadataResolution" property is true: then the mime
+	 * type and the filename are derived from the URL, the blob is returned
+	 * immediately, and a {@link ResolveBlobMetadataWork} fetches the real
+	 * values (and the length, if not passed) after the transaction commits,
+	 * then updates the documents.</li>
 	 * </ul>
 	 * <p>
 	 * The passed {@link BlobInfo} contains information about the blob
@@ -511,23 +2623,39 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 		BlobInfo newInfo = new BlobInfo(blobInfo);
 		newInfo.key = blobProviderId + ":" + url;
 
+		boolean resolveLater = false;
 		if (StringUtils.isBlank(newInfo.mimeType) || StringUtils.isBlank(newInfo.filename)) {
 
-			BlobInfo guessedInfo = guessInfosFromURL(url);
-
-			if (guessedInfo == null || newInfo.mimeType == null || newInfo.filename == null) {
-				throw new NuxeoException("BlobInfo with no mime type or no file name, and could not guess them.");
+			if (deferMetadataResolution) {
+				BlobInfo defaultInfo = guessInfosFromURLPath(url);
+				newInfo.mimeType = StringUtils.isBlank(newInfo.mimeType) ? defaultInfo.mimeType : newInfo.mimeType;
+				newInfo.filename = StringUtils.isBlank(newInfo.filename) ? defaultInfo.filename : newInfo.filename;
+				resolveLater = true;
+			} else {
+				BlobInfo guessedInfo = guessInfosFromURL(url);
+				if (guessedInfo != null) {
+					newInfo.mimeType = guessedInfo.mimeType == null ? newInfo.mimeType : guessedInfo.mimeType;
+					newInfo.filename = guessedInfo.filename == null ? newInfo.filename : guessedInfo.filename;
+					newInfo.encoding = guessedInfo.encoding == null ? newInfo.encoding : guessedInfo.encoding;
+					if (newInfo.length == null && guessedInfo.length != null && guessedInfo.length > 0) {
+						newInfo.length = guessedInfo.length;
+					}
+				}
+				if (StringUtils.isBlank(newInfo.mimeType) || StringUtils.isBlank(newInfo.filename)) {
+					throw new NuxeoException("BlobInfo with no mime type or no file name, and could not guess them.");
+				}
 			}
-
-			newInfo.mimeType = guessedInfo.mimeType == null ? newInfo.mimeType : guessedInfo.mimeType;
-			newInfo.filename = guessedInfo.filename == null ? newInfo.filename : guessedInfo.filename;
-			newInfo.encoding = guessedInfo.encoding == null ? newInfo.encoding : guessedInfo.encoding;
 		}
 
 		if (newInfo.length == null) {
-			// Default widgets in the UI activate a link if the length is >= 0
-			// (see extended_file_widget.xhtml)
-			newInfo.length = 0L;
+			if (deferMetadataResolution) {
+				// Unknown until resolved
+				resolveLater = true;
+			} else {
+				// Default widgets in the UI activate a link if the length is >=
+				// 0 (see extended_file_widget.xhtml)
+				newInfo.length = 0L;
+			}
 		}
 
 		if (StringUtils.isBlank(newInfo.digest)) {
@@ -537,9 +2665,27 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 			newInfo.encoding = null;
 		}
 
+		if (resolveLater) {
+			queueMetadataResolution(new PendingMetadata(newInfo.key, url, newInfo.mimeType, newInfo.filename));
+		}
+
 		return new SimpleManagedBlob(newInfo);
 	}
 
+	/**
+	 * Asynchronous version of {@link #createBlob(BlobInfo)}, useful to create
+	 * many blobs in parallel when the mime type or the file name must be
+	 * guessed from the remote server.
+	 *
+	 * @param blobInfo
+	 *            the blob info where the key is the URL
+	 * @return a future completed with the blob
+	 * @since 2023.1
+	 */
+	public CompletableFuture<ManagedBlob> createBlobAsync(BlobInfo blobInfo) {
+		return supplyAsync(() -> createBlob(blobInfo));
+	}
+
 	/**
 	 * Tests the URL (stored in the blob key) using a HEAD http verb, and adding
 	 * authentication if needed.
@@ -567,12 +2713,8 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 		boolean looksOk = false;
 		try {
-			URL url = new URL(urlStr);
-			HttpURLConnection huc = (HttpURLConnection) url.openConnection();
+			HttpURLConnection huc = sendRequest(urlStr, "HEAD", null);
 
-			addHeaders(huc, urlStr);
-
-			huc.setRequestMethod("HEAD");
 			int responseCode = huc.getResponseCode();
 			looksOk = responseCode == HttpURLConnection.HTTP_OK;
 
@@ -594,86 +2736,326 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 	 * @since 8.1
 	 */
 	public BlobInfo guessInfosFromURL(String urlStr) {
+		return FetchTracing.trace("head", () -> {
+			FetchTracing.putAttribute(FetchTracing.ATTR_PROVIDER, blobProviderId);
+			FetchTracing.putUrlAttributes(urlStr);
+			return doGuessInfosFromURL(urlStr);
+		});
+	}
+
+	protected BlobInfo doGuessInfosFromURL(String urlStr) {
+
+		NegativeCache failures = negativeCache;
+		if (failures != null && failures.get(urlStr) != null) {
+			// Failed recently: neither HEAD nor the probe is sent
+			return null;
+		}
 
 		BlobInfo bi = null;
-		String attrLowerCase;
+		int responseCode = -1;
 		try {
-			URL url = new URL(urlStr);
-			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			HttpURLConnection connection = sendRequest(urlStr, "HEAD", null);
+
+			responseCode = connection.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_OK) {
+				bi = readInfos(connection, urlStr);
+			}
 
-			addHeaders(connection, urlStr);
+		} catch (Exception e) { // Whatever the error, we fail. No need to be
+								// granular here.
+			bi = null;
+		}
+
+		if (probeWithRange && needsProbe(bi) && isProbeUseful(responseCode)) {
+			if (failures != null && isHeadRejected(responseCode)) {
+				// Some servers reject HEAD only (presigned URLs, ...), the GET
+				// must be tried
+				failures.remove(urlStr);
+			}
+			BlobInfo headInfo = bi;
+			bi = FetchTracing.trace("probe", () -> probeInfos(urlStr, headInfo));
+		}
+
+		return bi;
+	}
+
+	/*
+	 * The GET would fail the same way when HEAD says the file is missing or
+	 * the server fails
+	 */
+	protected static boolean isProbeUseful(int headResponseCode) {
+		return headResponseCode != HttpURLConnection.HTTP_NOT_FOUND && headResponseCode != HttpURLConnection.HTTP_GONE
+				&& headResponseCode < 500;
+	}
+
+	protected static boolean isHeadRejected(int headResponseCode) {
+		return headResponseCode == HttpURLConnection.HTTP_UNAUTHORIZED
+				|| headResponseCode == HttpURLConnection.HTTP_FORBIDDEN
+				|| headResponseCode == HttpURLConnection.HTTP_BAD_METHOD;
+	}
+
+	/*
+	 * HEAD failed, or did not give the length, or the mime type
+	 */
+	protected boolean needsProbe(BlobInfo bi) {
+		return bi == null || bi.length == null || bi.length <= 0 || StringUtils.isBlank(bi.mimeType)
+				|| MimeTypeSniffer.OCTET_STREAM.equals(bi.mimeType);
+	}
+
+	/*
+	 * GET the first bytes only (Range), for the total length (Content-Range)
+	 * and the mime type (magic bytes). If the server ignores the Range, only
+	 * the first bytes are read and the connection is closed: the whole file is
+	 * never downloaded. Returns what HEAD found, completed
+	 */
+	protected BlobInfo probeInfos(String urlStr, BlobInfo headInfo) {
+
+		HttpURLConnection connection = null;
+		try {
+			connection = sendRequest(urlStr, null,
+					conn -> conn.setRequestProperty("Range", "bytes=0-" + (MimeTypeSniffer.PROBE_SIZE - 1)));
 
-			connection.setRequestMethod("HEAD");
 			int responseCode = connection.getResponseCode();
-			if (responseCode == HttpURLConnection.HTTP_OK) {
+			if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_PARTIAL) {
+				connection.disconnect();
+				return headInfo;
+			}
 
-				bi = new BlobInfo();
+			BlobInfo bi = headInfo == null ? readInfos(connection, urlStr) : headInfo;
+			long total = -1;
+			if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+				total = getTotalLength(connection.getHeaderField("Content-Range"));
+			} else {
+				total = connection.getContentLengthLong();
+			}
 
-				bi.mimeType = connection.getContentType();
-				// Remove possible ...;charset="something"
-				int idx = bi.mimeType.indexOf(";");
-				if (idx >= 0) {
-					bi.mimeType = bi.mimeType.substring(0, idx);
+			byte[] head = new byte[MimeTypeSniffer.PROBE_SIZE];
+			int read;
+			try (InputStream in = connection.getInputStream()) {
+				read = IOUtils.read(in, head);
+				if (responseCode == HttpURLConnection.HTTP_OK && read == head.length) {
+					// More to come, do not download it
+					connection.disconnect();
 				}
+			}
+			if (responseCode == HttpURLConnection.HTTP_OK && total < 0 && read < head.length) {
+				// The whole file, of unknown length
+				total = read;
+			}
 
-				bi.encoding = connection.getContentEncoding();
-				bi.length = connection.getContentLengthLong();
-				if (bi.length < 0) {
-					bi.length = 0L;
+			if (total > 0 && (bi.length == null || bi.length <= 0)) {
+				bi.length = total;
+			}
+			if (StringUtils.isBlank(bi.mimeType) || MimeTypeSniffer.OCTET_STREAM.equals(bi.mimeType)) {
+				String sniffed = MimeTypeSniffer.sniff(head, read);
+				if (sniffed == null && bi.filename != null) {
+					sniffed = URLConnection.guessContentTypeFromName(bi.filename);
+				}
+				if (sniffed != null) {
+					bi.mimeType = sniffed;
 				}
+			}
+			return bi;
 
-				String disposition = connection.getHeaderField("Content-Disposition");
-				String fileName = null;
-				if (disposition != null) {
-					String[] attributes = disposition.split(";");
-
-					for (String attr : attributes) {
-						attrLowerCase = attr.toLowerCase();
-						if (attrLowerCase.contains("filename=")) {
-							attr = attr.trim();
-							// Remove filename=
-							fileName = attr.substring(9);
-							idx = fileName.indexOf("\"");
-							if (idx > -1) {
-								fileName = fileName.substring(idx + 1, fileName.lastIndexOf("\""));
-							}
-							bi.filename = fileName;
-							break;
-
-						} else if (attrLowerCase.contains("filename*=utf-8''")) {
-							attr = attr.trim();
-							// Remove filename=
-							fileName = attr.substring(17);
-							idx = fileName.indexOf("\"");
-							if (idx > -1) {
-								fileName = fileName.substring(idx + 1, fileName.lastIndexOf("\""));
-							}
-							fileName = java.net.URLDecoder.decode(fileName, "UTF-8");
-							bi.filename = fileName;
-							break;
-						}
+		} catch (IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			return headInfo;
+		}
+	}
+
+	/*
+	 * "bytes 0-4095/123456" => 123456. -1 if unknown ("bytes 0-4095/*")
+	 */
+	protected static long getTotalLength(String contentRange) {
+		if (contentRange == null) {
+			return -1;
+		}
+		int slash = contentRange.lastIndexOf('/');
+		if (slash < 0) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(contentRange.substring(slash + 1).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/*
+	 * "bytes 100-199/1000" => 100. -1 if unknown
+	 */
+	protected static long getRangeStart(String contentRange) {
+		if (contentRange == null) {
+			return -1;
+		}
+		int space = contentRange.indexOf(' ');
+		int dash = contentRange.indexOf('-');
+		if (dash <= space) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(contentRange.substring(space + 1, dash).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/*
+	 * Mime type, encoding, length and file name from the response headers
+	 */
+	protected BlobInfo readInfos(HttpURLConnection connection, String urlStr) throws IOException {
+
+		BlobInfo bi = new BlobInfo();
+		String attrLowerCase;
+
+		bi.mimeType = connection.getContentType();
+		int idx;
+		if (bi.mimeType != null) {
+			// Remove possible ...;charset="something"
+			idx = bi.mimeType.indexOf(";");
+			if (idx >= 0) {
+				bi.mimeType = bi.mimeType.substring(0, idx);
+			}
+		}
+
+		bi.encoding = connection.getContentEncoding();
+		bi.length = connection.getContentLengthLong();
+		if (bi.length < 0 || connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+			// Unknown, or the length of the range
+			bi.length = 0L;
+		}
+
+		String disposition = connection.getHeaderField("Content-Disposition");
+		String fileName = null;
+		if (disposition != null) {
+			String[] attributes = disposition.split(";");
+
+			for (String attr : attributes) {
+				attrLowerCase = attr.toLowerCase();
+				if (attrLowerCase.contains("filename=")) {
+					attr = attr.trim();
+					// Remove filename=
+					fileName = attr.substring(9);
+					idx = fileName.indexOf("\"");
+					if (idx > -1) {
+						fileName = fileName.substring(idx + 1, fileName.lastIndexOf("\""));
 					}
-				} else {
-					// Try from the url
-					idx = urlStr.lastIndexOf("/");
+					bi.filename = fileName;
+					break;
+
+				} else if (attrLowerCase.contains("filename*=utf-8''")) {
+					attr = attr.trim();
+					// Remove filename=
+					fileName = attr.substring(17);
+					idx = fileName.indexOf("\"");
 					if (idx > -1) {
-						fileName = urlStr.substring(idx + 1);
-						bi.filename = java.net.URLDecoder.decode(fileName, "UTF-8");
+						fileName = fileName.substring(idx + 1, fileName.lastIndexOf("\""));
 					}
+					fileName = java.net.URLDecoder.decode(fileName, "UTF-8");
+					bi.filename = fileName;
+					break;
 				}
 			}
+		} else {
+			// Try from the url
+			idx = urlStr.lastIndexOf("/");
+			if (idx > -1) {
+				fileName = urlStr.substring(idx + 1);
+				bi.filename = java.net.URLDecoder.decode(fileName, "UTF-8");
+			}
+		}
 
-		} catch (Exception e) { // Whatever the error, we fail. No need to be
-								// granular here.
-			bi = null;
+		return bi;
+	}
+
+	/**
+	 * Derives the file name and the mime type from the URL only, without
+	 * contacting the remote server: the file name is the last segment of the
+	 * path, the mime type is guessed from its extension (and is
+	 * "application/octet-stream" if it can't be guessed).
+	 *
+	 * @param urlStr
+	 * @return a BlobInfo with the mime type and the file name
+	 * @since 2023.1
+	 */
+	public BlobInfo guessInfosFromURLPath(String urlStr) {
+
+		BlobInfo bi = new BlobInfo();
+
+		String path = urlStr;
+		try {
+			String uriPath = new URI(urlStr).getPath();
+			if (uriPath != null) {
+				path = uriPath;
+			}
+		} catch (URISyntaxException e) {
+			// Use the raw URL, minus the query
+			int idx = path.indexOf('?');
+			if (idx >= 0) {
+				path = path.substring(0, idx);
+			}
 		}
+		int idx = path.lastIndexOf('/');
+		String fileName = idx >= 0 ? path.substring(idx + 1) : path;
+		bi.filename = StringUtils.isBlank(fileName) ? "file" : fileName;
+
+		String mimeType = URLConnection.guessContentTypeFromName(bi.filename);
+		bi.mimeType = mimeType == null ? DEFAULT_MIME_TYPE : mimeType;
 
 		return bi;
 	}
 
+	/**
+	 * @return the availability of the origin server, null if the "origin"
+	 *         property is not set
+	 * @since 2023.1
+	 */
+	public OriginHealth getOriginHealth() {
+		return mirrorSet == null ? null : mirrorSet.getMirrors().get(0).getHealth();
+	}
+
+	/**
+	 * @return the streams read directly from the remote server, held by the
+	 *         callers (the cache is not used, or none of its volumes is
+	 *         available)
+	 * @since 2023.1
+	 */
+	public StreamTracker getStreamTracker() {
+		return streamTracker;
+	}
+
+	/**
+	 * @return the origin and its mirrors, null if the "origin" property is not
+	 *         set
+	 * @since 2023.1
+	 */
+	public MirrorSet getMirrorSet() {
+		return mirrorSet;
+	}
+
+	/**
+	 * @return false if the URL is served by the origin server and neither the
+	 *         origin nor its mirrors are available
+	 * @since 2023.1
+	 */
+	public boolean isAvailable(String urlStr) {
+		return mirrorSet == null || mirrorSet.find(urlStr) == null || mirrorSet.isAnyAvailable();
+	}
+
+	/**
+	 * @return the URLs that recently failed, null if the provider does not use
+	 *         a negative cache
+	 * @since 2023.1
+	 */
+	public NegativeCache getNegativeCache() {
+		return negativeCache;
+	}
+
 	public int getNumberOfCachedFiles() {
 		if (fileCache != null) {
-			return fileCache.getNumberOfItems();
+			return cacheNamespace == null ? fileCache.getNumberOfItems() : getCacheEntries().size();
 		}
 
 		return 0;
@@ -681,10 +3063,271 @@ public class HttpBlobProvider extends AbstractBlobProvider {
 
 	public boolean isCached(ManagedBlob blob) {
 		if (fileCache != null && blob.getDigest() != null) {
-			return fileCache.getFile(blob.getDigest()) != null;
+			return fileCache.getFile(cacheKey(blob.getDigest())) != null;
 		}
 
 		return false;
 	}
 
+	/**
+	 * @return true if the provider uses a local cache
+	 * @since 2023.1
+	 */
+	public boolean isCacheEnabled() {
+		return fileCache != null;
+	}
+
+	/**
+	 * @return the size of the cache, in bytes. Only the files of this provider
+	 *         when the cache is shared
+	 * @since 2023.1
+	 */
+	public long getCacheSize() {
+		if (fileCache == null) {
+			return 0;
+		}
+		return cacheNamespace == null ? fileCache.getSize() : fileCache.getSize(cacheNamespace);
+	}
+
+	/**
+	 * @return true if the cache is shared with the other providers, see
+	 *         {@link HttpBlobCacheService}
+	 * @since 2023.1
+	 */
+	public boolean isCacheShared() {
+		return cacheNamespace != null;
+	}
+
+	/**
+	 * @return the max. size of the cache, or the share of this provider when
+	 *         the cache is shared and full. 0 if the cache is not used
+	 * @since 2023.1
+	 */
+	public long getCacheQuota() {
+		if (fileCache == null) {
+			return 0;
+		}
+		if (cacheNamespace != null) {
+			return Framework.getService(HttpBlobCacheService.class).getQuota(cacheNamespace);
+		}
+		CacheJanitor janitor = cacheJanitor;
+		return janitor == null ? 0 : janitor.maxSize;
+	}
+
+	/**
+	 * @return the volumes of the cache, empty if the cache is not used
+	 * @since 2023.1
+	 */
+	public List<CacheVolume> getCacheVolumes() {
+		return fileCache == null ? List.of() : fileCache.getVolumes();
+	}
+
+	/**
+	 * @return a snapshot of the cache entries, least recently used first
+	 * @since 2023.1
+	 */
+	public List<CacheEntry> getCacheEntries() {
+		if (fileCache == null) {
+			return Collections.emptyList();
+		}
+		List<CacheEntry> entries = fileCache.getEntries();
+		if (cacheNamespace != null) {
+			entries.removeIf(entry -> !isOwnCacheEntry(entry));
+		}
+		return entries;
+	}
+
+	/**
+	 * Inspects a cache entry, without counting as an access
+	 *
+	 * @return the entry, null if the digest is not cached
+	 * @since 2023.1
+	 */
+	public CacheEntry getCacheEntry(String digest) {
+		return fileCache == null ? null : fileCache.peekEntry(cacheKey(digest));
+	}
+
+	/**
+	 * @return the last report of the cache janitor, null if it did not run yet
+	 * @since 2023.1
+	 */
+	public CacheJanitor.Report getLastJanitorReport() {
+		return cacheJanitor == null ? null : cacheJanitor.getLastReport();
+	}
+
+	/**
+	 * Removes a file from the cache, pinned or not. It will be downloaded
+	 * again the next time it is read.
+	 *
+	 * @return true if the digest was cached
+	 * @since 2023.1
+	 */
+	public boolean purgeCache(String digest) {
+		return fileCache != null && fileCache.remove(cacheKey(digest));
+	}
+
+	/**
+	 * Removes from the cache the files downloaded from this URL. Also forgets
+	 * a recent failure of this URL.
+	 *
+	 * @return the number of files removed
+	 * @since 2023.1
+	 */
+	public int purgeCacheByUrl(String url) {
+		NegativeCache failures = negativeCache;
+		if (failures != null) {
+			failures.remove(url);
+		}
+		return fileCache == null ? 0 : fileCache.removeIf(entry -> isOwnCacheEntry(entry) && url.equals(entry.getUrl()));
+	}
+
+	/**
+	 * Removes from the cache the files downloaded from a URL starting with
+	 * the prefix. Also forgets the recent failures of these URLs.
+	 *
+	 * @return the number of files removed
+	 * @since 2023.1
+	 */
+	public int purgeCacheByUrlPrefix(String prefix) {
+		NegativeCache failures = negativeCache;
+		if (failures != null) {
+			failures.removeByPrefix(prefix);
+		}
+		return fileCache == null ? 0
+				: fileCache.removeIf(entry -> isOwnCacheEntry(entry) && entry.getUrl() != null
+						&& entry.getUrl().startsWith(prefix));
+	}
+
+	/**
+	 * Empties the cache (pinned files included, the pins are kept)
+	 *
+	 * @return the number of files removed
+	 * @since 2023.1
+	 */
+	public int purgeCache() {
+		return fileCache == null ? 0 : fileCache.removeIf(this::isOwnCacheEntry);
+	}
+
+	/**
+	 * Removes from the cache the files that changed on the origin, on this
+	 * node and, through the Nuxeo pub/sub, on the other nodes of the cluster
+	 * (unless <code>clusterInvalidation</code> is <code>false</code>). An
+	 * invalidation by URL also forgets the recent failures of the URL(s).
+	 *
+	 * @return the number of files removed on this node
+	 * @since 2023.1
+	 */
+	public int invalidate(CacheInvalidation invalidation) {
+		int count = applyInvalidation(invalidation);
+		CacheInvalidationBroker broker = invalidationBroker;
+		if (broker != null) {
+			broker.publish(invalidation);
+		}
+		return count;
+	}
+
+	/*
+	 * Also called with the invalidations of the other nodes
+	 */
+	protected int applyInvalidation(CacheInvalidation invalidation) {
+
+		NegativeCache failures = negativeCache;
+		if (failures != null) {
+			if (invalidation.getType() == CacheInvalidation.Type.URL) {
+				failures.remove(invalidation.getValue());
+			} else if (invalidation.getType() == CacheInvalidation.Type.URL_PREFIX) {
+				failures.removeByPrefix(invalidation.getValue());
+			}
+		}
+		if (fileCache == null) {
+			return 0;
+		}
+		// Before removing the files, so a download in progress either sees it
+		// or has already put its file where removeIf() finds it
+		recordInvalidation(invalidation);
+		int count = fileCache.removeIf(entry -> isOwnCacheEntry(entry) && invalidation.matches(entry));
+		log.debug("Blob provider " + blobProviderId + ": " + invalidation + " invalidated " + count + " file(s)");
+		return count;
+	}
+
+	/**
+	 * Pins, or unpins, a digest: its file is never evicted from the cache. The
+	 * digest does not need to be cached yet.
+	 *
+	 * @since 2023.1
+	 */
+	public void pinCache(String digest, boolean pin) {
+		if (fileCache == null) {
+			throw new NuxeoException("The cache is not enabled for blob provider " + blobProviderId);
+		}
+		if (pin) {
+			fileCache.pin(cacheKey(digest));
+		} else {
+			fileCache.unpin(cacheKey(digest));
+		}
+	}
+
+	/**
+	 * @return true if the digest is pinned in the cache
+	 * @since 2023.1
+	 */
+	public boolean isPinned(String digest) {
+		return fileCache != null && fileCache.isPinned(cacheKey(digest));
+	}
+
+	/**
+	 * @return the pinned digests
+	 * @since 2023.1
+	 */
+	public Set<String> getPinnedDigests() {
+		if (fileCache == null) {
+			return Collections.emptySet();
+		}
+		if (cacheNamespace == null) {
+			return fileCache.getPinned();
+		}
+		String prefix = cacheKey("");
+		return fileCache.getPinned().stream().filter(key -> key.startsWith(prefix)).map(HttpBlobCache::digestOf)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Downloads the blobs to the cache, in the background, with at most
+	 * <code>concurrency</code> fetches at the same time.
+	 *
+	 * @return a future completed with the report of the warm-up
+	 * @since 2023.1
+	 */
+	public CompletableFuture<CacheWarmer.Report> warmCache(Collection<? extends ManagedBlob> blobs, int concurrency) {
+		if (fileCache == null) {
+			throw new NuxeoException("The cache is not enabled for blob provider " + blobProviderId);
+		}
+		return new CacheWarmer(this, concurrency).warm(blobs);
+	}
+
+	/**
+	 * Builds the blob to use for warming the cache from a URL, with the same
+	 * digest {@link #createBlob(BlobInfo)} gives when none is passed.
+	 *
+	 * @since 2023.1
+	 */
+	public ManagedBlob blobForUrl(String url) {
+		return blobFor(url, DigestUtils.md5Hex(url));
+	}
+
+	protected ManagedBlob blobFor(String url, String digest) {
+		BlobInfo info = new BlobInfo();
+		info.key = blobProviderId + ":" + url;
+		info.digest = digest;
+		return new SimpleManagedBlob(info);
+	}
+
+	/**
+	 * @return the peer tier of the cache, null if not used
+	 * @since 2023.1
+	 */
+	public PeerCache getPeerCache() {
+		return peerCache;
+	}
+
 }
@@ -0,0 +1,205 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Guesses the mime type of a file from its first bytes (its "magic number"), for the formats commonly stored in a
+ * document repository. Only the first few KB are needed, see {@link #PROBE_SIZE}.
+ *
+ * @since 2023.1
+ */
+public class MimeTypeSniffer {
+
+    /**
+     * Enough for all the signatures, including the names of the first entries of a zip (Office documents)
+     */
+    public static final int PROBE_SIZE = 4096;
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    protected static final Object[][] SIGNATURES = { //
+            { "%PDF-", "application/pdf" }, //
+            { new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A }, "image/png" }, //
+            { new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }, "image/jpeg" }, //
+            { "GIF87a", "image/gif" }, //
+            { "GIF89a", "image/gif" }, //
+            { new byte[] { 'I', 'I', 0x2A, 0x00 }, "image/tiff" }, //
+            { new byte[] { 'M', 'M', 0x00, 0x2A }, "image/tiff" }, //
+            { "8BPS", "image/vnd.adobe.photoshop" }, //
+            { new byte[] { 0x1F, (byte) 0x8B }, "application/gzip" }, //
+            { new byte[] { '7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C }, "application/x-7z-compressed" }, //
+            { "Rar!", "application/vnd.rar" }, //
+            { new byte[] { (byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A,
+                    (byte) 0xE1 }, "application/x-ole-storage" }, //
+            { "{\\rtf", "application/rtf" }, //
+            { "ID3", "audio/mpeg" }, //
+            { "OggS", "audio/ogg" }, //
+            { "fLaC", "audio/flac" }, //
+            { new byte[] { 0x1A, 0x45, (byte) 0xDF, (byte) 0xA3 }, "video/x-matroska" }, //
+            { "%!PS", "application/postscript" }, //
+    };
+
+    private MimeTypeSniffer() {
+        // Static methods only
+    }
+
+    /**
+     * @param data the first bytes of the file
+     * @param length the number of bytes in data
+     * @return the mime type, null if unknown
+     */
+    public static String sniff(byte[] data, int length) {
+
+        if (data == null || length <= 0) {
+            return null;
+        }
+
+        for (Object[] signature : SIGNATURES) {
+            byte[] magic = signature[0] instanceof String ? ((String) signature[0]).getBytes(StandardCharsets.US_ASCII)
+                    : (byte[]) signature[0];
+            if (startsWith(data, length, 0, magic)) {
+                return (String) signature[1];
+            }
+        }
+
+        // RIFF containers
+        if (startsWith(data, length, 0, ascii("RIFF")) && length >= 12) {
+            String type = new String(data, 8, 4, StandardCharsets.US_ASCII);
+            switch (type) {
+            case "WEBP":
+                return "image/webp";
+            case "WAVE":
+                return "audio/wav";
+            case "AVI ":
+                return "video/x-msvideo";
+            default:
+                return null;
+            }
+        }
+
+        // ISO base media (MP4, QuickTime, HEIC, ...): size, then "ftyp" and the brand
+        if (startsWith(data, length, 4, ascii("ftyp")) && length >= 12) {
+            String brand = new String(data, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.startsWith("qt")) {
+                return "video/quicktime";
+            } else if (brand.startsWith("M4A")) {
+                return "audio/mp4";
+            } else if (brand.startsWith("heic") || brand.startsWith("heix") || brand.startsWith("mif1")) {
+                return "image/heic";
+            }
+            return "video/mp4";
+        }
+
+        if (startsWith(data, length, 0, new byte[] { 'P', 'K', 0x03, 0x04 })) {
+            return sniffZip(data, length);
+        }
+
+        if ((data[0] & 0xFF) == 0xFF && length > 1 && (data[1] & 0xE0) == 0xE0) {
+            // MPEG audio frame sync
+            return "audio/mpeg";
+        }
+
+        return sniffText(data, length);
+    }
+
+    /*
+     * Office and OpenDocument files are zips, the names of their first entries tell which format
+     */
+    protected static String sniffZip(byte[] data, int length) {
+        String head = new String(data, 0, length, StandardCharsets.ISO_8859_1);
+        if (head.startsWith("mimetype", 30)) {
+            // OpenDocument: the first entry, stored, is the mime type
+            int start = 38;
+            int end = start;
+            while (end < length && data[end] > 0x20 && data[end] < 0x7F && data[end] != 'P') {
+                end++;
+            }
+            if (end > start) {
+                return head.substring(start, end);
+            }
+        }
+        if (head.contains("word/")) {
+            return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        } else if (head.contains("xl/")) {
+            return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        } else if (head.contains("ppt/")) {
+            return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+        }
+        return "application/zip";
+    }
+
+    protected static String sniffText(byte[] data, int length) {
+        int start = 0;
+        if (startsWith(data, length, 0, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF })) {
+            start = 3;
+        }
+        for (int i = start; i < length; i++) {
+            if (data[i] == 0) {
+                return null;
+            }
+        }
+        // The probe can stop in the middle of a multi-byte character
+        int end = length;
+        while (end > start && end > length - 4 && (data[end - 1] & 0x80) != 0) {
+            end--;
+        }
+        try {
+            String text = StandardCharsets.UTF_8.newDecoder()
+                                                .onMalformedInput(CodingErrorAction.REPORT)
+                                                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                                .decode(ByteBuffer.wrap(data, start, end - start))
+                                                .toString();
+            String trimmed = text.stripLeading().toLowerCase();
+            if (trimmed.startsWith("<?xml")) {
+                return trimmed.contains("<svg") ? "image/svg+xml" : "application/xml";
+            } else if (trimmed.startsWith("<svg")) {
+                return "image/svg+xml";
+            } else if (trimmed.startsWith("<!doctype html") || trimmed.startsWith("<html")) {
+                return "text/html";
+            } else if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+                return "application/json";
+            }
+            return "text/plain";
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    protected static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    protected static boolean startsWith(byte[] data, int length, int offset, byte[] prefix) {
+        if (length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The servers holding the same files as the origin: a URL starting with the base URL of one of them can be sent to any
+ * of them, replacing the base URL.
+ * <p>
+ * Requests are balanced between the available mirrors, weighted by their recent latency (the faster, the more
+ * requests). The latencies of all the requests are also used to compute the hedging delay: the configured percentile
+ * of the recent latencies, so only the slowest requests are hedged.
+ *
+ * @since 2023.1
+ */
+public class MirrorSet {
+
+    public static final int LATENCY_SAMPLES = 512;
+
+    // Not enough data to hedge before that
+    public static final int MIN_LATENCY_SAMPLES = 20;
+
+    // The percentile is computed again after this number of new samples
+    protected static final int PERCENTILE_REFRESH = 16;
+
+    protected static final double EWMA_ALPHA = 0.2;
+
+    protected final List<Mirror> mirrors;
+
+    protected final int hedgePercentile;
+
+    protected final long hedgeMinDelayMillis;
+
+    protected final long[] samples = new long[LATENCY_SAMPLES];
+
+    protected int sampleCount = 0;
+
+    protected int nextSample = 0;
+
+    protected int sinceRefresh = 0;
+
+    protected volatile long hedgeDelayMillis = -1;
+
+    /**
+     * One server
+     */
+    public static class Mirror {
+
+        protected final String baseUrl;
+
+        // Lower case, to match the URLs
+        protected final String prefix;
+
+        protected final OriginHealth health;
+
+        // Exponentially weighted moving average of the latency, -1 if unknown
+        protected volatile double latencyMillis = -1;
+
+        public Mirror(String baseUrl, OriginHealth health) {
+            this.baseUrl = baseUrl;
+            prefix = baseUrl.toLowerCase();
+            this.health = health;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public OriginHealth getHealth() {
+            return health;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public boolean matches(String url) {
+            return url.toLowerCase().startsWith(prefix);
+        }
+
+        protected synchronized void recordLatency(long millis) {
+            latencyMillis = latencyMillis < 0 ? millis : EWMA_ALPHA * millis + (1 - EWMA_ALPHA) * latencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl;
+        }
+    }
+
+    /**
+     * @param mirrors the mirrors, the origin first
+     * @param hedgePercentile percentile of the latencies after which a request is hedged, 0 to disable hedging
+     * @param hedgeMinDelayMillis min. delay before hedging
+     */
+    public MirrorSet(List<Mirror> mirrors, int hedgePercentile, long hedgeMinDelayMillis) {
+        this.mirrors = Collections.unmodifiableList(new ArrayList<>(mirrors));
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    public List<Mirror> getMirrors() {
+        return mirrors;
+    }
+
+    /**
+     * @return the mirror serving the URL, null if none
+     */
+    public Mirror find(String url) {
+        for (Mirror mirror : mirrors) {
+            if (mirror.matches(url)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param url a URL served by one of the mirrors
+     * @return the same URL on the <code>to</code> mirror
+     */
+    public String rewrite(String url, Mirror to) {
+        Mirror from = find(url);
+        if (from == null || from == to) {
+            return url;
+        }
+        return to.baseUrl + url.substring(from.baseUrl.length());
+    }
+
+    public boolean isAnyAvailable() {
+        return mirrors.stream().anyMatch(m -> m.health.isAvailable());
+    }
+
+    /**
+     * Picks a mirror at random, weighted by the inverse of the latency. Unavailable mirrors are used only if no mirror
+     * is available.
+     *
+     * @param exclude a mirror not to pick (the one already used), or null
+     * @return the mirror, null if there is no other mirror than <code>exclude</code>
+     */
+    public Mirror pick(Mirror exclude) {
+
+        List<Mirror> candidates = new ArrayList<>();
+        for (Mirror mirror : mirrors) {
+            if (mirror != exclude && mirror.health.isAvailable()) {
+                candidates.add(mirror);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Mirror mirror : mirrors) {
+                if (mirror != exclude) {
+                    candidates.add(mirror);
+                }
+            }
+        }
+        if (candidates.size() <= 1) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+
+        // A mirror with no latency yet gets the weight of the fastest one, so it is tried
+        double fastest = candidates.stream()
+                                   .mapToDouble(Mirror::getLatencyMillis)
+                                   .filter(l -> l >= 0)
+                                   .min()
+                                   .orElse(0);
+        double[] weights = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double latency = candidates.get(i).getLatencyMillis();
+            weights[i] = 1.0 / (1 + (latency < 0 ? fastest : latency));
+            total += weights[i];
+        }
+        double r = ThreadLocalRandom.current().nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r <= 0) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    /**
+     * Records the time a mirror took to send the response headers
+     */
+    public void recordLatency(Mirror mirror, long millis) {
+        mirror.recordLatency(millis);
+        if (hedgePercentile <= 0) {
+            return;
+        }
+        synchronized (samples) {
+            samples[nextSample] = millis;
+            nextSample = (nextSample + 1) % LATENCY_SAMPLES;
+            if (sampleCount < LATENCY_SAMPLES) {
+                sampleCount++;
+            }
+            sinceRefresh++;
+            if (sampleCount >= MIN_LATENCY_SAMPLES && sinceRefresh >= PERCENTILE_REFRESH) {
+                sinceRefresh = 0;
+                long[] sorted = Arrays.copyOf(samples, sampleCount);
+                Arrays.sort(sorted);
+                int idx = (int) Math.ceil(hedgePercentile / 100.0 * sorted.length) - 1;
+                hedgeDelayMillis = Math.max(hedgeMinDelayMillis, sorted[Math.max(0, idx)]);
+            }
+        }
+    }
+
+    /**
+     * @return the time to wait for a response before sending the same request to another mirror, -1 if hedging is
+     *         disabled or if there is not enough data yet
+     */
+    public long getHedgeDelayMillis() {
+        return mirrors.size() > 1 ? hedgeDelayMillis : -1;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, for a short time, the URLs for which the remote server returned an error, so the same URL is not requested
+ * again and again.
+ * <p>
+ * The time to live depends on the class of the error:
+ * <ul>
+ * <li>Not found (404, 410)</li>
+ * <li>Forbidden (401, 403)</li>
+ * <li>Server error (5xx)</li>
+ * </ul>
+ * Other errors are not cached.
+ *
+ * @since 2023.1
+ */
+public class NegativeCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    protected final long notFoundTtlMillis;
+
+    protected final long forbiddenTtlMillis;
+
+    protected final long serverErrorTtlMillis;
+
+    protected final int maxEntries;
+
+    protected final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * A failed URL
+     */
+    public static class Entry {
+
+        public final int status;
+
+        public final long expires;
+
+        public Entry(int status, long expires) {
+            this.status = status;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * @param notFoundTtl time to live, in seconds, for "not found" errors
+     * @param forbiddenTtl time to live, in seconds, for "forbidden" errors
+     * @param serverErrorTtl time to live, in seconds, for 5xx errors
+     */
+    public NegativeCache(long notFoundTtl, long forbiddenTtl, long serverErrorTtl) {
+        this(notFoundTtl, forbiddenTtl, serverErrorTtl, DEFAULT_MAX_ENTRIES);
+    }
+
+    public NegativeCache(long notFoundTtl, long forbiddenTtl, long serverErrorTtl, int maxEntries) {
+        notFoundTtlMillis = notFoundTtl * 1000;
+        forbiddenTtlMillis = forbiddenTtl * 1000;
+        serverErrorTtlMillis = serverErrorTtl * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the time to live for this status, 0 if it must not be cached
+     */
+    public long getTtlMillis(int status) {
+        switch (status) {
+        case HttpURLConnection.HTTP_NOT_FOUND:
+        case HttpURLConnection.HTTP_GONE:
+            return notFoundTtlMillis;
+
+        case HttpURLConnection.HTTP_UNAUTHORIZED:
+        case HttpURLConnection.HTTP_FORBIDDEN:
+            return forbiddenTtlMillis;
+
+        default:
+            return status >= 500 && status < 600 ? serverErrorTtlMillis : 0;
+        }
+    }
+
+    public void recordFailure(String url, int status) {
+        long ttl = getTtlMillis(status);
+        if (ttl <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                // Not worth a LRU, the entries are short-lived anyway
+                entries.clear();
+            }
+        }
+        entries.put(url, new Entry(status, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * @return the failure for this URL, or null if there is none or if it expired
+     */
+    public Entry get(String url) {
+        Entry entry = entries.get(url);
+        if (entry != null && entry.expires <= System.currentTimeMillis()) {
+            entries.remove(url, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void remove(String url) {
+        entries.remove(url);
+    }
+
+    public void removeByPrefix(String prefix) {
+        entries.keySet().removeIf(url -> url.startsWith(prefix));
+    }
+
+    /**
+     * Forgets the 401 and 403 errors, when the credentials changed
+     */
+    public void removeForbidden() {
+        entries.values()
+               .removeIf(entry -> entry.status == HttpURLConnection.HTTP_UNAUTHORIZED
+                       || entry.status == HttpURLConnection.HTTP_FORBIDDEN);
+    }
+
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expires <= now);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+}
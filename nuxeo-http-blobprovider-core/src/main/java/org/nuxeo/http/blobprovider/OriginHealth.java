@@ -0,0 +1,124 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Availability of a remote server, as seen by the health probe of {@link HttpBlobProvider}.
+ * <p>
+ * The server is considered down after <code>failureThreshold</code> consecutive failed probes, and up again as soon as
+ * one probe succeeds. Any HTTP response below 500 is a success: the server answered, even if the probed URL itself
+ * requires authentication or does not exist.
+ *
+ * @since 2023.1
+ */
+public class OriginHealth {
+
+    private static final Logger log = LogManager.getLogger(OriginHealth.class);
+
+    protected final String baseUrl;
+
+    protected final String probeUrl;
+
+    protected final int failureThreshold;
+
+    protected volatile boolean available = true;
+
+    protected volatile int consecutiveFailures = 0;
+
+    protected volatile long lastCheck = 0;
+
+    protected volatile long lastLatencyMillis = -1;
+
+    protected volatile String lastError;
+
+    /**
+     * @param baseUrl the URLs starting with this prefix are served by this server (lower case)
+     * @param probeUrl the URL used to check the server
+     * @param failureThreshold number of consecutive failures before the server is considered down
+     */
+    public OriginHealth(String baseUrl, String probeUrl, int failureThreshold) {
+        this.baseUrl = baseUrl;
+        this.probeUrl = probeUrl;
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getProbeUrl() {
+        return probeUrl;
+    }
+
+    /**
+     * @return true if the URL is served by this server
+     */
+    public boolean matches(String url) {
+        return url.toLowerCase().startsWith(baseUrl);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getLastCheck() {
+        return lastCheck;
+    }
+
+    /**
+     * @return the duration of the last successful probe, -1 if none
+     */
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public synchronized void recordSuccess(long latencyMillis) {
+        lastCheck = System.currentTimeMillis();
+        lastLatencyMillis = latencyMillis;
+        consecutiveFailures = 0;
+        lastError = null;
+        if (!available) {
+            available = true;
+            log.info("Remote server " + baseUrl + " is available again");
+        }
+    }
+
+    public synchronized void recordFailure(String error) {
+        lastCheck = System.currentTimeMillis();
+        lastError = error;
+        consecutiveFailures++;
+        if (available && consecutiveFailures >= failureThreshold) {
+            available = false;
+            log.warn("Remote server " + baseUrl + " is not available (" + consecutiveFailures
+                    + " failed checks): " + error);
+        }
+    }
+
+}
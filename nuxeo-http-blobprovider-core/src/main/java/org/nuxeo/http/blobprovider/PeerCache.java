@@ -0,0 +1,393 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A peer tier between the local cache and the origin, for clusters without a shared filesystem: each digest has an
+ * owner node, chosen by consistent hashing. A node that does not have a file asks its owner, which serves it from its
+ * cache, or downloads it from the origin first. So each file is downloaded once for the cluster, and the cache of the
+ * cluster is the sum of the caches of the nodes.
+ * <p>
+ * Each node serves its cache with the HTTP server of the JDK:
+ * <code>GET /httpblobprovider/{provider}/{digest}?url=</code>, authenticated with a secret shared by the nodes. A file
+ * received from a peer is checked (length, checksums) before it is used. Any failure of a peer (down, timeout, error,
+ * corrupted file) falls back to the origin; a peer that cannot be reached is skipped for {@link #RETRY_DELAY}.
+ *
+ * @since 2023.1
+ */
+public class PeerCache {
+
+    private static final Logger log = LogManager.getLogger(PeerCache.class);
+
+    public static final String CONTEXT_PATH = "/httpblobprovider/";
+
+    public static final String HEADER_SECRET = "X-HttpBlobProvider-Peer-Secret";
+
+    public static final long RETRY_DELAY = 30_000; // ms
+
+    protected static final int VIRTUAL_NODES = 100;
+
+    protected static final int MAX_CONNECT_TIMEOUT = 1000; // ms
+
+    protected static final int SERVER_THREADS = 16;
+
+    /**
+     * Gives the file of a digest to a peer
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * @param url the URL of the file, to download it from the origin if it is not cached (or not fresh). Can be
+         *            null
+         * @return the entry, null if it is not cached and cannot, or must not, be downloaded
+         */
+        CacheEntry get(String digest, String url) throws IOException;
+    }
+
+    protected final String providerId;
+
+    protected final Source source;
+
+    protected final byte[] secret;
+
+    protected final int timeout;
+
+    protected volatile NavigableMap<Long, String> ring = new TreeMap<>();
+
+    protected volatile String self;
+
+    // Peers that recently failed, until when they are skipped
+    protected final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+
+    protected HttpServer server;
+
+    protected ExecutorService executor;
+
+    protected final AtomicLong served = new AtomicLong();
+
+    protected final AtomicLong fetched = new AtomicLong();
+
+    protected final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param secret sent and checked in {@link #HEADER_SECRET}, required: without it, anyone reaching the port could
+     *            make the owner download a file with the credentials of the provider
+     * @param timeoutMillis the read timeout of the requests to the peers (the owner may download the file from the
+     *            origin first)
+     */
+    public PeerCache(String providerId, Source source, String secret, int timeoutMillis) {
+        if (StringUtils.isEmpty(secret)) {
+            throw new IllegalArgumentException("The peers of blob provider " + providerId + " require a secret");
+        }
+        this.providerId = providerId;
+        this.source = source;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        timeout = timeoutMillis;
+    }
+
+    /**
+     * Starts serving the cache to the peers
+     *
+     * @return the port, useful when <code>address</code> has port 0
+     */
+    public int start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        executor = Executors.newFixedThreadPool(SERVER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Nuxeo-HttpBlobProvider-" + providerId + "-peer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT_PATH + providerId + "/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @param peers the base URLs of all the nodes, this one included: <code>http://node1:8899</code>
+     * @param self the URL of this node in the list, null to find it from the port the server listens to
+     */
+    public void setPeers(List<String> peers, String self) {
+        NavigableMap<Long, String> newRing = new TreeMap<>();
+        for (String peer : peers) {
+            String url = StringUtils.removeEnd(peer.trim(), "/");
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                newRing.put(HttpBlobCache.hash(url + "#" + i), url);
+            }
+        }
+        String selfUrl = self == null ? findSelf(newRing.values()) : StringUtils.removeEnd(self.trim(), "/");
+        if (selfUrl == null || !newRing.containsValue(selfUrl)) {
+            log.warn("Blob provider " + providerId + ": this node is not in the peers " + peers
+                    + ", its cache is not used by the other nodes");
+        }
+        this.self = selfUrl;
+        ring = newRing;
+    }
+
+    /*
+     * The peer with the port we listen to and a local address
+     */
+    protected String findSelf(Iterable<String> peers) {
+        if (server == null) {
+            return null;
+        }
+        int port = server.getAddress().getPort();
+        for (String peer : peers) {
+            try {
+                URI uri = new URI(peer);
+                if (uri.getPort() == port) {
+                    InetAddress address = InetAddress.getByName(uri.getHost());
+                    if (address.isLoopbackAddress() || address.isAnyLocalAddress()
+                            || NetworkInterface.getByInetAddress(address) != null) {
+                        return peer;
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Cannot resolve peer " + peer + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the URL of the owner of the digest, null if there are no peers
+     */
+    public String ownerOf(String digest) {
+        NavigableMap<Long, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = current.ceilingEntry(HttpBlobCache.hash(digest));
+        return entry == null ? current.firstEntry().getValue() : entry.getValue();
+    }
+
+    /**
+     * Downloads the file from its owner, unless this node is the owner
+     *
+     * @param url the URL of the file, so the owner can download it from the origin
+     * @return the connection to the owner (for the headers of the file), null if the file must be downloaded from the
+     *         origin
+     */
+    public HttpURLConnection download(String digest, String url, File file) {
+        return download(digest, url, file, Map.of());
+    }
+
+    /**
+     * Downloads the file from its owner, unless this node is the owner. The file is checked against its length and
+     * the checksums sent by the owner, and against the expected ones.
+     *
+     * @param url the URL of the file, so the owner can download it from the origin
+     * @param expected the checksums the file must have, by algorithm (the digest of the blob when it is a hash of the
+     *            content), can be empty
+     * @return the connection to the owner (for the headers of the file), null if the file must be downloaded from the
+     *         origin
+     */
+    public HttpURLConnection download(String digest, String url, File file, Map<String, byte[]> expected) {
+
+        String owner = ownerOf(digest);
+        if (owner == null || owner.equals(self)) {
+            return null;
+        }
+        Long until = downUntil.get(owner);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                return null;
+            }
+            downUntil.remove(owner, until);
+        }
+
+        try {
+            String query = url == null ? "" : "?url=" + URLEncoder.encode(url, StandardCharsets.UTF_8);
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    owner + CONTEXT_PATH + providerId + "/" + digest + query).openConnection();
+            connection.setConnectTimeout(Math.min(MAX_CONNECT_TIMEOUT, timeout));
+            connection.setReadTimeout(timeout);
+            connection.setRequestProperty(HEADER_SECRET, new String(secret, StandardCharsets.UTF_8));
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                connection.disconnect();
+                failed.incrementAndGet();
+                if (status != HttpURLConnection.HTTP_NOT_FOUND) {
+                    log.warn("Peer " + owner + " returned " + status + " for " + digest);
+                }
+                return null;
+            }
+            Map<String, byte[]> checksums = VerifyingInputStream.getExpectedChecksums(connection);
+            expected.forEach(checksums::putIfAbsent);
+            try (VerifyingInputStream in = new VerifyingInputStream(connection.getInputStream(),
+                    owner + " for " + digest, connection.getContentLengthLong(), checksums);
+                    OutputStream out = new FileOutputStream(file)) {
+                IOUtils.copyLarge(in, out);
+                in.verify();
+            }
+            fetched.incrementAndGet();
+            return connection;
+        } catch (VerifyingInputStream.IntegrityException e) {
+            // The peer is up, the origin will send the right file
+            failed.incrementAndGet();
+            log.warn(e.getMessage());
+            return null;
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            downUntil.put(owner, System.currentTimeMillis() + RETRY_DELAY);
+            log.warn("Cannot get " + digest + " from peer " + owner + ", skipping it for " + RETRY_DELAY / 1000
+                    + "s: " + e.getMessage());
+            return null;
+        }
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+            String sent = exchange.getRequestHeaders().getFirst(HEADER_SECRET);
+            if (sent == null || !MessageDigest.isEqual(secret, sent.getBytes(StandardCharsets.UTF_8))) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_FORBIDDEN, -1);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String digest = path.substring(CONTEXT_PATH.length() + providerId.length() + 1);
+            String url = null;
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null && query.startsWith("url=")) {
+                url = URLDecoder.decode(query.substring(4), StandardCharsets.UTF_8);
+            }
+            if (StringUtils.isEmpty(digest) || digest.contains("/")) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                return;
+            }
+
+            CacheEntry entry;
+            try {
+                entry = source.get(digest, url);
+            } catch (FileNotFoundException e) {
+                entry = null;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot serve " + digest + " to a peer: " + e.getMessage());
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_GATEWAY, -1);
+                return;
+            }
+            InputStream in = open(entry);
+            if (in == null) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+            try (in) {
+                if (entry.getEtag() != null) {
+                    exchange.getResponseHeaders().set("ETag", entry.getEtag());
+                }
+                if (entry.getLastModified() != null) {
+                    exchange.getResponseHeaders().set("Last-Modified", entry.getLastModified());
+                }
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, entry.getLength());
+                IOUtils.copyLarge(in, exchange.getResponseBody());
+                served.incrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Opened before the headers are sent, the file can be evicted in the meantime
+     */
+    protected InputStream open(CacheEntry entry) {
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return new FileInputStream(entry.getFile());
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * @return the number of files served to the other nodes
+     */
+    public long getServedCount() {
+        return served.get();
+    }
+
+    /**
+     * @return the number of files downloaded from the other nodes
+     */
+    public long getFetchedCount() {
+        return fetched.get();
+    }
+
+    /**
+     * @return the number of failed requests to the other nodes (the file was then downloaded from the origin)
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.Serializable;
+
+/**
+ * A blob created with metadata derived from its URL, waiting for the {@link ResolveBlobMetadataWork} to fetch the real
+ * ones from the remote server.
+ * <p>
+ * The defaults given at creation are kept, so the resolver only replaces a value that was not changed in the meantime.
+ * Serialized with the work, nothing is kept on the node.
+ *
+ * @since 2023.1
+ */
+public class PendingMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final String key;
+
+    protected final String url;
+
+    protected final String defaultMimeType;
+
+    protected final String defaultFilename;
+
+    protected final long created;
+
+    public PendingMetadata(String key, String url, String defaultMimeType, String defaultFilename) {
+        this.key = key;
+        this.url = url;
+        this.defaultMimeType = defaultMimeType;
+        this.defaultFilename = defaultFilename;
+        created = System.currentTimeMillis();
+    }
+
+    /**
+     * The key of the blob (provider id + URL)
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getDefaultMimeType() {
+        return defaultMimeType;
+    }
+
+    public String getDefaultFilename() {
+        return defaultFilename;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+}
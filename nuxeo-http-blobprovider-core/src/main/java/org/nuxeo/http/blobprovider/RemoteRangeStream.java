@@ -0,0 +1,219 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stream on a byte range of a remote file, opened at the first read unless {@link #open()} is called: a caller that
+ * skips first only fetches what it reads. The blob provider opens it before returning it, so its errors are thrown
+ * by {@code getStream}.
+ * <p>
+ * A large skip after the stream was opened closes it and opens a new one at the new position, instead of reading and
+ * discarding the bytes in between. Small skips read through, a new request would cost more.
+ *
+ * @since 2023.1
+ */
+public class RemoteRangeStream extends InputStream {
+
+    public static final long DEFAULT_SKIP_THRESHOLD = 256 * 1024;
+
+    /**
+     * Opens the stream on a range
+     */
+    @FunctionalInterface
+    public interface Opener {
+
+        /**
+         * @param offset the first byte
+         * @param length the number of bytes, -1 for up to the end of the file
+         * @return the stream, starting at offset. It may return more than length bytes, and an empty stream if offset
+         *         is after the end of the file
+         */
+        InputStream open(long offset, long length) throws IOException;
+    }
+
+    protected final Opener opener;
+
+    // Exclusive, -1 if up to the end of the file
+    protected final long end;
+
+    protected final long skipThreshold;
+
+    protected long position;
+
+    protected InputStream current;
+
+    protected boolean eof;
+
+    protected boolean closed;
+
+    protected int openedCount;
+
+    public RemoteRangeStream(Opener opener) {
+        this(opener, 0, -1, DEFAULT_SKIP_THRESHOLD);
+    }
+
+    /**
+     * @param offset the first byte
+     * @param length the number of bytes, -1 for up to the end of the file
+     * @param skipThreshold skips of at least this many bytes reopen the stream
+     */
+    public RemoteRangeStream(Opener opener, long offset, long length, long skipThreshold) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset: " + offset);
+        }
+        this.opener = opener;
+        this.skipThreshold = skipThreshold;
+        position = offset;
+        end = length < 0 ? -1 : offset + length;
+    }
+
+    /**
+     * Opens the stream at the current position, if not already done. Useful to get the errors now rather than at the
+     * first read.
+     */
+    public void open() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null || eof) {
+            return;
+        }
+        long remaining = getRemaining();
+        if (remaining == 0) {
+            eof = true;
+            return;
+        }
+        current = opener.open(position, remaining);
+        openedCount++;
+    }
+
+    @Override
+    public int read() throws IOException {
+        open();
+        if (eof || getRemaining() == 0) {
+            eof = true;
+            return -1;
+        }
+        int b = current.read();
+        if (b < 0) {
+            eof = true;
+        } else {
+            position++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        open();
+        long remaining = getRemaining();
+        if (eof || remaining == 0) {
+            eof = true;
+            return -1;
+        }
+        if (remaining > 0 && remaining < len) {
+            len = (int) remaining;
+        }
+        int read = current.read(b, off, len);
+        if (read < 0) {
+            eof = true;
+        } else {
+            position += read;
+        }
+        return read;
+    }
+
+    /**
+     * Before the first read, only moves the position. After, reads through small skips and reopens the stream for
+     * large ones. A skip after the end of the file returns n, the next read returns -1.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || eof) {
+            return 0;
+        }
+        if (end >= 0) {
+            n = Math.min(n, end - position);
+        }
+        if (current != null && n < skipThreshold) {
+            return readThrough(n);
+        }
+        closeCurrent();
+        position += n;
+        return n;
+    }
+
+    protected long readThrough(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null || eof ? 0 : current.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        closeCurrent();
+    }
+
+    protected void closeCurrent() throws IOException {
+        InputStream stream = current;
+        current = null;
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /*
+     * -1 if unknown
+     */
+    protected long getRemaining() {
+        return end < 0 ? -1 : Math.max(0, end - position);
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the number of times the stream was opened, that is the number of requests to the remote server (or
+     *         to the cache)
+     */
+    public int getOpenedCount() {
+        return openedCount;
+    }
+
+}
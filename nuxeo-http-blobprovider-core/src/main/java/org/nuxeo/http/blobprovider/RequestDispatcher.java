@@ -0,0 +1,289 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sends the requests to the URLs served by the origin: each request goes to one of the mirrors (the origin is one of
+ * them), and, if it fails (error or 5xx), to another one. When hedging is enabled and the mirror is slower than usual,
+ * the same request is sent to another mirror, the first successful response wins and the other request is cancelled.
+ * <p>
+ * The hedged requests run on their own executor: the fetch threads waiting for them cannot starve the pool running
+ * them.
+ *
+ * @since 2023.1
+ */
+public class RequestDispatcher {
+
+    /**
+     * Sets more request headers before the request is sent
+     */
+    @FunctionalInterface
+    public interface RequestCustomizer {
+        void customize(HttpURLConnection connection) throws IOException;
+    }
+
+    /**
+     * How the connections are opened and sent
+     */
+    public interface Transport {
+
+        /**
+         * @param url the URL of the blob, for the headers and the negative cache
+         * @param targetUrl the same URL on the mirror
+         * @return the connection, not sent yet
+         */
+        HttpURLConnection open(String url, String targetUrl, String method) throws IOException;
+
+        /**
+         * Sends the request and reads the response code
+         */
+        int send(HttpURLConnection connection) throws IOException;
+    }
+
+    protected final MirrorSet mirrors;
+
+    protected final Transport transport;
+
+    protected final Executor hedgeExecutor;
+
+    /**
+     * @param hedgeExecutor runs the hedged requests, must not be the executor of the callers
+     */
+    public RequestDispatcher(MirrorSet mirrors, Transport transport, Executor hedgeExecutor) {
+        this.mirrors = mirrors;
+        this.transport = transport;
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    public MirrorSet getMirrors() {
+        return mirrors;
+    }
+
+    /**
+     * Sends the request and reads the response code (available with <code>connection.getResponseCode()</code>
+     * without blocking). A 5xx is returned if all the mirrors failed.
+     *
+     * @param url a URL served by one of the mirrors
+     */
+    public HttpURLConnection send(String url, String method, RequestCustomizer customizer) throws IOException {
+
+        MirrorSet.Mirror first = mirrors.pick(null);
+        long hedgeDelay = mirrors.getHedgeDelayMillis();
+        if (hedgeDelay > 0) {
+            return sendHedged(url, method, customizer, first, hedgeDelay);
+        }
+
+        HttpURLConnection connection;
+        try {
+            connection = sendToMirror(url, method, customizer, first, null);
+        } catch (FileNotFoundException e) {
+            // The negative cache
+            throw e;
+        } catch (IOException e) {
+            return failover(url, method, customizer, first, e);
+        }
+        return isServerError(connection) ? failover(url, method, customizer, first, connection) : connection;
+    }
+
+    /*
+     * Same request to another mirror. If there is none, the first result is returned (or thrown)
+     */
+    protected HttpURLConnection failover(String url, String method, RequestCustomizer customizer,
+            MirrorSet.Mirror failed, Object firstResult) throws IOException {
+
+        MirrorSet.Mirror other = mirrors.pick(failed);
+        if (other == null) {
+            if (firstResult instanceof IOException) {
+                throw (IOException) firstResult;
+            }
+            return (HttpURLConnection) firstResult;
+        }
+        if (firstResult instanceof HttpURLConnection) {
+            ((HttpURLConnection) firstResult).disconnect();
+        }
+        return sendToMirror(url, method, customizer, other, null);
+    }
+
+    /*
+     * The request is sent to the first mirror. If it did not answer after the delay, it is sent to a second one
+     */
+    protected HttpURLConnection sendHedged(String url, String method, RequestCustomizer customizer,
+            MirrorSet.Mirror first, long delayMillis) throws IOException {
+
+        AtomicReference<HttpURLConnection> firstConnection = new AtomicReference<>();
+        CompletableFuture<HttpURLConnection> primary = supplyAsync(
+                () -> sendToMirror(url, method, customizer, first, firstConnection::set));
+        HttpURLConnection early = null;
+        try {
+            early = primary.get(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Hedge below
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            }
+            return failover(url, method, customizer, first,
+                    cause instanceof IOException ? cause : new IOException(cause));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.thenAccept(HttpURLConnection::disconnect);
+            throw new InterruptedIOException();
+        }
+        if (early != null) {
+            return isServerError(early) ? failover(url, method, customizer, first, early) : early;
+        }
+
+        MirrorSet.Mirror second = mirrors.pick(first);
+        if (second == null) {
+            return join(primary);
+        }
+        FetchTracing.putAttribute(FetchTracing.ATTR_HEDGED, second.getBaseUrl());
+        AtomicReference<HttpURLConnection> secondConnection = new AtomicReference<>();
+        CompletableFuture<HttpURLConnection> secondary = supplyAsync(
+                () -> sendToMirror(url, method, customizer, second, secondConnection::set));
+
+        // First successful response wins. A 5xx is a failure: if both fail, the last result is returned (or thrown)
+        CompletableFuture<HttpURLConnection> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<HttpURLConnection, Throwable> onComplete = (connection, error) -> {
+            if (error == null && !isServerError(connection)) {
+                winner.complete(connection);
+            } else if (failures.incrementAndGet() == 2) {
+                if (error == null) {
+                    winner.complete(connection);
+                } else {
+                    winner.completeExceptionally(error);
+                }
+            }
+            // Too late, the other request won
+            if (connection != null && winner.isDone()
+                    && (winner.isCompletedExceptionally() || winner.join() != connection)) {
+                connection.disconnect();
+            }
+        };
+        primary.whenComplete(onComplete);
+        secondary.whenComplete(onComplete);
+
+        HttpURLConnection result = null;
+        try {
+            result = join(winner);
+            return result;
+        } finally {
+            // The other request is cancelled
+            for (HttpURLConnection connection : new HttpURLConnection[] { firstConnection.get(),
+                    secondConnection.get() }) {
+                if (connection != null && connection != result) {
+                    connection.disconnect();
+                }
+            }
+        }
+    }
+
+    /*
+     * One request to one mirror, its latency and errors feed the health of the mirror
+     */
+    protected HttpURLConnection sendToMirror(String url, String method, RequestCustomizer customizer,
+            MirrorSet.Mirror mirror, Consumer<HttpURLConnection> onOpen) throws IOException {
+
+        String targetUrl = mirrors.rewrite(url, mirror);
+        long start = System.currentTimeMillis();
+        HttpURLConnection connection = transport.open(url, targetUrl, method);
+        if (customizer != null) {
+            customizer.customize(connection);
+        }
+        if (onOpen != null) {
+            onOpen.accept(connection);
+        }
+        try {
+            int responseCode = transport.send(connection);
+            long latency = System.currentTimeMillis() - start;
+            if (responseCode >= 500) {
+                mirror.getHealth().recordFailure("HTTP " + responseCode);
+            } else {
+                mirror.getHealth().recordSuccess(latency);
+                mirrors.recordLatency(mirror, latency);
+            }
+        } catch (IOException e) {
+            mirror.getHealth().recordFailure(e.toString());
+            throw e;
+        }
+        return connection;
+    }
+
+    /*
+     * On the hedge executor, in the current span and with the forced priority of the caller
+     */
+    protected CompletableFuture<HttpURLConnection> supplyAsync(Callable<HttpURLConnection> callable) {
+        FetchPriority priority = FetchPriority.getForced();
+        Callable<HttpURLConnection> call = FetchTracing.withCurrentSpan(
+                priority == null ? callable : () -> FetchPriority.runAs(priority, callable));
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, hedgeExecutor);
+    }
+
+    protected static HttpURLConnection join(CompletableFuture<HttpURLConnection> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    protected static Throwable unwrap(Exception e) {
+        return e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+    }
+
+    /*
+     * The response code is already read
+     */
+    protected static boolean isServerError(HttpURLConnection connection) {
+        try {
+            return connection.getResponseCode() >= 500;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+}
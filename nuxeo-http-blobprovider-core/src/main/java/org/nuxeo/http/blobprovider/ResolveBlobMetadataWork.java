@@ -0,0 +1,274 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.model.Property;
+import org.nuxeo.ecm.core.api.repository.RepositoryManager;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.utils.BlobsExtractor;
+import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Fetches the real metadata (mime type, file name, length, encoding) of the blobs created with URL-derived defaults
+ * when the provider defers the metadata resolution, and updates the documents holding these blobs.
+ * <p>
+ * One work per batch: it carries the keys and URLs of its blobs, so nothing is lost if the node stops before it runs.
+ * The HEAD requests of the batch run in parallel, then the documents are found with one query on
+ * <code>ecm:blobKeys</code>, updated and saved in their own transaction. The blobs not found in any document (their
+ * document is not committed yet, or the blob was never stored) or whose remote server failed are retried by a new
+ * work, after a delay and up to {@link #MAX_ATTEMPTS} attempts. The provider schedules the retry when it is due, a
+ * worker thread never waits for it.
+ *
+ * @since 2023.1
+ */
+public class ResolveBlobMetadataWork extends AbstractWork {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LogManager.getLogger(ResolveBlobMetadataWork.class);
+
+    public static final String CATEGORY = "httpBlobProviderMetadata";
+
+    public static final int MAX_ATTEMPTS = 10;
+
+    // The resolver updates technical metadata, not a user modification
+    protected static final String DISABLE_DUBLINCORE_LISTENER = "disableDublinCoreListener";
+
+    protected final String providerId;
+
+    protected final ArrayList<PendingMetadata> pending;
+
+    // 0 for the first attempt
+    protected final int attempt;
+
+    // For the retries, not run before this time (ms)
+    protected final long notBefore;
+
+    public ResolveBlobMetadataWork(String providerId, List<PendingMetadata> pending, int attempt, long notBefore) {
+        this.providerId = providerId;
+        this.pending = new ArrayList<>(pending);
+        this.attempt = attempt;
+        this.notBefore = notBefore;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Resolve the metadata of " + pending.size() + " blobs of provider " + providerId;
+    }
+
+    @Override
+    public String getCategory() {
+        return CATEGORY;
+    }
+
+    @Override
+    public void work() {
+
+        HttpBlobProvider provider = getProvider();
+        if (provider == null) {
+            return;
+        }
+        if (notBefore > System.currentTimeMillis()) {
+            // Run too early (read back from the queue after a restart for example): scheduled again when due
+            provider.scheduleWorkAt(new ResolveBlobMetadataWork(providerId, pending, attempt, notBefore), notBefore);
+            return;
+        }
+
+        setStatus("Resolving " + pending.size() + " blobs, attempt " + (attempt + 1));
+        List<PendingMetadata> retries = new ArrayList<>();
+        int resolved = resolveBatch(provider, pending, retries);
+        log.debug("Provider " + providerId + ": resolved the metadata of " + resolved + " blobs out of "
+                + pending.size());
+        retry(provider, retries);
+    }
+
+    protected HttpBlobProvider getProvider() {
+        return (HttpBlobProvider) Framework.getService(BlobManager.class).getBlobProvider(providerId);
+    }
+
+    /*
+     * Returns the number of blobs updated, adds the ones to retry to retries
+     */
+    protected int resolveBatch(HttpBlobProvider provider, List<PendingMetadata> batch,
+            List<PendingMetadata> retries) {
+
+        // HEAD requests in parallel
+        Map<PendingMetadata, CompletableFuture<BlobInfo>> futures = new HashMap<>();
+        for (PendingMetadata p : batch) {
+            futures.put(p, provider.supplyAsync(() -> provider.guessInfosFromURL(p.getUrl())));
+        }
+        Map<String, PendingMetadata> byKey = new HashMap<>();
+        Map<String, BlobInfo> infos = new HashMap<>();
+        for (Map.Entry<PendingMetadata, CompletableFuture<BlobInfo>> entry : futures.entrySet()) {
+            PendingMetadata p = entry.getKey();
+            BlobInfo info = entry.getValue().exceptionally(e -> null).join();
+            if (info == null) {
+                log.debug("Cannot resolve the metadata of " + p.getUrl() + ": the remote server did not answer");
+                retries.add(p);
+            } else {
+                byKey.put(p.getKey(), p);
+                infos.put(p.getKey(), info);
+            }
+        }
+        if (infos.isEmpty()) {
+            return 0;
+        }
+
+        // Update the documents, in their own transaction
+        Set<String> found = new HashSet<>();
+        if (TransactionHelper.isTransactionActive()) {
+            TransactionHelper.commitOrRollbackTransaction();
+        }
+        TransactionHelper.startTransaction();
+        try {
+            for (String repositoryName : Framework.getService(RepositoryManager.class).getRepositoryNames()) {
+                CoreInstance.doPrivileged(repositoryName,
+                        (CoreSession session) -> updateDocuments(session, byKey, infos, found));
+            }
+        } catch (RuntimeException e) {
+            TransactionHelper.setTransactionRollbackOnly();
+            throw e;
+        } finally {
+            TransactionHelper.commitOrRollbackTransaction();
+            TransactionHelper.startTransaction();
+        }
+
+        for (PendingMetadata p : byKey.values()) {
+            if (!found.contains(p.getKey())) {
+                log.debug("Cannot resolve the metadata of " + p.getUrl() + ": not stored in a document yet");
+                retries.add(p);
+            }
+        }
+        return found.size();
+    }
+
+    protected void updateDocuments(CoreSession session, Map<String, PendingMetadata> byKey,
+            Map<String, BlobInfo> infos, Set<String> found) {
+
+        String keys = byKey.keySet().stream().map(ResolveBlobMetadataWork::quote).collect(Collectors.joining(", "));
+        String query = "SELECT * FROM Document WHERE ecm:blobKeys IN (" + keys
+                + ") AND ecm:isVersion = 0 AND ecm:isProxy = 0";
+
+        BlobsExtractor extractor = new BlobsExtractor();
+        for (DocumentModel doc : session.query(query)) {
+            boolean modified = false;
+            for (Property property : extractor.getBlobsProperties(doc)) {
+                Object value = property.getValue();
+                if (!(value instanceof ManagedBlob)) {
+                    continue;
+                }
+                ManagedBlob blob = (ManagedBlob) value;
+                PendingMetadata p = byKey.get(blob.getKey());
+                if (p == null) {
+                    continue;
+                }
+                property.setValue(merge(blob, p, infos.get(blob.getKey())));
+                found.add(blob.getKey());
+                modified = true;
+            }
+            if (modified) {
+                doc.putContextData(DISABLE_DUBLINCORE_LISTENER, Boolean.TRUE);
+                session.saveDocument(doc);
+            }
+        }
+    }
+
+    /*
+     * A value is replaced only if it still is the default given at creation
+     */
+    protected Blob merge(ManagedBlob blob, PendingMetadata p, BlobInfo guessed) {
+
+        BlobInfo info = new BlobInfo();
+        info.key = blob.getKey();
+        info.digest = blob.getDigest();
+        info.mimeType = blob.getMimeType();
+        info.filename = blob.getFilename();
+        info.encoding = blob.getEncoding();
+        info.length = blob.getLength();
+
+        if (guessed.mimeType != null && (info.mimeType == null || info.mimeType.equals(p.getDefaultMimeType()))) {
+            info.mimeType = guessed.mimeType;
+        }
+        if (guessed.filename != null && (info.filename == null || info.filename.equals(p.getDefaultFilename()))) {
+            info.filename = guessed.filename;
+        }
+        if (info.encoding == null) {
+            info.encoding = guessed.encoding;
+        }
+        if (info.length < 0 && guessed.length != null) {
+            info.length = guessed.length;
+        }
+
+        return new SimpleManagedBlob(info);
+    }
+
+    /*
+     * In a new work, so the retries survive a restart of the node
+     */
+    protected void retry(HttpBlobProvider provider, List<PendingMetadata> retries) {
+        if (retries.isEmpty()) {
+            return;
+        }
+        if (attempt + 1 < MAX_ATTEMPTS) {
+            provider.scheduleMetadataResolution(retries, attempt + 1);
+        } else {
+            for (PendingMetadata p : retries) {
+                log.warn("Giving up resolving the metadata of " + p.getUrl() + " after " + MAX_ATTEMPTS
+                        + " attempts");
+            }
+        }
+    }
+
+    public List<PendingMetadata> getPending() {
+        return pending;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getNotBefore() {
+        return notBefore;
+    }
+
+    protected static String quote(String key) {
+        return "'" + key.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+}
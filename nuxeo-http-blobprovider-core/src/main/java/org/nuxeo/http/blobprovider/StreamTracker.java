@@ -0,0 +1,315 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps track of the streams returned to the callers when the cache is not used: each one holds a connection to the
+ * remote server (and a fetch slot) until it is closed.
+ * <ul>
+ * <li>Closing the stream releases the connection: kept alive for the next request if the body was fully read, else
+ * disconnected, since it cannot be reused</li>
+ * <li>A stream not read for more than the idle timeout, or open for more than the max. duration, is aborted by
+ * {@link #reap()}, called periodically: its connection is closed and the next read fails</li>
+ * <li>A stream garbage collected without being closed is a leak: it is reported, with the place where it was created
+ * when leak detection is enabled, and its connection is closed</li>
+ * </ul>
+ *
+ * @since 2023.1
+ */
+public class StreamTracker {
+
+    private static final Logger log = LogManager.getLogger(StreamTracker.class);
+
+    // One thread for all the providers
+    protected static final Cleaner CLEANER = Cleaner.create();
+
+    protected final String name;
+
+    protected final long idleTimeoutMillis;
+
+    protected final long maxDurationMillis;
+
+    protected final boolean leakDetection;
+
+    // Not the streams themselves, so they can be garbage collected when leaked
+    protected final Set<State> open = ConcurrentHashMap.newKeySet();
+
+    protected final AtomicLong openedCount = new AtomicLong();
+
+    protected final AtomicLong abortedCount = new AtomicLong();
+
+    protected final AtomicLong leakedCount = new AtomicLong();
+
+    /**
+     * Thrown by the read methods of an aborted stream
+     */
+    public static class StreamAbortedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public StreamAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    /*
+     * What must be released, shared by the stream and its cleaner
+     */
+    protected class State implements Runnable {
+
+        protected final HttpURLConnection connection;
+
+        protected final String url;
+
+        protected final Runnable onRelease;
+
+        protected final long created = System.currentTimeMillis();
+
+        // Where the stream was created, null if leak detection is disabled
+        protected final Throwable allocationSite;
+
+        protected final AtomicBoolean released = new AtomicBoolean(false);
+
+        protected volatile long lastRead = created;
+
+        protected volatile boolean eof = false;
+
+        protected volatile String abortReason;
+
+        protected State(HttpURLConnection connection, String url, Runnable onRelease) {
+            this.connection = connection;
+            this.url = url;
+            this.onRelease = onRelease;
+            allocationSite = leakDetection ? new Throwable("Stream for " + url + " created here") : null;
+        }
+
+        protected void release(boolean disconnect) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            open.remove(this);
+            try {
+                if (disconnect && connection != null) {
+                    connection.disconnect();
+                }
+            } finally {
+                if (onRelease != null) {
+                    onRelease.run();
+                }
+            }
+        }
+
+        protected void abort(String reason) {
+            abortReason = reason;
+            abortedCount.incrementAndGet();
+            log.warn("Stream " + name + " for " + url + " aborted: " + reason);
+            release(true);
+        }
+
+        /*
+         * Called by the cleaner: when the stream is closed, or when it was garbage collected
+         */
+        @Override
+        public void run() {
+            if (released.get()) {
+                return;
+            }
+            leakedCount.incrementAndGet();
+            if (allocationSite != null) {
+                log.warn("Stream " + name + " for " + url + " was not closed", allocationSite);
+            } else {
+                log.warn("Stream " + name + " for " + url + " was not closed (enable leak detection to know where it"
+                        + " was created)");
+            }
+            release(true);
+        }
+    }
+
+    /**
+     * The stream given to the caller
+     */
+    public class ManagedStream extends FilterInputStream {
+
+        protected final State state;
+
+        protected final Cleaner.Cleanable cleanable;
+
+        protected ManagedStream(InputStream in, State state) {
+            super(in);
+            this.state = state;
+            cleanable = CLEANER.register(this, state);
+        }
+
+        protected void checkAborted() throws IOException {
+            if (state.abortReason != null) {
+                throw new StreamAbortedException("Stream for " + state.url + " aborted: " + state.abortReason);
+            }
+            if (maxDurationMillis > 0 && System.currentTimeMillis() - state.created > maxDurationMillis) {
+                state.abort("open for more than " + maxDurationMillis + "ms");
+                throw new StreamAbortedException("Stream for " + state.url + " aborted: " + state.abortReason);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkAborted();
+            int b = super.read();
+            state.lastRead = System.currentTimeMillis();
+            if (b == -1) {
+                state.eof = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkAborted();
+            int n = super.read(b, off, len);
+            state.lastRead = System.currentTimeMillis();
+            if (n == -1) {
+                state.eof = true;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkAborted();
+            long skipped = super.skip(n);
+            state.lastRead = System.currentTimeMillis();
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // A connection whose body was not fully read cannot be reused
+                state.release(!state.eof);
+                cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * @param name for the logs (the blob provider id)
+     * @param idleTimeoutMillis max. time between two reads, 0 for no limit
+     * @param maxDurationMillis max. time a stream stays open, 0 for no limit
+     * @param leakDetection true to record where each stream is created, to report the leaks
+     */
+    public StreamTracker(String name, long idleTimeoutMillis, long maxDurationMillis, boolean leakDetection) {
+        this.name = name;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxDurationMillis = maxDurationMillis;
+        this.leakDetection = leakDetection;
+    }
+
+    /**
+     * @param in the body of the response
+     * @param connection the connection, closed if the stream is not fully read, or leaked, or aborted
+     * @param url for the logs
+     * @param onRelease called once, when the connection is released (can be null)
+     * @return the stream to give to the caller
+     */
+    public ManagedStream track(InputStream in, HttpURLConnection connection, String url, Runnable onRelease) {
+        State state = new State(connection, url, onRelease);
+        open.add(state);
+        openedCount.incrementAndGet();
+        return new ManagedStream(in, state);
+    }
+
+    /**
+     * Aborts the streams idle or open for too long
+     *
+     * @return the number of streams aborted
+     */
+    public int reap() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (State state : open) {
+            if (maxDurationMillis > 0 && now - state.created > maxDurationMillis) {
+                state.abort("open for more than " + maxDurationMillis + "ms");
+                count++;
+            } else if (idleTimeoutMillis > 0 && now - state.lastRead > idleTimeoutMillis) {
+                state.abort("not read for more than " + idleTimeoutMillis + "ms");
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Aborts all the open streams
+     */
+    public void abortAll(String reason) {
+        for (State state : new ArrayList<>(open)) {
+            state.abort(reason);
+        }
+    }
+
+    public int getInFlight() {
+        return open.size();
+    }
+
+    /**
+     * @return the URLs of the open streams, oldest first
+     */
+    public List<String> getInFlightUrls() {
+        List<State> states = new ArrayList<>(open);
+        states.sort((a, b) -> Long.compare(a.created, b.created));
+        List<String> urls = new ArrayList<>();
+        for (State state : states) {
+            urls.add(state.url);
+        }
+        return urls;
+    }
+
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    public long getAbortedCount() {
+        return abortedCount.get();
+    }
+
+    public long getLeakedCount() {
+        return leakedCount.get();
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Checks the data while it is read: its length against the Content-Length, and its checksums against the expected
+ * ones (sent by the remote server, or the digest of the blob when it is a hash of the content), so a truncated or
+ * corrupted download is detected without reading the file again.
+ * <p>
+ * The check is done when the end of the stream is reached, or when {@link #verify()} is called (the caller may stop
+ * reading after the expected length). A mismatch throws an {@link IntegrityException}.
+ *
+ * @since 2023.1
+ */
+public class VerifyingInputStream extends FilterInputStream {
+
+    // Lower case names used in the Digest (RFC 3230) and Content-Digest/Repr-Digest (RFC 9530) headers
+    protected static final Map<String, String> HEADER_ALGORITHMS = Map.of("md5", "MD5", "sha", "SHA-1", "sha-256",
+            "SHA-256", "sha-512", "SHA-512");
+
+    protected final String source;
+
+    protected final long expectedLength;
+
+    // Algorithm => expected checksum
+    protected final Map<String, byte[]> expected;
+
+    protected final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+
+    protected long count = 0;
+
+    protected boolean verified = false;
+
+    /**
+     * Thrown when the data does not match the expected length or checksum
+     */
+    public static class IntegrityException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public IntegrityException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param in the stream to check
+     * @param source the URL, for the error messages
+     * @param expectedLength the expected length, -1 if unknown
+     * @param expected the expected checksums, by algorithm (as known by {@link MessageDigest})
+     */
+    public VerifyingInputStream(InputStream in, String source, long expectedLength, Map<String, byte[]> expected) {
+        super(in);
+        this.source = source;
+        this.expectedLength = expectedLength;
+        this.expected = expected;
+        for (String algorithm : expected.keySet()) {
+            try {
+                digests.put(algorithm, MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                // Cannot be checked
+            }
+        }
+    }
+
+    /**
+     * @return the checksums announced by the response headers (Content-Digest, Repr-Digest, Digest, Content-MD5). Ranged
+     *         and encoded responses are not checked against the digest of the whole representation
+     */
+    public static Map<String, byte[]> getExpectedChecksums(HttpURLConnection connection) throws IOException {
+
+        Map<String, byte[]> checksums = new LinkedHashMap<>();
+        boolean partial = connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+        String encoding = connection.getHeaderField("Content-Encoding");
+        boolean identity = StringUtils.isBlank(encoding) || "identity".equalsIgnoreCase(encoding.trim());
+
+        // Content-Digest is about the bytes of this response
+        parseStructuredDigests(connection.getHeaderField("Content-Digest"), checksums);
+        if (!partial && identity) {
+            parseStructuredDigests(connection.getHeaderField("Repr-Digest"), checksums);
+            parseDigests(connection.getHeaderField("Digest"), checksums);
+            String md5 = connection.getHeaderField("Content-MD5");
+            if (StringUtils.isNotBlank(md5)) {
+                putBase64(checksums, "MD5", md5.trim());
+            }
+        }
+        return checksums;
+    }
+
+    /*
+     * RFC 9530: sha-256=:base64:, sha-512=:base64:
+     */
+    protected static void parseStructuredDigests(String header, Map<String, byte[]> checksums) {
+        if (StringUtils.isBlank(header)) {
+            return;
+        }
+        for (String item : header.split(",")) {
+            int eq = item.indexOf('=');
+            if (eq > 0) {
+                String algorithm = HEADER_ALGORITHMS.get(item.substring(0, eq).trim().toLowerCase());
+                String value = StringUtils.strip(item.substring(eq + 1).trim(), ":");
+                if (algorithm != null) {
+                    putBase64(checksums, algorithm, value);
+                }
+            }
+        }
+    }
+
+    /*
+     * RFC 3230: SHA-256=base64, MD5=base64 (base64 can end with "=")
+     */
+    protected static void parseDigests(String header, Map<String, byte[]> checksums) {
+        if (StringUtils.isBlank(header)) {
+            return;
+        }
+        for (String item : header.split(",")) {
+            int eq = item.indexOf('=');
+            if (eq > 0) {
+                String algorithm = HEADER_ALGORITHMS.get(item.substring(0, eq).trim().toLowerCase());
+                if (algorithm != null) {
+                    putBase64(checksums, algorithm, item.substring(eq + 1).trim());
+                }
+            }
+        }
+    }
+
+    protected static void putBase64(Map<String, byte[]> checksums, String algorithm, String value) {
+        try {
+            checksums.putIfAbsent(algorithm, Base64.getDecoder().decode(value));
+        } catch (IllegalArgumentException e) {
+            // Malformed header, ignored
+        }
+    }
+
+    /**
+     * @return the algorithm of a hexadecimal digest, guessed from its length, null if it is not a digest
+     */
+    public static String guessAlgorithm(String hexDigest) {
+        if (hexDigest == null || !hexDigest.matches("[0-9a-fA-F]+")) {
+            return null;
+        }
+        switch (hexDigest.length()) {
+        case 32:
+            return "MD5";
+        case 40:
+            return "SHA-1";
+        case 64:
+            return "SHA-256";
+        case 128:
+            return "SHA-512";
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Adds the hexadecimal digest to the expected checksums, if its algorithm can be guessed
+     */
+    public static void putHexDigest(Map<String, byte[]> checksums, String hexDigest) {
+        String algorithm = guessAlgorithm(hexDigest);
+        if (algorithm != null) {
+            try {
+                checksums.putIfAbsent(algorithm, Hex.decodeHex(hexDigest));
+            } catch (DecoderException e) {
+                // Not hexadecimal after all
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            verify();
+        } else {
+            count++;
+            for (MessageDigest digest : digests.values()) {
+                digest.update((byte) b);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n == -1) {
+            verify();
+        } else if (n > 0) {
+            count += n;
+            for (MessageDigest digest : digests.values()) {
+                digest.update(b, off, n);
+            }
+        }
+        return n;
+    }
+
+    /*
+     * Skipped bytes must be checked too
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Checks the length and the checksums of what was read. Does nothing if already checked.
+     *
+     * @throws IntegrityException if they do not match
+     */
+    public void verify() throws IntegrityException {
+        if (verified) {
+            return;
+        }
+        verified = true;
+        if (expectedLength >= 0 && count != expectedLength) {
+            throw new IntegrityException(
+                    "Truncated or corrupted download of " + source + ": expected " + expectedLength + " bytes, got "
+                            + count);
+        }
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+            byte[] actual = entry.getValue().digest();
+            if (!MessageDigest.isEqual(actual, expected.get(entry.getKey()))) {
+                throw new IntegrityException("Corrupted download of " + source + ": " + entry.getKey()
+                        + " checksum mismatch, expected " + Hex.encodeHexString(expected.get(entry.getKey()))
+                        + ", got " + Hex.encodeHexString(actual));
+            }
+        }
+    }
+
+}
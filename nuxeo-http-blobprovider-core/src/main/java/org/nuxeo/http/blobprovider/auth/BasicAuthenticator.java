@@ -0,0 +1,51 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Basic authentication, using the <code>login</code> and <code>password</code> properties.
+ *
+ * @since 2023.1
+ */
+public class BasicAuthenticator implements HttpAuthenticator {
+
+    protected String header;
+
+    @Override
+    public void initialize(Map<String, String> properties, ScheduledExecutorService scheduler) {
+        String login = StringUtils.defaultIfBlank(properties.get(HttpBlobProvider.PROPERTY_LOGIN), "");
+        String pwd = StringUtils.defaultIfBlank(properties.get(HttpBlobProvider.PROPERTY_PWD), "");
+        String authString = login + ":" + pwd;
+        header = "Basic " + Base64.getEncoder().encodeToString(authString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getAuthorizationHeader() {
+        return header;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.auth;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Static bearer token, set in the <code>bearerToken</code> property.
+ *
+ * @since 2023.1
+ */
+public class BearerTokenAuthenticator implements HttpAuthenticator {
+
+    public static final String PROPERTY_BEARER_TOKEN = "bearerToken";
+
+    protected String header;
+
+    @Override
+    public void initialize(Map<String, String> properties, ScheduledExecutorService scheduler) throws IOException {
+        String token = properties.get(PROPERTY_BEARER_TOKEN);
+        if (StringUtils.isBlank(token)) {
+            throw new IOException("Bearer authentication requires the " + PROPERTY_BEARER_TOKEN + " property");
+        }
+        header = "Bearer " + token.trim();
+    }
+
+    @Override
+    public String getAuthorizationHeader() {
+        return header;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.auth;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Computes the <code>Authorization</code> header sent by a {@link org.nuxeo.http.blobprovider.HttpBlobProvider} to its
+ * origin.
+ * <p>
+ * {@link #getAuthorizationHeader()} is called for every request, so it must be fast: an implementation needing a
+ * round-trip to get credentials (a token for example) should cache them and refresh them in the background.
+ * <p>
+ * A custom implementation is declared with the <code>authenticatorClass</code> property of the provider, and must have
+ * a public no-arg constructor.
+ *
+ * @since 2023.1
+ */
+public interface HttpAuthenticator {
+
+    /**
+     * Called once, when the provider is initialized. When the provider is reconfigured, a new instance is created and
+     * initialized with the new properties, and this one is closed.
+     *
+     * @param properties the properties of the blob provider
+     * @param scheduler to run background tasks, shut down by the provider when it is closed
+     */
+    void initialize(Map<String, String> properties, ScheduledExecutorService scheduler) throws IOException;
+
+    /**
+     * Called by the provider instead of {@link #initialize(Map, ScheduledExecutorService)}. The scheduler has a single
+     * thread shared with the other tasks of the provider: it should only trigger the background tasks, the blocking
+     * ones (a round-trip to get credentials) run on the executor.
+     *
+     * @param executor to run blocking background tasks
+     */
+    default void initialize(Map<String, String> properties, ScheduledExecutorService scheduler, Executor executor)
+            throws IOException {
+        initialize(properties, scheduler);
+    }
+
+    /**
+     * @return the value of the <code>Authorization</code> header, null to not send any
+     */
+    String getAuthorizationHeader() throws IOException;
+
+    /**
+     * Called when the origin rejected the credentials (401), so cached credentials can be dropped.
+     */
+    default void invalidate() {
+    }
+
+    /**
+     * Called when the provider is closed.
+     */
+    default void close() {
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * OAuth2 "client credentials" grant.
+ * <p>
+ * The access token is cached and refreshed in the background before it expires, so getting the header never needs a
+ * round-trip to the token endpoint, except for the very first request (if the initial fetch is not done yet) or after
+ * the origin rejected the token. Concurrent refreshes are collapsed into one request.
+ * <p>
+ * Properties:
+ * <ul>
+ * <li><code>oauth2TokenUrl</code>: the token endpoint (required)</li>
+ * <li><code>oauth2ClientId</code> and <code>oauth2ClientSecret</code> (required)</li>
+ * <li><code>oauth2Scope</code>: optional</li>
+ * <li><code>oauth2ClientAuthMethod</code>: <code>basic</code> (default, credentials in the Authorization header) or
+ * <code>post</code> (credentials in the body)</li>
+ * <li><code>oauth2RefreshBefore</code>: refresh the token this number of seconds before it expires. Default is 60</li>
+ * </ul>
+ *
+ * @since 2023.1
+ */
+public class OAuth2ClientCredentialsAuthenticator implements HttpAuthenticator {
+
+    private static final Logger log = LogManager.getLogger(OAuth2ClientCredentialsAuthenticator.class);
+
+    public static final String PROPERTY_TOKEN_URL = "oauth2TokenUrl";
+
+    public static final String PROPERTY_CLIENT_ID = "oauth2ClientId";
+
+    public static final String PROPERTY_CLIENT_SECRET = "oauth2ClientSecret";
+
+    public static final String PROPERTY_SCOPE = "oauth2Scope";
+
+    public static final String PROPERTY_CLIENT_AUTH_METHOD = "oauth2ClientAuthMethod";
+
+    public static final String PROPERTY_REFRESH_BEFORE = "oauth2RefreshBefore";
+
+    public static final String CLIENT_AUTH_POST = "post";
+
+    public static final long DEFAULT_REFRESH_BEFORE = 60;
+
+    // When the token endpoint does not return "expires_in"
+    public static final long DEFAULT_EXPIRES_IN = 3600;
+
+    // Consider the token expired a bit before it really is
+    protected static final long EXPIRATION_MARGIN_MILLIS = 5000;
+
+    protected static final long RETRY_DELAY_MILLIS = 10000;
+
+    protected static final int TIMEOUT_MILLIS = 10000;
+
+    protected String tokenUrl;
+
+    protected String clientId;
+
+    protected String clientSecret;
+
+    protected String scope;
+
+    protected boolean clientAuthPost;
+
+    protected long refreshBeforeMillis;
+
+    protected ScheduledExecutorService scheduler;
+
+    // Runs the requests to the token endpoint, the scheduler only triggers them
+    protected Executor executor;
+
+    // No refresh is scheduled anymore once closed
+    protected volatile boolean closed;
+
+    protected volatile Token token;
+
+    protected volatile ScheduledFuture<?> scheduledRefresh;
+
+    protected final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+
+    protected static class Token {
+
+        protected final String value;
+
+        protected final long fetched;
+
+        protected final long expires;
+
+        protected Token(String value, long expiresInMillis) {
+            this.value = value;
+            fetched = System.currentTimeMillis();
+            expires = fetched + expiresInMillis;
+        }
+
+        protected boolean isExpired() {
+            return System.currentTimeMillis() >= expires - EXPIRATION_MARGIN_MILLIS;
+        }
+    }
+
+    @Override
+    public void initialize(Map<String, String> properties, ScheduledExecutorService scheduler) throws IOException {
+        initialize(properties, scheduler, scheduler);
+    }
+
+    @Override
+    public void initialize(Map<String, String> properties, ScheduledExecutorService scheduler, Executor executor)
+            throws IOException {
+        tokenUrl = properties.get(PROPERTY_TOKEN_URL);
+        clientId = properties.get(PROPERTY_CLIENT_ID);
+        clientSecret = StringUtils.defaultIfBlank(properties.get(PROPERTY_CLIENT_SECRET), "");
+        if (StringUtils.isBlank(tokenUrl) || StringUtils.isBlank(clientId)) {
+            throw new IOException("OAuth2 authentication requires the " + PROPERTY_TOKEN_URL + " and "
+                    + PROPERTY_CLIENT_ID + " properties");
+        }
+        scope = properties.get(PROPERTY_SCOPE);
+        clientAuthPost = CLIENT_AUTH_POST.equalsIgnoreCase(StringUtils.trim(properties.get(PROPERTY_CLIENT_AUTH_METHOD)));
+        long refreshBefore;
+        try {
+            refreshBefore = Long.parseLong(StringUtils.trim(properties.get(PROPERTY_REFRESH_BEFORE)));
+        } catch (NumberFormatException e) {
+            refreshBefore = DEFAULT_REFRESH_BEFORE;
+        }
+        refreshBeforeMillis = Math.max(0, refreshBefore) * 1000;
+        this.scheduler = scheduler;
+        this.executor = executor;
+
+        // Get the first token now, so the first request does not wait for it
+        executor.execute(this::refreshInBackground);
+    }
+
+    @Override
+    public String getAuthorizationHeader() throws IOException {
+        Token t = token;
+        if (t == null || t.isExpired()) {
+            t = refresh();
+        }
+        return "Bearer " + t.value;
+    }
+
+    @Override
+    public void invalidate() {
+        token = null;
+    }
+
+    /*
+     * A refresh running now does not schedule the next one
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        ScheduledFuture<?> future = scheduledRefresh;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /*
+     * Gets a new token. If a refresh is already running, waits for its result instead of sending another request.
+     */
+    protected Token refresh() throws IOException {
+        CompletableFuture<Token> future = new CompletableFuture<>();
+        CompletableFuture<Token> running = refreshing.compareAndExchange(null, future);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            Token t = fetchToken();
+            token = t;
+            scheduleRefresh(t);
+            future.complete(t);
+            return t;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshing.compareAndSet(future, null);
+        }
+    }
+
+    protected Token await(CompletableFuture<Token> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the OAuth2 token");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to get the OAuth2 token", cause);
+        }
+    }
+
+    protected void refreshInBackground() {
+        if (closed) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            Token t = token;
+            log.warn("Failed to refresh the OAuth2 token from " + tokenUrl + ": " + e.getMessage());
+            if (t != null && !t.isExpired()) {
+                // Still valid for a while, try again before it expires
+                long delay = Math.min(RETRY_DELAY_MILLIS, (t.expires - System.currentTimeMillis()) / 2);
+                schedule(Math.max(delay, 1000));
+            }
+        }
+    }
+
+    protected void scheduleRefresh(Token t) {
+        long lifetime = t.expires - t.fetched;
+        long delay = lifetime - refreshBeforeMillis;
+        if (delay < lifetime / 2) {
+            // Short-lived token
+            delay = lifetime * 8 / 10;
+        }
+        schedule(Math.max(delay, 1000));
+    }
+
+    protected synchronized void schedule(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        ScheduledFuture<?> previous = scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        try {
+            scheduledRefresh = scheduler.schedule(this::executeRefresh, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Rejected, the provider is closing
+            log.debug("Cannot schedule the OAuth2 token refresh", e);
+        }
+    }
+
+    /*
+     * On the executor: the token request must not hold the thread of the scheduler
+     */
+    protected void executeRefresh() {
+        try {
+            executor.execute(this::refreshInBackground);
+        } catch (RuntimeException e) {
+            // Rejected, the provider is closing
+            log.debug("Cannot run the OAuth2 token refresh", e);
+        }
+    }
+
+    protected Token fetchToken() throws IOException {
+        StringBuilder body = new StringBuilder("grant_type=client_credentials");
+        if (StringUtils.isNotBlank(scope)) {
+            body.append("&scope=").append(URLEncoder.encode(scope, StandardCharsets.UTF_8));
+        }
+        if (clientAuthPost) {
+            body.append("&client_id=").append(URLEncoder.encode(clientId, StandardCharsets.UTF_8));
+            body.append("&client_secret=").append(URLEncoder.encode(clientSecret, StandardCharsets.UTF_8));
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(tokenUrl).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        connection.setRequestProperty("Accept", "application/json");
+        if (!clientAuthPost) {
+            String credentials = URLEncoder.encode(clientId, StandardCharsets.UTF_8) + ":"
+                    + URLEncoder.encode(clientSecret, StandardCharsets.UTF_8);
+            connection.setRequestProperty("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        try {
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Token endpoint " + tokenUrl + " returned HTTP response code: " + responseCode);
+            }
+            String json;
+            try (InputStream in = connection.getInputStream()) {
+                json = IOUtils.toString(in, StandardCharsets.UTF_8);
+            }
+            JSONObject obj = new JSONObject(json);
+            String accessToken = obj.getString("access_token");
+            long expiresIn = obj.optLong("expires_in", DEFAULT_EXPIRES_IN);
+            if (expiresIn <= 0) {
+                expiresIn = DEFAULT_EXPIRES_IN;
+            }
+            log.debug("Got a new OAuth2 token from " + tokenUrl + ", expires in " + expiresIn + "s");
+            return new Token(accessToken, expiresIn * 1000);
+        } catch (JSONException e) {
+            throw new IOException("Invalid response from the token endpoint " + tokenUrl, e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+}
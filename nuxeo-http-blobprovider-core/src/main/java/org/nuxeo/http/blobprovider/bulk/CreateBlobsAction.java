@@ -0,0 +1,183 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.bulk;
+
+import static org.nuxeo.ecm.core.bulk.BulkServiceImpl.STATUS_STREAM;
+import static org.nuxeo.lib.stream.computation.AbstractComputation.INPUT_1;
+import static org.nuxeo.lib.stream.computation.AbstractComputation.OUTPUT_1;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.bulk.action.computation.AbstractBulkComputation;
+import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+
+/**
+ * Bulk action setting a remote blob on every document of a query: the URL is read from a field of the document, the
+ * blob is created by a {@link HttpBlobProvider} and stored in another field.
+ * <p>
+ * The URLs of a batch are resolved in parallel (the provider may have to send a HEAD request to guess the mime type
+ * and the file name), then the documents of the batch are saved in the same transaction. A document that fails (no
+ * URL, unreachable URL, ...) is skipped and counted as an error in the status of the command.
+ * <p>
+ * Parameters:
+ * <ul>
+ * <li><code>provider</code>: the blob provider, "http" by default</li>
+ * <li><code>urlXPath</code>: the field holding the URL (required)</li>
+ * <li><code>blobXPath</code>: the field where to store the blob, "file:content" by default</li>
+ * </ul>
+ *
+ * @since 2023.1
+ */
+public class CreateBlobsAction implements StreamProcessorTopology {
+
+    public static final String ACTION_NAME = "httpBlobProviderCreateBlobs";
+
+    public static final String ACTION_FULL_NAME = "bulk/" + ACTION_NAME;
+
+    public static final String PARAM_PROVIDER = "provider";
+
+    public static final String PARAM_URL_XPATH = "urlXPath";
+
+    public static final String PARAM_BLOB_XPATH = "blobXPath";
+
+    public static final String DEFAULT_BLOB_XPATH = "file:content";
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(CreateBlobsComputation::new,
+                               Arrays.asList(INPUT_1 + ":" + ACTION_FULL_NAME, OUTPUT_1 + ":" + STATUS_STREAM))
+                       .build();
+    }
+
+    public static class CreateBlobsComputation extends AbstractBulkComputation {
+
+        private static final Logger log = LogManager.getLogger(CreateBlobsComputation.class);
+
+        protected long errorCount = 0;
+
+        protected String firstError = null;
+
+        public CreateBlobsComputation() {
+            super(ACTION_FULL_NAME);
+        }
+
+        @Override
+        protected void compute(CoreSession session, List<String> ids, Map<String, Serializable> properties) {
+
+            HttpBlobProvider provider = getProvider((String) properties.get(PARAM_PROVIDER));
+            String urlXPath = (String) properties.get(PARAM_URL_XPATH);
+            if (StringUtils.isBlank(urlXPath)) {
+                throw new NuxeoException("The " + PARAM_URL_XPATH + " parameter is required");
+            }
+            String blobXPath = (String) properties.get(PARAM_BLOB_XPATH);
+            if (StringUtils.isBlank(blobXPath)) {
+                blobXPath = DEFAULT_BLOB_XPATH;
+            }
+
+            // Resolve all the URLs of the batch in parallel...
+            List<DocumentModel> docs = new ArrayList<>();
+            List<CompletableFuture<ManagedBlob>> futures = new ArrayList<>();
+            for (DocumentModel doc : loadDocuments(session, ids)) {
+                String url;
+                try {
+                    url = (String) doc.getPropertyValue(urlXPath);
+                } catch (NuxeoException e) {
+                    onError(doc, e.getMessage());
+                    continue;
+                }
+                if (StringUtils.isBlank(url)) {
+                    onError(doc, "No URL in " + urlXPath);
+                    continue;
+                }
+                BlobInfo blobInfo = new BlobInfo();
+                blobInfo.key = url.trim();
+                docs.add(doc);
+                futures.add(provider.createBlobAsync(blobInfo));
+            }
+
+            // ...then save the documents
+            for (int i = 0; i < docs.size(); i++) {
+                DocumentModel doc = docs.get(i);
+                try {
+                    ManagedBlob blob = futures.get(i).join();
+                    doc.setPropertyValue(blobXPath, (Serializable) blob);
+                    session.saveDocument(doc);
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    onError(doc, cause.getMessage());
+                } catch (NuxeoException e) {
+                    onError(doc, e.getMessage());
+                }
+            }
+        }
+
+        protected HttpBlobProvider getProvider(String providerId) {
+            if (StringUtils.isBlank(providerId)) {
+                providerId = HttpBlobProvider.DEFAULT_PROVIDER;
+            }
+            BlobProvider provider = Framework.getService(BlobManager.class).getBlobProvider(providerId);
+            if (!(provider instanceof HttpBlobProvider)) {
+                throw new NuxeoException("Not an HTTP blob provider: " + providerId);
+            }
+            return (HttpBlobProvider) provider;
+        }
+
+        protected void onError(DocumentModel doc, String message) {
+            String error = "Cannot set the remote blob on document " + doc.getId() + ": " + message;
+            log.warn(error);
+            errorCount++;
+            if (firstError == null) {
+                firstError = error;
+            }
+        }
+
+        @Override
+        public void endBucket(ComputationContext context, BulkStatus delta) {
+            if (errorCount > 0) {
+                delta.inError(firstError);
+                delta.setErrorCount(errorCount);
+            }
+            errorCount = 0;
+            firstError = null;
+        }
+    }
+
+}
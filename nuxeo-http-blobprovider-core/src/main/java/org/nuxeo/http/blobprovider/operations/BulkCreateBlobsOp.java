@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.bulk.BulkService;
+import org.nuxeo.ecm.core.bulk.message.BulkCommand;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+import org.nuxeo.http.blobprovider.bulk.CreateBlobsAction;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Submits the {@link CreateBlobsAction} bulk action: for every document returned by the query, creates a remote blob
+ * from the URL stored in <code>urlXPath</code> and stores it in <code>blobXPath</code>.
+ * <p>
+ * Returns a JSON blob with the id of the bulk command, to be used with the <code>Bulk.WaitForAction</code> operation
+ * or the bulk REST API.
+ *
+ * @since 2023.1
+ */
+@Operation(id = BulkCreateBlobsOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Bulk Create Blobs", description = "Creates the remote blobs of all the documents returned by the query, using the Bulk Action Framework. Returns the id of the bulk command.")
+public class BulkCreateBlobsOp {
+
+    public static final String ID = "HTTPBlobProvider.BulkCreateBlobs";
+
+    @Context
+    protected CoreSession session;
+
+    @Context
+    protected BulkService bulkService;
+
+    @Param(name = "query", required = true)
+    String query;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "urlXPath", required = true)
+    String urlXPath;
+
+    @Param(name = "blobXPath", required = false, values = { CreateBlobsAction.DEFAULT_BLOB_XPATH })
+    String blobXPath;
+
+    @Param(name = "bucketSize", required = false)
+    Integer bucketSize;
+
+    @Param(name = "batchSize", required = false)
+    Integer batchSize;
+
+    @OperationMethod
+    public Blob run() {
+
+        if (StringUtils.isBlank(provider)) {
+            provider = HttpBlobProvider.DEFAULT_PROVIDER;
+        }
+        if (StringUtils.isBlank(blobXPath)) {
+            blobXPath = CreateBlobsAction.DEFAULT_BLOB_XPATH;
+        }
+
+        BulkCommand.Builder builder = new BulkCommand.Builder(CreateBlobsAction.ACTION_NAME, query,
+                session.getPrincipal().getName()).repository(session.getRepositoryName())
+                                                 .param(CreateBlobsAction.PARAM_PROVIDER, provider)
+                                                 .param(CreateBlobsAction.PARAM_URL_XPATH, urlXPath)
+                                                 .param(CreateBlobsAction.PARAM_BLOB_XPATH, blobXPath);
+        if (bucketSize != null && bucketSize > 0) {
+            builder.bucket(bucketSize);
+        }
+        if (batchSize != null && batchSize > 0) {
+            builder.batch(batchSize);
+        }
+        String commandId = bulkService.submit(builder.build());
+
+        return Blobs.createJSONBlob("{\"commandId\": \"" + commandId + "\"}");
+    }
+
+}
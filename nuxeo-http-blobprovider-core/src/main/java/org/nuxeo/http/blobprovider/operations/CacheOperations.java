@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.http.blobprovider.CacheEntry;
+import org.nuxeo.http.blobprovider.HttpBlobCache;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Shared by the cache administration operations
+ *
+ * @since 2023.1
+ */
+public class CacheOperations {
+
+    private CacheOperations() {
+        // utility class
+    }
+
+    public static HttpBlobProvider getProvider(String providerId) {
+        if (StringUtils.isBlank(providerId)) {
+            providerId = HttpBlobProvider.DEFAULT_PROVIDER;
+        }
+        BlobProvider provider = Framework.getService(BlobManager.class).getBlobProvider(providerId);
+        if (!(provider instanceof HttpBlobProvider)) {
+            throw new NuxeoException("Not an HTTP blob provider: " + providerId);
+        }
+        return (HttpBlobProvider) provider;
+    }
+
+    public static HttpBlobProvider getProviderWithCache(String providerId) {
+        HttpBlobProvider provider = getProvider(providerId);
+        if (!provider.isCacheEnabled()) {
+            throw new NuxeoException("The cache is not enabled for blob provider " + provider.blobProviderId);
+        }
+        return provider;
+    }
+
+    /**
+     * Administrators only, or the members of the group set in the <code>groupProperty</code> property of the provider
+     *
+     * @param action what is not allowed, for the message: "purge the cache"
+     */
+    public static void checkAllowed(CoreSession session, HttpBlobProvider provider, String groupProperty,
+            String action) {
+        NuxeoPrincipal principal = session.getPrincipal();
+        String group = provider.properties.get(groupProperty);
+        if (!principal.isAdministrator() && (StringUtils.isBlank(group) || !principal.isMemberOf(group.trim()))) {
+            throw new NuxeoException("Not allowed to " + action + " of blob provider " + provider.blobProviderId, 403);
+        }
+    }
+
+    /**
+     * See {@link #checkAllowed(CoreSession, HttpBlobProvider, String, String)}, with the <code>cacheAdminGroup</code>
+     * property
+     */
+    public static void checkCacheAdmin(CoreSession session, HttpBlobProvider provider, String action) {
+        checkAllowed(session, provider, HttpBlobProvider.PROPERTY_CACHE_ADMIN_GROUP, action);
+    }
+
+    public static JSONObject toJSON(HttpBlobProvider provider, CacheEntry entry) {
+        String digest = HttpBlobCache.digestOf(entry.getKey());
+        JSONObject obj = new JSONObject();
+        obj.put("digest", digest);
+        obj.put("url", entry.getUrl());
+        obj.put("length", entry.getLength());
+        obj.put("created", entry.getCreated());
+        obj.put("lastAccess", entry.getLastAccess());
+        obj.put("hits", entry.getHits());
+        obj.put("validated", entry.getValidated());
+        obj.put("etag", entry.getEtag());
+        obj.put("lastModified", entry.getLastModified());
+        obj.put("pinned", provider.isPinned(digest));
+        return obj;
+    }
+
+}
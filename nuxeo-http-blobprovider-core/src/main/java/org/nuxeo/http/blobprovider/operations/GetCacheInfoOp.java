@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.http.blobprovider.CacheEntry;
+import org.nuxeo.http.blobprovider.CacheJanitor;
+import org.nuxeo.http.blobprovider.CacheVolume;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+import org.nuxeo.http.blobprovider.PeerCache;
+
+/**
+ * Returns, as JSON, the statistics of the cache of a provider. Optionally, details one entry (<code>digest</code>) or
+ * lists the entries (<code>listEntries</code>, filtered by <code>urlPrefix</code>).
+ * <p>
+ * The entries show the URLs of the files: administrators only, or the members of the group set in the
+ * <code>cacheAdminGroup</code> property of the provider.
+ *
+ * @since 2023.1
+ */
+@Operation(id = GetCacheInfoOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Get Cache Info", description = "Returns the statistics of the cache as JSON. Can also detail one entry or list the entries.")
+public class GetCacheInfoOp {
+
+    public static final String ID = "HTTPBlobProvider.GetCacheInfo";
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "digest", required = false)
+    String digest;
+
+    @Param(name = "listEntries", required = false)
+    boolean listEntries = false;
+
+    @Param(name = "urlPrefix", required = false)
+    String urlPrefix;
+
+    @Param(name = "maxEntries", required = false)
+    Integer maxEntries;
+
+    @OperationMethod
+    public Blob run() {
+
+        HttpBlobProvider bp = CacheOperations.getProvider(provider);
+        CacheOperations.checkCacheAdmin(session, bp, "read the cache");
+
+        JSONObject result = new JSONObject();
+        result.put("provider", bp.blobProviderId);
+        result.put("cacheEnabled", bp.isCacheEnabled());
+        result.put("count", bp.getNumberOfCachedFiles());
+        result.put("size", bp.getCacheSize());
+        result.put("sharedCache", bp.isCacheShared());
+        result.put("quota", bp.getCacheQuota());
+        result.put("pinned", new JSONArray(bp.getPinnedDigests()));
+        result.put("negativeCacheSize", bp.getNegativeCache() == null ? 0 : bp.getNegativeCache().size());
+
+        JSONArray volumes = new JSONArray();
+        for (CacheVolume volume : bp.getCacheVolumes()) {
+            JSONObject obj = new JSONObject();
+            obj.put("path", volume.getDirectory().getAbsolutePath());
+            obj.put("online", volume.isOnline());
+            obj.put("size", volume.getSize());
+            obj.put("maxSize", volume.getMaxSize());
+            obj.put("freeSpace", volume.getUsableSpace());
+            if (!volume.isOnline()) {
+                obj.put("error", volume.getLastError());
+            }
+            volumes.put(obj);
+        }
+        result.put("volumes", volumes);
+
+        PeerCache peerCache = bp.getPeerCache();
+        if (peerCache != null) {
+            JSONObject peers = new JSONObject();
+            peers.put("self", peerCache.getSelf());
+            peers.put("served", peerCache.getServedCount());
+            peers.put("fetched", peerCache.getFetchedCount());
+            peers.put("failed", peerCache.getFailedCount());
+            result.put("peers", peers);
+        }
+
+        CacheJanitor.Report report = bp.getLastJanitorReport();
+        if (report != null) {
+            JSONObject janitor = new JSONObject();
+            janitor.put("timestamp", report.timestamp);
+            janitor.put("durationMillis", report.durationMillis);
+            janitor.put("lowDiskSpace", report.lowDiskSpace);
+            janitor.put("evictedCount", report.evictedCount);
+            janitor.put("evictedBytes", report.evictedBytes);
+            janitor.put("orphansDeleted", report.orphansDeleted);
+            janitor.put("freeSpace", report.freeSpaceAfter);
+            result.put("lastJanitorRun", janitor);
+        }
+
+        if (StringUtils.isNotBlank(digest)) {
+            CacheEntry entry = bp.getCacheEntry(digest);
+            result.put("entry", entry == null ? JSONObject.NULL : CacheOperations.toJSON(bp, entry));
+        }
+
+        if (listEntries) {
+            int max = maxEntries == null || maxEntries <= 0 ? DEFAULT_MAX_ENTRIES : maxEntries;
+            JSONArray entries = new JSONArray();
+            for (CacheEntry entry : bp.getCacheEntries()) {
+                if (entries.length() >= max) {
+                    break;
+                }
+                if (StringUtils.isBlank(urlPrefix) || (entry.getUrl() != null && entry.getUrl().startsWith(urlPrefix))) {
+                    entries.put(CacheOperations.toJSON(bp, entry));
+                }
+            }
+            result.put("entries", entries);
+        }
+
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+}
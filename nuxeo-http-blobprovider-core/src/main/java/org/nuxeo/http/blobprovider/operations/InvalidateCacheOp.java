@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.http.blobprovider.CacheInvalidation;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Called by the origin when files changed, to remove them from the cache of all the nodes: by URL, by URL prefix, by
+ * ETag or by digest. Exactly one of the parameters must be used. Returns <code>{"invalidated": n}</code>, the number of
+ * files removed on the node that received the call.
+ * <p>
+ * Administrators only, or the members of the group set in the <code>invalidationGroup</code> property of the provider
+ * (a technical user of the origin for example).
+ *
+ * @since 2023.1
+ */
+@Operation(id = InvalidateCacheOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Invalidate Cache", description = "Removes the files that changed on the origin from the cache of all the nodes of the cluster, by URL, by URL prefix, by ETag or by digest. Returns the number of files removed on this node as JSON.")
+public class InvalidateCacheOp {
+
+    public static final String ID = "HTTPBlobProvider.InvalidateCache";
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "url", required = false)
+    String url;
+
+    @Param(name = "urlPrefix", required = false)
+    String urlPrefix;
+
+    @Param(name = "etag", required = false)
+    String etag;
+
+    @Param(name = "digest", required = false)
+    String digest;
+
+    @OperationMethod
+    public Blob run() {
+
+        int params = (StringUtils.isNotBlank(url) ? 1 : 0) + (StringUtils.isNotBlank(urlPrefix) ? 1 : 0)
+                + (StringUtils.isNotBlank(etag) ? 1 : 0) + (StringUtils.isNotBlank(digest) ? 1 : 0);
+        if (params != 1) {
+            throw new NuxeoException("Use exactly one of url, urlPrefix, etag or digest");
+        }
+
+        HttpBlobProvider bp = CacheOperations.getProvider(provider);
+        CacheOperations.checkAllowed(session, bp, HttpBlobProvider.PROPERTY_INVALIDATION_GROUP,
+                "invalidate the cache");
+
+        CacheInvalidation invalidation;
+        if (StringUtils.isNotBlank(url)) {
+            invalidation = new CacheInvalidation(CacheInvalidation.Type.URL, url);
+        } else if (StringUtils.isNotBlank(urlPrefix)) {
+            invalidation = new CacheInvalidation(CacheInvalidation.Type.URL_PREFIX, urlPrefix);
+        } else if (StringUtils.isNotBlank(etag)) {
+            invalidation = new CacheInvalidation(CacheInvalidation.Type.ETAG, etag);
+        } else {
+            invalidation = new CacheInvalidation(CacheInvalidation.Type.DIGEST, digest);
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("invalidated", bp.invalidate(invalidation));
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Pins (or unpins) a file in the cache, so it is never evicted. The input is either nothing (and the
+ * <code>digest</code> parameter is used) or a document (and the digest of the blob stored in <code>blobXPath</code> is
+ * used).
+ * <p>
+ * Administrators only, or the members of the group set in the <code>cacheAdminGroup</code> property of the provider.
+ *
+ * @since 2023.1
+ */
+@Operation(id = PinCacheOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Pin in Cache", description = "Pins a file in the cache, so it is never evicted (or unpins it if unpin is true).")
+public class PinCacheOp {
+
+    public static final String ID = "HTTPBlobProvider.PinCache";
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "digest", required = false)
+    String digest;
+
+    @Param(name = "blobXPath", required = false, values = { "file:content" })
+    String blobXPath;
+
+    @Param(name = "unpin", required = false)
+    boolean unpin = false;
+
+    @OperationMethod
+    public Blob run() {
+
+        if (StringUtils.isBlank(digest)) {
+            throw new NuxeoException("The digest parameter is required when there is no input document");
+        }
+        pin(digest);
+
+        JSONObject result = new JSONObject();
+        result.put("digest", digest);
+        result.put("pinned", !unpin);
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+    @OperationMethod
+    public DocumentModel run(DocumentModel input) {
+
+        if (StringUtils.isBlank(blobXPath)) {
+            blobXPath = "file:content";
+        }
+        Blob blob = (Blob) input.getPropertyValue(blobXPath);
+        if (blob == null || StringUtils.isBlank(blob.getDigest())) {
+            throw new NuxeoException("No blob with a digest in " + blobXPath + " for document " + input.getId());
+        }
+        pin(blob.getDigest());
+
+        return input;
+    }
+
+    protected void pin(String digest) {
+        HttpBlobProvider bp = CacheOperations.getProviderWithCache(provider);
+        CacheOperations.checkCacheAdmin(session, bp, "pin files in the cache");
+        bp.pinCache(digest, !unpin);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Removes files from the cache: one digest, the files of one URL, the files of all the URLs starting with a prefix, or
+ * everything. Exactly one of the parameters must be used. Returns <code>{"purged": n}</code>.
+ * <p>
+ * Administrators only, or the members of the group set in the <code>cacheAdminGroup</code> property of the provider.
+ *
+ * @since 2023.1
+ */
+@Operation(id = PurgeCacheOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Purge Cache", description = "Removes files from the cache, by digest, by URL, by URL prefix or all of them. Returns the number of files removed as JSON.")
+public class PurgeCacheOp {
+
+    public static final String ID = "HTTPBlobProvider.PurgeCache";
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "digest", required = false)
+    String digest;
+
+    @Param(name = "url", required = false)
+    String url;
+
+    @Param(name = "urlPrefix", required = false)
+    String urlPrefix;
+
+    @Param(name = "all", required = false)
+    boolean all = false;
+
+    @OperationMethod
+    public Blob run() {
+
+        int params = (StringUtils.isNotBlank(digest) ? 1 : 0) + (StringUtils.isNotBlank(url) ? 1 : 0)
+                + (StringUtils.isNotBlank(urlPrefix) ? 1 : 0) + (all ? 1 : 0);
+        if (params != 1) {
+            throw new NuxeoException("Use exactly one of digest, url, urlPrefix or all");
+        }
+
+        HttpBlobProvider bp = CacheOperations.getProviderWithCache(provider);
+        CacheOperations.checkCacheAdmin(session, bp, "purge the cache");
+        int purged;
+        if (StringUtils.isNotBlank(digest)) {
+            purged = bp.purgeCache(digest) ? 1 : 0;
+        } else if (StringUtils.isNotBlank(url)) {
+            purged = bp.purgeCacheByUrl(url);
+        } else if (StringUtils.isNotBlank(urlPrefix)) {
+            purged = bp.purgeCacheByUrlPrefix(urlPrefix);
+        } else {
+            purged = bp.purgeCache();
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("purged", purged);
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Changes properties of a provider without re-initializing it, see {@link HttpBlobProvider#reconfigure(Map)}. The
+ * <code>properties</code> parameter is a JSON object with the properties to change, a <code>null</code> value removes
+ * the property. Returns <code>{"changed": ["name", ...]}</code>.
+ * <p>
+ * The properties may hold credentials: administrators only.
+ *
+ * @since 2023.1
+ */
+@Operation(id = ReconfigureOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Reconfigure", description = "Changes properties of the provider (authentication, headers, cache limits, ...) without flushing its cache. Returns the names of the changed properties as JSON.")
+public class ReconfigureOp {
+
+    public static final String ID = "HTTPBlobProvider.Reconfigure";
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "properties")
+    String properties;
+
+    @OperationMethod
+    public Blob run() throws IOException {
+
+        if (!session.getPrincipal().isAdministrator()) {
+            throw new NuxeoException("Only administrators can reconfigure a blob provider", 403);
+        }
+
+        HttpBlobProvider bp = CacheOperations.getProvider(provider);
+        Map<String, String> newProperties = new HashMap<>(bp.properties);
+        JSONObject changes = new JSONObject(properties);
+        for (String key : changes.keySet()) {
+            if (changes.isNull(key)) {
+                newProperties.remove(key);
+            } else {
+                newProperties.put(key, changes.get(key).toString());
+            }
+        }
+
+        Set<String> changed = bp.reconfigure(newProperties);
+
+        JSONObject result = new JSONObject();
+        result.put("changed", new JSONArray(changed));
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+}
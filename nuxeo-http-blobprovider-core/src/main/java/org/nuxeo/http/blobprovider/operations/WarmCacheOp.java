@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.nuxeo.ecm.automation.core.Constants;
+import org.nuxeo.ecm.automation.core.annotations.Context;
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.automation.core.annotations.Param;
+import org.nuxeo.ecm.automation.core.util.StringList;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.http.blobprovider.CacheWarmer;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+
+/**
+ * Downloads files to the cache, in the background and with a bounded concurrency, from a list of URLs and/or the
+ * blobs of the documents returned by an NXQL query.
+ * <p>
+ * By default, returns immediately with the number of blobs to fetch. If <code>waitForCompletion</code> is true,
+ * returns the report of the warm-up.
+ * <p>
+ * Administrators only, or the members of the group set in the <code>cacheAdminGroup</code> property of the provider.
+ * The concurrency is capped to {@link #MAX_CONCURRENCY}.
+ *
+ * @since 2023.1
+ */
+@Operation(id = WarmCacheOp.ID, category = Constants.CAT_SERVICES, label = "HTTP BlobProvider: Warm Cache", description = "Downloads files to the cache, from a list of URLs and/or the blobs of the documents returned by a query.")
+public class WarmCacheOp {
+
+    public static final String ID = "HTTPBlobProvider.WarmCache";
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    public static final int MAX_CONCURRENCY = 16;
+
+    public static final int DEFAULT_MAX_DOCUMENTS = 10000;
+
+    @Context
+    protected CoreSession session;
+
+    @Param(name = "provider", required = false, values = { HttpBlobProvider.DEFAULT_PROVIDER })
+    String provider;
+
+    @Param(name = "urls", required = false)
+    StringList urls;
+
+    @Param(name = "query", required = false)
+    String query;
+
+    @Param(name = "blobXPath", required = false, values = { "file:content" })
+    String blobXPath;
+
+    @Param(name = "maxDocuments", required = false)
+    Integer maxDocuments;
+
+    @Param(name = "concurrency", required = false)
+    Integer concurrency;
+
+    @Param(name = "waitForCompletion", required = false)
+    boolean waitForCompletion = false;
+
+    @OperationMethod
+    public Blob run() throws InterruptedException, ExecutionException {
+
+        HttpBlobProvider bp = CacheOperations.getProviderWithCache(provider);
+        CacheOperations.checkCacheAdmin(session, bp, "warm the cache");
+
+        List<ManagedBlob> blobs = new ArrayList<>();
+        if (urls != null) {
+            for (String url : urls) {
+                if (StringUtils.isNotBlank(url)) {
+                    blobs.add(bp.blobForUrl(url.trim()));
+                }
+            }
+        }
+        if (StringUtils.isNotBlank(query)) {
+            if (StringUtils.isBlank(blobXPath)) {
+                blobXPath = "file:content";
+            }
+            int max = maxDocuments == null || maxDocuments <= 0 ? DEFAULT_MAX_DOCUMENTS : maxDocuments;
+            String prefix = bp.blobProviderId + ":";
+            for (DocumentModel doc : session.query(query, max)) {
+                Object blob = doc.getPropertyValue(blobXPath);
+                // Only the blobs of this provider
+                if (blob instanceof ManagedBlob && ((ManagedBlob) blob).getKey().startsWith(prefix)) {
+                    blobs.add((ManagedBlob) blob);
+                }
+            }
+        }
+        if (blobs.isEmpty() && urls == null && StringUtils.isBlank(query)) {
+            throw new NuxeoException("Either urls or query is required");
+        }
+
+        int threads = concurrency == null || concurrency <= 0 ? DEFAULT_CONCURRENCY
+                : Math.min(concurrency, MAX_CONCURRENCY);
+        CompletableFuture<CacheWarmer.Report> future = bp.warmCache(blobs, threads);
+
+        JSONObject result = new JSONObject();
+        if (!waitForCompletion) {
+            result.put("queued", blobs.size());
+        } else {
+            CacheWarmer.Report report = future.get();
+            result.put("total", report.total);
+            result.put("fetched", report.fetched);
+            result.put("alreadyCached", report.alreadyCached);
+            result.put("failed", report.failed);
+            result.put("durationMillis", report.durationMillis);
+            result.put("errors", new JSONArray(report.errors));
+        }
+        return Blobs.createJSONBlob(result.toString());
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A connection to no server: the response is set by a {@link Handler} when the request is sent.
+ */
+public class StubConnection extends HttpURLConnection {
+
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Reads the request, sets the response with {@link StubConnection#respond(int, String)} and
+         * {@link StubConnection#setHeader(String, String)}, or throws to simulate a transport error
+         */
+        void handle(StubConnection connection) throws IOException;
+    }
+
+    protected final Handler handler;
+
+    protected final Map<String, String> requestHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    protected final Map<String, String> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    protected byte[] body = new byte[0];
+
+    protected boolean sent;
+
+    protected IOException error;
+
+    protected volatile boolean disconnected;
+
+    public StubConnection(URL url, Handler handler) {
+        super(url);
+        this.handler = handler;
+    }
+
+    public StubConnection respond(int code, String content) {
+        responseCode = code;
+        body = content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+        return this;
+    }
+
+    public StubConnection setHeader(String name, String value) {
+        responseHeaders.put(name, value);
+        return this;
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    @Override
+    public void setRequestProperty(String key, String value) {
+        requestHeaders.put(key, value);
+    }
+
+    @Override
+    public String getRequestProperty(String key) {
+        return requestHeaders.get(key);
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (!sent) {
+            sent = true;
+            responseCode = HTTP_OK;
+            try {
+                handler.handle(this);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        connect();
+        return responseCode;
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        try {
+            connect();
+        } catch (IOException e) {
+            return null;
+        }
+        return responseHeaders.get(name);
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        String length = getHeaderField("Content-Length");
+        return length == null ? body.length : Long.parseLong(length);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        connect();
+        if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+            throw new FileNotFoundException(url.toString());
+        }
+        if (responseCode >= 400) {
+            throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+        }
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void disconnect() {
+        disconnected = true;
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+
+/**
+ * A provider whose requests go to a {@link StubConnection.Handler}, with its cache in a given directory, usable
+ * without the Nuxeo runtime (see {@link #initialize(Map)}) or contributed to the BlobManager.
+ */
+public class StubHttpBlobProvider extends HttpBlobProvider {
+
+    public static final String ID = "stub";
+
+    protected final File cacheDir;
+
+    protected volatile StubConnection.Handler server = connection -> connection.respond(404, null);
+
+    protected final List<StubConnection> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * As contributed to the BlobManager: the cache is set up from the properties
+     */
+    public StubHttpBlobProvider() {
+        this(null);
+    }
+
+    /**
+     * @param cacheDir the directory of the cache, null to use the properties
+     */
+    public StubHttpBlobProvider(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * No cluster, no shared cache
+     */
+    public static Map<String, String> defaultProperties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROPERTY_CLUSTER_INVALIDATION, "false");
+        return properties;
+    }
+
+    public StubHttpBlobProvider initialize(Map<String, String> properties) throws IOException {
+        initialize(ID, properties);
+        return this;
+    }
+
+    public void setServer(StubConnection.Handler server) {
+        this.server = server;
+    }
+
+    public List<StubConnection> getRequests() {
+        return requests;
+    }
+
+    public ManagedBlob blob(String url, String digest) {
+        BlobInfo info = new BlobInfo();
+        info.key = blobProviderId + ":" + url;
+        info.digest = digest;
+        info.filename = "file";
+        info.mimeType = "application/octet-stream";
+        return new SimpleManagedBlob(info);
+    }
+
+    @Override
+    protected void setupCache() throws IOException {
+        if (cacheDir != null) {
+            fileCache = new HttpBlobCache(cacheDir);
+            setupCacheLimits();
+        } else {
+            super.setupCache();
+        }
+    }
+
+    @Override
+    protected HttpURLConnection newConnection(URL url) throws IOException {
+        StubConnection connection = new StubConnection(url, server);
+        requests.add(connection);
+        return connection;
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+public class TestAsyncFetch {
+
+    protected StubHttpBlobProvider provider;
+
+    @After
+    public void tearDown() {
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    protected StubHttpBlobProvider newProvider(Map<String, String> properties) throws IOException {
+        provider = new StubHttpBlobProvider(null).initialize(properties);
+        return provider;
+    }
+
+    protected static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void testFetchExecutor() throws Exception {
+
+        newProvider(StubHttpBlobProvider.defaultProperties());
+        ExecutorService executor = provider.newFetchExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            if (Runtime.version().feature() >= 21) {
+                // Found by reflection
+                assertFalse(executor instanceof ThreadPoolExecutor);
+                assertTrue(isVirtual(thread));
+            } else {
+                // Not available, platform threads instead
+                assertTrue(executor instanceof ThreadPoolExecutor);
+                assertEquals(HttpBlobProvider.DEFAULT_FETCH_MAX_THREADS,
+                        ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_USE_VIRTUAL_THREADS, "false");
+        properties.put(HttpBlobProvider.PROPERTY_FETCH_MAX_THREADS, "3");
+        newProvider(properties);
+        ExecutorService executor = provider.newFetchExecutor();
+        try {
+            assertTrue(executor instanceof ThreadPoolExecutor);
+            assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncKeepsThePriority() throws Exception {
+
+        newProvider(StubHttpBlobProvider.defaultProperties());
+        AtomicReference<FetchPriority> priority = new AtomicReference<>();
+        provider.setServer(connection -> {
+            priority.set(provider.getPriority());
+            connection.respond(200, "content");
+        });
+        ManagedBlob blob = provider.blob("https://origin.com/file", "0123456789abcdef");
+
+        CompletableFuture<Blob> future = FetchPriority.runAs(FetchPriority.BACKGROUND,
+                () -> provider.downloadFileAsync(blob));
+        Blob downloaded = future.get();
+        assertEquals(FetchPriority.BACKGROUND, priority.get());
+        assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), downloaded.getByteArray());
+        assertEquals("file", downloaded.getFilename());
+
+        try (InputStream in = provider.getStreamAsync(blob).get()) {
+            assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+        assertEquals(FetchPriority.INTERACTIVE, priority.get());
+    }
+
+    @Test
+    public void testExceptionsAreUnwrapped() throws Exception {
+
+        newProvider(StubHttpBlobProvider.defaultProperties());
+        provider.setServer(connection -> connection.respond(404, null));
+        ManagedBlob blob = provider.blob("https://origin.com/missing", "0123456789abcdef");
+
+        // The IOException is the cause, not wrapped in another CompletionException
+        try {
+            provider.downloadFileAsync(blob).get();
+            fail("The download should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof FileNotFoundException);
+        }
+        try {
+            provider.downloadFileAsync(blob).join();
+            fail("The download should fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof FileNotFoundException);
+        }
+
+        // Opened in the fetch thread, so failing there
+        provider.setServer(connection -> {
+            throw new IOException("Connection refused");
+        });
+        try {
+            provider.getStreamAsync(provider.blob("https://origin.com/other", "fedcba9876543210")).get();
+            fail("Opening the stream should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("Connection refused", e.getCause().getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testGetStreamFailsAtOnce() throws Exception {
+
+        newProvider(StubHttpBlobProvider.defaultProperties());
+        provider.setServer(connection -> {
+            throw new IOException("Connection refused");
+        });
+
+        // Thrown by getStream, not by the first read
+        try {
+            provider.getStream(provider.blob("https://origin.com/file", "0123456789abcdef"));
+            fail("Opening the stream should fail");
+        } catch (IOException e) {
+            assertEquals("Connection refused", e.getCause().getMessage());
+        }
+        assertEquals(1, provider.getRequests().size());
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestBandwidthLimiter {
+
+    protected static long readAll(InputStream in) throws Exception {
+        long total = 0;
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+
+    protected static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+
+        BandwidthLimiter limiter = new BandwidthLimiter(1_000_000);
+        long start = System.nanoTime();
+        assertEquals(300_000, readAll(limiter.wrap(new ByteArrayInputStream(new byte[300_000]))));
+        long elapsed = millisSince(start);
+        assertTrue(String.valueOf(elapsed), elapsed >= 250);
+        assertTrue(String.valueOf(elapsed), elapsed < 2000);
+    }
+
+    @Test
+    public void testSharedByTheStreams() throws Exception {
+
+        BandwidthLimiter limiter = new BandwidthLimiter(1_000_000);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            long start = System.nanoTime();
+            Future<?>[] futures = new Future<?>[3];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> readAll(limiter.wrap(new ByteArrayInputStream(new byte[100_000]))));
+            }
+            for (Future<?> future : futures) {
+                assertEquals(100_000L, future.get());
+            }
+            long elapsed = millisSince(start);
+            assertTrue(String.valueOf(elapsed), elapsed >= 250);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBurstAfterIdle() throws Exception {
+
+        BandwidthLimiter limiter = new BandwidthLimiter(1_000_000);
+        // Idle for a while: one second worth of data goes through at once
+        limiter.next = System.nanoTime() - TimeUnit.SECONDS.toNanos(5);
+        long start = System.nanoTime();
+        limiter.consume(900_000);
+        assertTrue(millisSince(start) < 200);
+
+        // Not more
+        limiter.consume(300_000);
+        assertTrue(millisSince(start) >= 150);
+    }
+
+    @Test
+    public void testInterrupted() throws Exception {
+
+        BandwidthLimiter limiter = new BandwidthLimiter(1000);
+        Thread.currentThread().interrupt();
+        try {
+            limiter.consume(10_000);
+            fail("Should be interrupted");
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.ByteRange;
+
+/**
+ * The byte ranges asked by Nuxeo's download service, with the key of the blob only.
+ */
+public class TestByteRange {
+
+    protected static final String URL = "https://origin.com/a";
+
+    protected static final String CONTENT = "content of /a";
+
+    protected File dir;
+
+    protected StubHttpBlobProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "true");
+        provider = new StubHttpBlobProvider(dir).initialize(properties);
+        // Honors the ranges
+        provider.setServer(connection -> {
+            String range = connection.getRequestProperty("Range");
+            if (range == null) {
+                connection.respond(200, CONTENT);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            connection.respond(206, CONTENT.substring(start, end + 1))
+                      .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + CONTENT.length());
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected String read(ByteRange range) throws Exception {
+        try (InputStream in = provider.getStream(provider.blobProviderId + ":" + URL, range)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testRangeFromRemoteThenCache() throws Exception {
+
+        assertTrue(provider.allowByteRange());
+
+        // Not cached: only the range is requested
+        assertEquals("tent", read(ByteRange.inclusive(3, 6)));
+        // Along with the whole file, for the cache
+        assertTrue(provider.getRequests()
+                           .stream()
+                           .anyMatch(request -> "bytes=3-6".equals(request.getRequestProperty("Range"))));
+
+        // Cached in the background, under the default digest
+        String digest = DigestUtils.md5Hex(URL);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (provider.getCacheEntry(digest) == null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(CONTENT.length(), provider.getCacheEntry(digest).getLength());
+        int requests = provider.getRequests().size();
+
+        // Then read from the cached file
+        assertEquals("of /a", read(ByteRange.inclusive(8, 12)));
+        assertEquals(requests, provider.getRequests().size());
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+public class TestCacheFreshness {
+
+    protected static final String URL = "https://origin.com/file";
+
+    protected static final String DIGEST = "0123456789abcdef";
+
+    protected static final String ETAG = "\"v1\"";
+
+    protected File dir;
+
+    protected StubHttpBlobProvider provider;
+
+    protected ManagedBlob blob;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "true");
+        properties.put(HttpBlobProvider.PROPERTY_CACHE_MAX_AGE, "60");
+        properties.put(HttpBlobProvider.PROPERTY_CACHE_STALE_WHILE_REVALIDATE, "60");
+        properties.put(HttpBlobProvider.PROPERTY_CACHE_STALE_IF_ERROR, "600");
+        properties.put(HttpBlobProvider.PROPERTY_USE_NEGATIVE_CACHE, "false");
+        provider = new StubHttpBlobProvider(dir).initialize(properties);
+        provider.setServer(this::serve);
+        blob = provider.blob(URL, DIGEST);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    // Same content as long as the ETag matches
+    protected void serve(StubConnection connection) {
+        if (ETAG.equals(connection.getRequestProperty("If-None-Match"))) {
+            connection.respond(304, null);
+        } else {
+            connection.respond(200, "content").setHeader("ETag", ETAG);
+        }
+    }
+
+    protected CacheEntry getEntry() {
+        return provider.fileCache.peekEntry(provider.cacheKey(DIGEST));
+    }
+
+    // Validated that many seconds ago
+    protected void age(long seconds) {
+        getEntry().validated = System.currentTimeMillis() - seconds * 1000;
+    }
+
+    protected String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFresh() throws Exception {
+
+        File file = provider.getFile(blob);
+        assertEquals("content", read(file));
+        assertEquals(1, provider.getRequests().size());
+        assertEquals(ETAG, getEntry().getEtag());
+        assertEquals(URL, getEntry().getUrl());
+
+        // From the cache, no request
+        assertEquals(file, provider.getFile(blob));
+        assertEquals(1, provider.getRequests().size());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+
+        provider.getFile(blob);
+        age(90);
+        long validated = getEntry().getValidated();
+
+        // Returned now, revalidated in the background
+        assertEquals("content", read(provider.getFile(blob)));
+        long timeout = System.currentTimeMillis() + 5000;
+        while (getEntry().getValidated() == validated && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(getEntry().getValidated() > validated);
+        assertEquals(2, provider.getRequests().size());
+        assertEquals(ETAG, provider.getRequests().get(1).getRequestProperty("If-None-Match"));
+        assertTrue(provider.isFresh(getEntry()));
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+
+        File file = provider.getFile(blob);
+        // Beyond the stale-while-revalidate window: revalidated now
+        age(200);
+
+        assertEquals(file, provider.getFile(blob));
+        assertEquals(2, provider.getRequests().size());
+        assertEquals(304, provider.getRequests().get(1).getResponseCode());
+        assertTrue(provider.isFresh(getEntry()));
+    }
+
+    @Test
+    public void testModified() throws Exception {
+
+        provider.getFile(blob);
+        age(200);
+
+        provider.setServer(connection -> connection.respond(200, "new content").setHeader("ETag", "\"v2\""));
+        assertEquals("new content", read(provider.getFile(blob)));
+        assertEquals("\"v2\"", getEntry().getEtag());
+    }
+
+    @Test
+    public void testNotModifiedAfterTheEntryIsGone() throws Exception {
+
+        provider.getFile(blob);
+        age(200);
+
+        // Invalidated while the conditional request is in progress
+        provider.setServer(connection -> {
+            if (connection.getRequestProperty("If-None-Match") != null) {
+                provider.fileCache.remove(provider.cacheKey(DIGEST));
+            }
+            serve(connection);
+        });
+        File file = provider.getFile(blob);
+        assertTrue(file.exists());
+        assertEquals("content", read(file));
+        assertEquals(3, provider.getRequests().size());
+        assertNull(provider.getRequests().get(2).getRequestProperty("If-None-Match"));
+    }
+
+    @Test
+    public void testStaleIfError() throws Exception {
+
+        File file = provider.getFile(blob);
+        age(200);
+
+        provider.setServer(connection -> connection.respond(503, null));
+        assertEquals(file, provider.getFile(blob));
+        assertEquals(2, provider.getRequests().size());
+        // Still stale, next call tries again
+        assertFalse(provider.isFresh(getEntry()));
+
+        // Too old to be used
+        age(1000);
+        try {
+            provider.getCachedFile(blob, DIGEST);
+            fail("The stale file should not be returned");
+        } catch (IOException e) {
+            // Expected
+        }
+        // getFile returns null, the caller uses the stream
+        assertNull(provider.getFile(blob));
+    }
+
+    @Test
+    public void testRemovedFromTheServer() throws Exception {
+
+        provider.getFile(blob);
+        age(200);
+
+        provider.setServer(connection -> connection.respond(404, null));
+        assertNull(provider.getFile(blob));
+        assertNull(getEntry());
+    }
+
+    protected static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("Timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /*
+     * The first request is answered with "old" once the test invalidated the
+     * file, the next ones with "new"
+     */
+    protected void serveOldDuringInvalidation(CountDownLatch requested, CountDownLatch invalidated) {
+        provider.setServer(connection -> {
+            if (provider.getRequests().size() == 1) {
+                requested.countDown();
+                await(invalidated);
+                connection.respond(200, "old").setHeader("ETag", "\"old\"");
+            } else {
+                connection.respond(200, "new").setHeader("ETag", "\"new\"");
+            }
+        });
+    }
+
+    @Test
+    public void testInvalidatedDuringTheDownload() throws Exception {
+
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        serveOldDuringInvalidation(requested, invalidated);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<File> future = executor.submit(() -> provider.getFile(blob));
+            await(requested);
+            assertEquals(0, provider.invalidate(new CacheInvalidation(CacheInvalidation.Type.URL, URL)));
+            invalidated.countDown();
+
+            // The old file is not cached, downloaded again
+            assertEquals("new", read(future.get()));
+            assertEquals("new", read(getEntry().getFile()));
+            assertEquals(2, provider.getRequests().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidatedDuringTheRevalidation() throws Exception {
+
+        provider.getFile(blob);
+        age(90);
+        provider.getRequests().clear();
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        serveOldDuringInvalidation(requested, invalidated);
+
+        // Revalidated in the background
+        assertEquals("content", read(provider.getFile(blob)));
+        await(requested);
+        assertEquals(1, provider.invalidate(
+                new CacheInvalidation(CacheInvalidation.Type.URL_PREFIX, "https://origin.com/")));
+        invalidated.countDown();
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!provider.revalidating.isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(provider.revalidating.isEmpty());
+        assertEquals("new", read(getEntry().getFile()));
+        assertEquals(2, provider.getRequests().size());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCacheInvalidation {
+
+    protected File dir;
+
+    protected HttpBlobCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        cache = new HttpBlobCache(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected CacheEntry put(String key, String url, String etag) throws Exception {
+        cache.putFile(key, new ByteArrayInputStream(new byte[10]));
+        CacheEntry entry = cache.getEntry(key);
+        entry.setUrl(url);
+        entry.setValidators(etag, null);
+        return entry;
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+
+        CacheEntry a = put("http:123", "https://site.com/folder/a", "W/\"v1\"");
+        CacheEntry b = put("456", "https://site.com/b", null);
+
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.DIGEST, "123").matches(a));
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.DIGEST, "456").matches(b));
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.URL, "https://site.com/folder/a").matches(a));
+        assertFalse(new CacheInvalidation(CacheInvalidation.Type.URL, "https://site.com/folder").matches(a));
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.URL_PREFIX, "https://site.com/folder/").matches(a));
+        assertFalse(new CacheInvalidation(CacheInvalidation.Type.URL_PREFIX, "https://site.com/folder/").matches(b));
+        // Weak or strong, quoted or not
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.ETAG, "\"v1\"").matches(a));
+        assertTrue(new CacheInvalidation(CacheInvalidation.Type.ETAG, "v1").matches(a));
+        assertFalse(new CacheInvalidation(CacheInvalidation.Type.ETAG, "v2").matches(a));
+        assertFalse(new CacheInvalidation(CacheInvalidation.Type.ETAG, "v1").matches(b));
+    }
+
+    @Test
+    public void testValueIsRequired() {
+        try {
+            new CacheInvalidation(CacheInvalidation.Type.URL, "");
+            fail("An empty value was accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testBroker() {
+
+        List<CacheInvalidation> received = new ArrayList<>();
+        CacheInvalidationBroker node1 = new CacheInvalidationBroker("http", received::add);
+        CacheInvalidationBroker node2 = new CacheInvalidationBroker("http", received::add);
+        assertEquals("httpblobprovider-invalidation-http", node1.topic);
+
+        byte[] message = node1.serialize(
+                new CacheInvalidation(CacheInvalidation.Type.URL_PREFIX, "https://site.com/a\tb"));
+        // Already applied by the sender
+        node1.onMessage(node1.topic, message);
+        assertEquals(0, received.size());
+
+        node2.onMessage(node2.topic, message);
+        assertEquals(1, received.size());
+        assertEquals(CacheInvalidation.Type.URL_PREFIX, received.get(0).getType());
+        assertEquals("https://site.com/a\tb", received.get(0).getValue());
+
+        // Ignored
+        node2.onMessage(node2.topic, "garbage".getBytes(StandardCharsets.UTF_8));
+        node2.onMessage(node2.topic, "node\tUNKNOWN\tvalue".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, received.size());
+    }
+
+}
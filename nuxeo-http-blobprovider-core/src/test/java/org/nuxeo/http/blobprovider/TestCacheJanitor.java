@@ -0,0 +1,194 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCacheJanitor {
+
+    protected File dir;
+
+    protected HttpBlobCache cache;
+
+    /*
+     * The free space of a real disk cannot be set, this one can
+     */
+    protected static class FakeVolume extends CacheVolume {
+
+        protected volatile long usableSpace;
+
+        public FakeVolume(File dir, long usableSpace) {
+            super(dir, 0);
+            this.usableSpace = usableSpace;
+        }
+
+        @Override
+        public long getUsableSpace() {
+            return usableSpace;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        cache = new HttpBlobCache(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected void put(HttpBlobCache cache, String key) throws Exception {
+        cache.putFile(key, new ByteArrayInputStream(new byte[10]));
+    }
+
+    @Test
+    public void testWatermarks() throws Exception {
+
+        // 100 bytes, eviction above 80, down to 50
+        CacheJanitor janitor = new CacheJanitor(cache, 100, 1000, 0, 80, 50, 0, 3600);
+        for (int i = 0; i < 8; i++) {
+            put(cache, "k" + i);
+        }
+        assertFalse(janitor.isAboveHighWatermark());
+        janitor.run();
+        assertEquals(0, janitor.getLastReport().evictedCount);
+        assertEquals(80, cache.getSize());
+
+        // Recently used, so kept
+        cache.getEntry("k0");
+        put(cache, "k8");
+        assertTrue(janitor.isAboveHighWatermark());
+        janitor.run();
+        CacheJanitor.Report report = janitor.getLastReport();
+        assertEquals(4, report.evictedCount);
+        assertEquals(40, report.evictedBytes);
+        assertEquals(50, report.sizeAfter);
+        assertEquals(5, report.countAfter);
+        assertFalse(report.lowDiskSpace);
+        assertNotNull(cache.getFile("k0"));
+        assertNull(cache.getFile("k1"));
+        assertNull(cache.getFile("k4"));
+        assertNotNull(cache.getFile("k5"));
+        assertFalse(janitor.isAboveHighWatermark());
+    }
+
+    @Test
+    public void testMaxCountWatermarks() throws Exception {
+
+        CacheJanitor janitor = new CacheJanitor(cache, 100000, 10, 0, 80, 50, 0, 3600);
+        for (int i = 0; i < 9; i++) {
+            put(cache, "k" + i);
+        }
+        assertTrue(janitor.isAboveHighWatermark());
+        janitor.run();
+        assertEquals(4, janitor.getLastReport().evictedCount);
+        assertEquals(5, cache.getNumberOfItems());
+    }
+
+    @Test
+    public void testMinAge() throws Exception {
+
+        // Nothing is older than one hour
+        CacheJanitor janitor = new CacheJanitor(cache, 100, 1000, 3600, 80, 50, 0, 3600);
+        for (int i = 0; i < 10; i++) {
+            put(cache, "k" + i);
+        }
+        janitor.run();
+        assertEquals(0, janitor.getLastReport().evictedCount);
+        assertEquals(100, cache.getSize());
+
+        janitor = new CacheJanitor(cache, 100, 1000, 0, 80, 50, 0, 3600);
+        janitor.run();
+        assertEquals(5, janitor.getLastReport().evictedCount);
+    }
+
+    @Test
+    public void testMinFreeSpace() throws Exception {
+
+        FakeVolume volume = new FakeVolume(new File(dir, "disk"), 5000);
+        HttpBlobCache small = new HttpBlobCache(List.of(volume));
+        // Far below the watermarks, only the free space matters
+        CacheJanitor janitor = new CacheJanitor(small, 100000, 1000, 0, 80, 50, 1000, 3600);
+        for (int i = 0; i < 5; i++) {
+            put(small, "k" + i);
+        }
+        janitor.run();
+        assertEquals(0, janitor.getLastReport().evictedCount);
+        assertFalse(janitor.getLastReport().lowDiskSpace);
+
+        // 20 bytes are missing
+        volume.usableSpace = 980;
+        janitor.run();
+        CacheJanitor.Report report = janitor.getLastReport();
+        assertTrue(report.lowDiskSpace);
+        assertEquals(2, report.evictedCount);
+        assertEquals(30, small.getSize());
+        assertEquals(980, report.freeSpaceAfter);
+        assertNull(small.getFile("k0"));
+        assertNotNull(small.getFile("k2"));
+    }
+
+    @Test
+    public void testOrphanSweep() throws Exception {
+
+        CacheJanitor janitor = new CacheJanitor(cache, 100, 1000, 0, 80, 50, 0, 60);
+        put(cache, "k0");
+        File cached = cache.getFile("k0");
+        File shard = cached.getParentFile();
+
+        // Left behind by a failed download, and a file nobody references
+        File tmp = cache.getTempFile("k1");
+        Files.write(tmp.toPath(), new byte[5]);
+        File orphan = new File(shard, "orphan");
+        Files.write(orphan.toPath(), new byte[5]);
+        // A download in progress
+        File recent = cache.getTempFile("k2");
+        Files.write(recent.toPath(), new byte[5]);
+
+        long old = System.currentTimeMillis() - 3600_000;
+        assertTrue(tmp.setLastModified(old));
+        assertTrue(orphan.setLastModified(old));
+        assertTrue(cached.setLastModified(old));
+
+        janitor.run();
+        assertEquals(2, janitor.getLastReport().orphansDeleted);
+        assertFalse(tmp.exists());
+        assertFalse(orphan.exists());
+        assertTrue(recent.exists());
+        assertTrue(cached.exists());
+        assertEquals(1, cache.getNumberOfItems());
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.automation.AutomationService;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.core.util.StringList;
+import org.nuxeo.ecm.automation.test.AutomationFeature;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.UserPrincipal;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.http.blobprovider.operations.GetCacheInfoOp;
+import org.nuxeo.http.blobprovider.operations.PinCacheOp;
+import org.nuxeo.http.blobprovider.operations.PurgeCacheOp;
+import org.nuxeo.http.blobprovider.operations.WarmCacheOp;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * The cache administration operations, against a provider answering the requests itself. Its cache is administered by
+ * the "cacheAdmins" group (see test/resources/http-blobprovider-stub-test.xml).
+ */
+@RunWith(FeaturesRunner.class)
+@Features(AutomationFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@Deploy("nuxeo-http-blobprovider-test:http-blobprovider-stub-test.xml")
+@Deploy("org.nuxeo.http.blobprovider.nuxeo-http-blobprovider-core")
+public class TestCacheOperations {
+
+    public static final String CACHE_PROVIDER = "http-stub-cache";
+
+    protected static final String ORIGIN = "https://origin.com/";
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected AutomationService automationService;
+
+    @Inject
+    protected BlobManager blobManager;
+
+    protected StubHttpBlobProvider provider;
+
+    @Before
+    public void setUp() {
+        provider = (StubHttpBlobProvider) blobManager.getBlobProvider(CACHE_PROVIDER);
+        provider.setServer(connection -> connection.respond(200, "content of " + connection.getURL().getPath()));
+        // The provider lives as long as the runtime
+        provider.purgeCache();
+        for (String digest : provider.getPinnedDigests()) {
+            provider.pinCache(digest, false);
+        }
+    }
+
+    protected void cache(String... paths) throws IOException {
+        for (String path : paths) {
+            assertNotNull(provider.getFile(provider.blobForUrl(ORIGIN + path)));
+        }
+    }
+
+    protected static String digest(String path) {
+        return DigestUtils.md5Hex(ORIGIN + path);
+    }
+
+    protected JSONObject run(CoreSession coreSession, String operationId, Map<String, Serializable> params)
+            throws Exception {
+        OperationContext ctx = new OperationContext(coreSession);
+        Map<String, Object> allParams = new HashMap<>(params);
+        allParams.put("provider", CACHE_PROVIDER);
+        Blob result = (Blob) automationService.run(ctx, operationId, allParams);
+        return new JSONObject(result.getString());
+    }
+
+    protected CoreSession getSession(String username, String group) {
+        UserPrincipal principal = new UserPrincipal(username, List.of(group), false, false);
+        return CoreInstance.getCoreSession(session.getRepositoryName(), principal);
+    }
+
+    @Test
+    public void testNotAllowed() throws Exception {
+
+        cache("a");
+        CoreSession userSession = getSession("bob", "members");
+        Map<String, Map<String, Serializable>> calls = Map.of( //
+                GetCacheInfoOp.ID, Map.of("listEntries", true), //
+                PurgeCacheOp.ID, Map.of("digest", digest("a")), //
+                PinCacheOp.ID, Map.of("digest", digest("a")), //
+                WarmCacheOp.ID, Map.of("urls", new StringList(List.of(ORIGIN + "b"))));
+        for (Map.Entry<String, Map<String, Serializable>> call : calls.entrySet()) {
+            try {
+                run(userSession, call.getKey(), call.getValue());
+                fail(call.getKey() + " should not be allowed");
+            } catch (NuxeoException e) {
+                assertEquals(call.getKey(), 403, e.getStatusCode());
+            }
+        }
+        // Nothing changed
+        assertEquals(1, provider.getNumberOfCachedFiles());
+        assertTrue(provider.getPinnedDigests().isEmpty());
+
+        // The members of the cacheAdminGroup are allowed
+        JSONObject result = run(getSession("alice", "cacheAdmins"), PurgeCacheOp.ID, Map.of("digest", digest("a")));
+        assertEquals(1, result.getInt("purged"));
+    }
+
+    @Test
+    public void testPurge() throws Exception {
+
+        cache("a", "b", "dir/c", "dir/d", "other/e");
+        assertEquals(5, provider.getNumberOfCachedFiles());
+
+        JSONObject result = run(session, PurgeCacheOp.ID, Map.of("url", ORIGIN + "a"));
+        assertEquals(1, result.getInt("purged"));
+        assertNull(provider.getCacheEntry(digest("a")));
+
+        result = run(session, PurgeCacheOp.ID, Map.of("urlPrefix", ORIGIN + "dir/"));
+        assertEquals(2, result.getInt("purged"));
+        assertNull(provider.getCacheEntry(digest("dir/c")));
+        assertNull(provider.getCacheEntry(digest("dir/d")));
+
+        result = run(session, PurgeCacheOp.ID, Map.of("digest", digest("b")));
+        assertEquals(1, result.getInt("purged"));
+        // Already gone
+        result = run(session, PurgeCacheOp.ID, Map.of("digest", digest("b")));
+        assertEquals(0, result.getInt("purged"));
+
+        assertEquals(1, provider.getNumberOfCachedFiles());
+        assertNotNull(provider.getCacheEntry(digest("other/e")));
+
+        // Exactly one parameter
+        try {
+            run(session, PurgeCacheOp.ID, Map.of("url", ORIGIN + "other/e", "digest", digest("other/e")));
+            fail("Two parameters should be rejected");
+        } catch (NuxeoException e) {
+            assertEquals("Use exactly one of digest, url, urlPrefix or all", e.getMessage());
+        }
+        assertEquals(1, provider.getNumberOfCachedFiles());
+    }
+
+    @Test
+    public void testPinFromDocument() throws Exception {
+
+        BlobInfo info = new BlobInfo();
+        info.key = ORIGIN + "a";
+        info.mimeType = "text/plain";
+        info.filename = "a.txt";
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        doc.setPropertyValue("file:content", (Serializable) provider.createBlob(info));
+        doc = session.createDocument(doc);
+        cache("a");
+
+        OperationContext ctx = new OperationContext(session);
+        ctx.setInput(doc);
+        Map<String, Object> params = new HashMap<>();
+        params.put("provider", CACHE_PROVIDER);
+        DocumentModel result = (DocumentModel) automationService.run(ctx, PinCacheOp.ID, params);
+        assertEquals(doc.getId(), result.getId());
+        assertTrue(provider.isPinned(digest("a")));
+
+        // Kept when the cache is purged
+        provider.purgeCache();
+        assertTrue(provider.getPinnedDigests().contains(digest("a")));
+
+        params.put("unpin", true);
+        ctx = new OperationContext(session);
+        ctx.setInput(doc);
+        automationService.run(ctx, PinCacheOp.ID, params);
+        assertFalse(provider.isPinned(digest("a")));
+    }
+
+    @Test
+    public void testListEntries() throws Exception {
+
+        cache("a", "dir/b", "dir/c", "dir/d");
+
+        JSONObject result = run(session, GetCacheInfoOp.ID, Map.of("listEntries", true));
+        assertEquals(CACHE_PROVIDER, result.getString("provider"));
+        assertTrue(result.getBoolean("cacheEnabled"));
+        assertEquals(4, result.getInt("count"));
+        assertEquals(4, result.getJSONArray("entries").length());
+
+        result = run(session, GetCacheInfoOp.ID, Map.of("listEntries", true, "urlPrefix", ORIGIN + "dir/"));
+        JSONArray entries = result.getJSONArray("entries");
+        assertEquals(3, entries.length());
+        for (int i = 0; i < entries.length(); i++) {
+            assertTrue(entries.getJSONObject(i).getString("url").startsWith(ORIGIN + "dir/"));
+        }
+
+        result = run(session, GetCacheInfoOp.ID,
+                Map.of("listEntries", true, "urlPrefix", ORIGIN + "dir/", "maxEntries", 2));
+        assertEquals(2, result.getJSONArray("entries").length());
+
+        // One entry
+        result = run(session, GetCacheInfoOp.ID, Map.of("digest", digest("a")));
+        JSONObject entry = result.getJSONObject("entry");
+        assertEquals(ORIGIN + "a", entry.getString("url"));
+        assertEquals("content of /a".length(), entry.getLong("length"));
+        assertFalse(result.has("entries"));
+    }
+
+    @Test
+    public void testWarmAndWait() throws Exception {
+
+        cache("a");
+        provider.setServer(connection -> {
+            if (connection.getURL().getPath().equals("/missing")) {
+                connection.respond(404, null);
+            } else {
+                connection.respond(200, "content of " + connection.getURL().getPath());
+            }
+        });
+
+        Map<String, Serializable> params = new HashMap<>();
+        params.put("urls", new StringList(List.of(ORIGIN + "a", ORIGIN + "b", ORIGIN + "c", ORIGIN + "missing")));
+        params.put("waitForCompletion", true);
+        JSONObject result = run(session, WarmCacheOp.ID, params);
+        assertEquals(4, result.getInt("total"));
+        assertEquals(2, result.getInt("fetched"));
+        assertEquals(1, result.getInt("alreadyCached"));
+        assertEquals(1, result.getInt("failed"));
+        assertEquals(1, result.getJSONArray("errors").length());
+
+        assertNotNull(provider.getCacheEntry(digest("b")));
+        assertNotNull(provider.getCacheEntry(digest("c")));
+        assertNull(provider.getCacheEntry(digest("missing")));
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+public class TestDeferredMetadata {
+
+    protected final List<ResolveBlobMetadataWork> works = new CopyOnWriteArrayList<>();
+
+    protected HttpBlobProvider newProvider() throws Exception {
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_DEFER_METADATA_RESOLUTION, "true");
+        properties.put(HttpBlobProvider.PROPERTY_METADATA_RESOLUTION_BATCH_SIZE, "2");
+        properties.put(HttpBlobProvider.PROPERTY_METADATA_RESOLUTION_INTERVAL, "1");
+        return new StubHttpBlobProvider() {
+            @Override
+            protected void scheduleWork(Work work) {
+                works.add((ResolveBlobMetadataWork) work);
+            }
+        }.initialize(properties);
+    }
+
+    protected static BlobInfo infoOf(String url) {
+        BlobInfo info = new BlobInfo();
+        info.key = url;
+        return info;
+    }
+
+    @Test
+    public void testInfosFromURLPath() throws Exception {
+
+        HttpBlobProvider bp = new HttpBlobProvider();
+
+        BlobInfo bi = bp.guessInfosFromURLPath("https://my.site.com/the/My%20File.pdf?token=abc");
+        assertEquals("My File.pdf", bi.filename);
+        assertEquals("application/pdf", bi.mimeType);
+
+        bi = bp.guessInfosFromURLPath("https://my.site.com/download/12345");
+        assertEquals("12345", bi.filename);
+        assertEquals(HttpBlobProvider.DEFAULT_MIME_TYPE, bi.mimeType);
+    }
+
+    @Test
+    public void testMergeKeepsModifiedValues() throws Exception {
+
+        BlobInfo info = new BlobInfo();
+        info.key = "http:https://my.site.com/download/12345";
+        info.digest = "abc";
+        info.mimeType = HttpBlobProvider.DEFAULT_MIME_TYPE;
+        // Renamed by a user before the resolution
+        info.filename = "renamed.pdf";
+        PendingMetadata pending = new PendingMetadata(info.key, "https://my.site.com/download/12345",
+                HttpBlobProvider.DEFAULT_MIME_TYPE, "12345");
+
+        BlobInfo guessed = new BlobInfo();
+        guessed.mimeType = "application/pdf";
+        guessed.filename = "report.pdf";
+        guessed.length = 1234L;
+
+        Blob merged = new ResolveBlobMetadataWork("http", List.of(pending), 0, 0).merge(new SimpleManagedBlob(info), pending, guessed);
+        assertEquals("application/pdf", merged.getMimeType());
+        assertEquals("renamed.pdf", merged.getFilename());
+        assertEquals(1234L, merged.getLength());
+        assertEquals("abc", merged.getDigest());
+    }
+
+    @Test
+    public void testOneWorkPerBatchAfterCommit() throws Exception {
+
+        HttpBlobProvider bp = newProvider();
+        TransactionHelper.startTransaction();
+        try {
+            for (int i = 0; i < 5; i++) {
+                bp.createBlob(infoOf("https://my.site.com/download/" + i));
+            }
+            // Not before the commit
+            assertEquals(0, works.size());
+        } finally {
+            TransactionHelper.commitOrRollbackTransaction();
+        }
+
+        assertEquals(3, works.size());
+        int count = 0;
+        for (ResolveBlobMetadataWork work : works) {
+            assertEquals(0, work.getAttempt());
+            assertEquals(0, work.getNotBefore());
+            assertTrue(work.getPending().size() <= 2);
+            for (PendingMetadata p : work.getPending()) {
+                assertEquals("https://my.site.com/download/" + count, p.getUrl());
+                assertEquals(bp.blobProviderId + ":" + p.getUrl(), p.getKey());
+                count++;
+            }
+        }
+        assertEquals(5, count);
+
+        // Outside a transaction: scheduled immediately
+        bp.createBlob(infoOf("https://my.site.com/download/5"));
+        assertEquals(4, works.size());
+    }
+
+    @Test
+    public void testWorkCarriesItsState() throws Exception {
+
+        PendingMetadata pending = new PendingMetadata("http:https://my.site.com/a", "https://my.site.com/a",
+                HttpBlobProvider.DEFAULT_MIME_TYPE, "a");
+        ResolveBlobMetadataWork work = new ResolveBlobMetadataWork("http", List.of(pending), 3, 1234);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(work);
+        }
+        ResolveBlobMetadataWork read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ResolveBlobMetadataWork) in.readObject();
+        }
+        assertEquals(3, read.getAttempt());
+        assertEquals(1234, read.getNotBefore());
+        assertEquals(1, read.getPending().size());
+        assertEquals(pending.getKey(), read.getPending().get(0).getKey());
+        assertEquals(pending.getUrl(), read.getPending().get(0).getUrl());
+        assertEquals("a", read.getPending().get(0).getDefaultFilename());
+    }
+
+    @Test
+    public void testRetryInANewWork() throws Exception {
+
+        HttpBlobProvider bp = newProvider();
+        PendingMetadata pending = new PendingMetadata("http:https://my.site.com/a", "https://my.site.com/a",
+                HttpBlobProvider.DEFAULT_MIME_TYPE, "a");
+
+        long before = System.currentTimeMillis();
+        new ResolveBlobMetadataWork(bp.blobProviderId, List.of(pending), 0, 0).retry(bp, List.of(pending));
+        // Scheduled when due, not queued to wait in a worker thread
+        assertEquals(0, works.size());
+        waitFor(() -> works.size() == 1);
+        assertTrue(System.currentTimeMillis() >= before + 1000);
+        assertEquals(1, works.get(0).getAttempt());
+        assertTrue(works.get(0).getNotBefore() >= before + 1000);
+
+        // Last attempt: given up
+        new ResolveBlobMetadataWork(bp.blobProviderId, List.of(pending), ResolveBlobMetadataWork.MAX_ATTEMPTS - 1,
+                0).retry(bp, List.of(pending));
+        Thread.sleep(1500);
+        assertEquals(1, works.size());
+    }
+
+    @Test
+    public void testRunTooEarly() throws Exception {
+
+        HttpBlobProvider bp = newProvider();
+        PendingMetadata pending = new PendingMetadata("http:https://my.site.com/a", "https://my.site.com/a",
+                HttpBlobProvider.DEFAULT_MIME_TYPE, "a");
+
+        // As read back from the queue after a restart: does not wait, scheduled again when due
+        long notBefore = System.currentTimeMillis() + 1000;
+        ResolveBlobMetadataWork work = new ResolveBlobMetadataWork(bp.blobProviderId, List.of(pending), 2, notBefore) {
+            @Override
+            protected HttpBlobProvider getProvider() {
+                return bp;
+            }
+        };
+        work.work();
+        assertTrue(System.currentTimeMillis() < notBefore);
+        assertEquals(0, works.size());
+
+        waitFor(() -> works.size() == 1);
+        assertTrue(System.currentTimeMillis() >= notBefore);
+        assertEquals(2, works.get(0).getAttempt());
+        assertEquals(notBefore, works.get(0).getNotBefore());
+        assertEquals(pending.getKey(), works.get(0).getPending().get(0).getKey());
+    }
+
+    protected static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+/**
+ * Downloads without the cache: small bodies stay in memory, larger ones go to a temp. file.
+ */
+public class TestDownloadFile {
+
+    // Longer than the threshold, each byte at its place
+    public static final String LARGE = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    protected StubHttpBlobProvider provider;
+
+    protected ManagedBlob blob;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_DOWNLOAD_MEMORY_THRESHOLD, "16");
+        provider = new StubHttpBlobProvider(null).initialize(properties);
+        blob = provider.blob("https://origin.com/file", "0123456789abcdef");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.close();
+    }
+
+    @Test
+    public void testSmallBodyInMemory() throws Exception {
+
+        provider.setServer(connection -> connection.respond(200, "small"));
+        Blob downloaded = provider.downloadFile(blob);
+        assertTrue(downloaded instanceof ByteArrayBlob);
+        assertNull(downloaded.getFile());
+        assertEquals("small", new String(downloaded.getByteArray(), StandardCharsets.UTF_8));
+        assertEquals("file", downloaded.getFilename());
+
+        // Same without a Content-Length
+        provider.setServer(connection -> connection.respond(200, "small").setHeader("Content-Length", "-1"));
+        downloaded = provider.downloadFile(blob);
+        assertTrue(downloaded instanceof ByteArrayBlob);
+        assertEquals("small", new String(downloaded.getByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testUnknownLengthSpillsToDisk() throws Exception {
+
+        // The head already read in the buffer is written first
+        provider.setServer(connection -> connection.respond(200, LARGE).setHeader("Content-Length", "-1"));
+        Blob downloaded = provider.downloadFile(blob);
+        File file = downloaded.getFile();
+        assertNotNull(file);
+        try {
+            assertArrayEquals(LARGE.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+            assertEquals("file", downloaded.getFilename());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testKnownLengthSpillsToDisk() throws Exception {
+
+        provider.setServer(connection -> connection.respond(200, LARGE));
+        Blob downloaded = provider.downloadFile(blob);
+        File file = downloaded.getFile();
+        assertNotNull(file);
+        try {
+            assertArrayEquals(LARGE.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+public class TestFetchScheduler {
+
+    protected ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    protected Future<?> acquireLater(FetchScheduler scheduler, FetchPriority priority) {
+        return executor.submit(() -> {
+            scheduler.acquire(priority);
+            return null;
+        });
+    }
+
+    protected static int waiters(FetchScheduler scheduler, Condition condition) {
+        scheduler.lock.lock();
+        try {
+            return scheduler.lock.getWaitQueueLength(condition);
+        } finally {
+            scheduler.lock.unlock();
+        }
+    }
+
+    protected static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testBackgroundCap() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(4, 2);
+        scheduler.acquire(FetchPriority.BACKGROUND);
+        scheduler.acquire(FetchPriority.BACKGROUND);
+        Future<?> third = acquireLater(scheduler, FetchPriority.BACKGROUND);
+        waitFor(() -> waiters(scheduler, scheduler.backgroundCondition) == 1);
+
+        // The other slots are still available to interactive fetches
+        scheduler.acquire(FetchPriority.INTERACTIVE);
+        assertEquals(3, scheduler.getInFlight());
+        assertEquals(2, scheduler.getBackgroundInFlight());
+        assertFalse(third.isDone());
+
+        scheduler.release(FetchPriority.BACKGROUND);
+        third.get(5, TimeUnit.SECONDS);
+        assertEquals(3, scheduler.getInFlight());
+        assertEquals(2, scheduler.getBackgroundInFlight());
+    }
+
+    @Test
+    public void testInteractiveFirst() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(1, 1);
+        scheduler.acquire(FetchPriority.INTERACTIVE);
+        Future<?> background = acquireLater(scheduler, FetchPriority.BACKGROUND);
+        waitFor(() -> waiters(scheduler, scheduler.backgroundCondition) == 1);
+        Future<?> interactive = acquireLater(scheduler, FetchPriority.INTERACTIVE);
+        waitFor(() -> waiters(scheduler, scheduler.interactiveCondition) == 1);
+
+        // Waiting for longer, but background
+        scheduler.release(FetchPriority.INTERACTIVE);
+        interactive.get(5, TimeUnit.SECONDS);
+        assertFalse(background.isDone());
+        assertEquals(0, scheduler.getBackgroundInFlight());
+
+        scheduler.release(FetchPriority.INTERACTIVE);
+        background.get(5, TimeUnit.SECONDS);
+        assertEquals(1, scheduler.getBackgroundInFlight());
+    }
+
+    @Test
+    public void testInterrupted() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(1, 1);
+        scheduler.acquire(FetchPriority.INTERACTIVE);
+        Future<Boolean> waiting = executor.submit(() -> {
+            try {
+                scheduler.acquire(FetchPriority.INTERACTIVE);
+                return false;
+            } catch (InterruptedIOException e) {
+                return Thread.currentThread().isInterrupted();
+            }
+        });
+        waitFor(() -> waiters(scheduler, scheduler.interactiveCondition) == 1);
+        waiting.cancel(true);
+        waitFor(() -> waiters(scheduler, scheduler.interactiveCondition) == 0);
+
+        // Nothing was taken, and nobody is waiting any more
+        assertEquals(1, scheduler.getInFlight());
+        assertEquals(0, scheduler.interactiveWaiting);
+        scheduler.release(FetchPriority.INTERACTIVE);
+        scheduler.acquire(FetchPriority.BACKGROUND);
+        assertEquals(1, scheduler.getBackgroundInFlight());
+    }
+
+    @Test
+    public void testInterruptedFlagIsKept() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(1, 1);
+        scheduler.acquire(FetchPriority.INTERACTIVE);
+        Thread.currentThread().interrupt();
+        try {
+            scheduler.acquire(FetchPriority.BACKGROUND);
+            fail("Should be interrupted");
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+        assertEquals(0, scheduler.getBackgroundInFlight());
+    }
+
+    @Test
+    public void testAcquireTimeout() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(1, 1, 100);
+        scheduler.acquire(FetchPriority.INTERACTIVE);
+
+        for (FetchPriority priority : FetchPriority.values()) {
+            long start = System.nanoTime();
+            try {
+                scheduler.acquire(priority);
+                fail("No slot should be available");
+            } catch (InterruptedIOException e) {
+                fail("Not interrupted");
+            } catch (IOException e) {
+                assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+            }
+        }
+        assertEquals(1, scheduler.getInFlight());
+        assertEquals(0, scheduler.interactiveWaiting);
+
+        // Before the timeout
+        Future<?> waiting = acquireLater(scheduler, FetchPriority.INTERACTIVE);
+        waitFor(() -> waiters(scheduler, scheduler.interactiveCondition) == 1);
+        scheduler.release(FetchPriority.INTERACTIVE);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(1, scheduler.getInFlight());
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+
+        FetchScheduler scheduler = new FetchScheduler(0, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            scheduler.acquire(FetchPriority.INTERACTIVE);
+        }
+        scheduler.acquire(FetchPriority.BACKGROUND);
+        assertEquals(101, scheduler.getInFlight());
+
+        // Background fetches are still capped
+        try {
+            scheduler.acquire(FetchPriority.BACKGROUND);
+            fail("No background slot should be available");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, scheduler.getBackgroundInFlight());
+    }
+
+    @Test
+    public void testStreamDoesNotHoldASlot() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_FETCH_MAX_CONCURRENT, "1");
+        properties.put(HttpBlobProvider.PROPERTY_FETCH_ACQUIRE_TIMEOUT, "1");
+        StubHttpBlobProvider provider = new StubHttpBlobProvider(null).initialize(properties);
+        try {
+            provider.setServer(connection -> connection.respond(200, "content"));
+            ManagedBlob blob = provider.blob("https://origin.com/file", "0123456789abcdef");
+
+            // Both are open at the same time with a single slot
+            try (InputStream first = provider.getStream(blob); InputStream second = provider.getStream(blob)) {
+                assertEquals(0, provider.fetchScheduler.getInFlight());
+                assertEquals('c', first.read());
+                assertEquals('c', second.read());
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+
+        StubHttpBlobProvider provider = new StubHttpBlobProvider(null).initialize(
+                StubHttpBlobProvider.defaultProperties());
+        try {
+            assertEquals(0, provider.fetchScheduler.maxConcurrent);
+
+            FetchScheduler previous = provider.fetchScheduler;
+            Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+            properties.put(HttpBlobProvider.PROPERTY_FETCH_MAX_CONCURRENT, "8");
+            properties.put(HttpBlobProvider.PROPERTY_FETCH_MAX_BACKGROUND_CONCURRENT, "2");
+            provider.reconfigure(properties);
+
+            assertTrue(previous != provider.fetchScheduler);
+            assertEquals(8, provider.fetchScheduler.maxConcurrent);
+            assertEquals(2, provider.fetchScheduler.maxBackground);
+        } finally {
+            provider.close();
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+import io.opencensus.testing.export.TestHandler;
+import io.opencensus.trace.AttributeValue;
+import io.opencensus.trace.Status;
+import io.opencensus.trace.Tracing;
+import io.opencensus.trace.config.TraceConfig;
+import io.opencensus.trace.config.TraceParams;
+import io.opencensus.trace.export.SpanData;
+import io.opencensus.trace.samplers.Samplers;
+
+/**
+ * With the OpenCensus implementation, all the spans sampled and exported to a {@link TestHandler}
+ */
+public class TestFetchTracing {
+
+    protected static final String HANDLER = TestFetchTracing.class.getName();
+
+    protected TestHandler handler;
+
+    protected TraceParams previousParams;
+
+    protected File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        TraceConfig config = Tracing.getTraceConfig();
+        previousParams = config.getActiveTraceParams();
+        config.updateActiveTraceParams(previousParams.toBuilder().setSampler(Samplers.alwaysSample()).build());
+        handler = new TestHandler();
+        Tracing.getExportComponent().getSpanExporter().registerHandler(HANDLER, handler);
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Tracing.getExportComponent().getSpanExporter().unregisterHandler(HANDLER);
+        Tracing.getTraceConfig().updateActiveTraceParams(previousParams);
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /*
+     * The spans by name, once the expected number is exported
+     */
+    protected Map<String, SpanData> waitForSpans(int count) {
+        Map<String, SpanData> spans = new HashMap<>();
+        for (SpanData span : handler.waitForExport(count)) {
+            spans.put(span.getName(), span);
+        }
+        return spans;
+    }
+
+    protected static AttributeValue attribute(SpanData span, String key) {
+        return span.getAttributes().getAttributeMap().get(key);
+    }
+
+    @Test
+    public void testQueryStringIsNotRecorded() throws Exception {
+
+        FetchTracing.trace("head", () -> {
+            FetchTracing.putUrlAttributes("https://my.site.com/the/file.pdf?token=s3cr3t");
+            return null;
+        });
+
+        SpanData span = waitForSpans(1).get(FetchTracing.SPAN_PREFIX + "head");
+        assertNotNull(span);
+        assertEquals(AttributeValue.stringAttributeValue("my.site.com"), attribute(span, FetchTracing.ATTR_HOST));
+        assertEquals(AttributeValue.stringAttributeValue("/the/file.pdf"), attribute(span, FetchTracing.ATTR_PATH));
+        for (AttributeValue value : span.getAttributes().getAttributeMap().values()) {
+            assertFalse(value.toString(), value.toString().contains("s3cr3t"));
+        }
+    }
+
+    @Test
+    public void testErrorSetsTheStatus() throws Exception {
+
+        try {
+            FetchTracing.trace("head", () -> {
+                throw new IOException("Connection refused");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("Connection refused", e.getMessage());
+        }
+
+        SpanData span = waitForSpans(1).get(FetchTracing.SPAN_PREFIX + "head");
+        assertNotNull(span);
+        assertEquals(Status.CanonicalCode.UNKNOWN, span.getStatus().getCanonicalCode());
+        assertTrue(span.getStatus().getDescription(), span.getStatus().getDescription().contains("Connection refused"));
+    }
+
+    @Test
+    public void testSpansOfADownload() throws Exception {
+
+        String content = "Some content";
+        StubHttpBlobProvider provider = new StubHttpBlobProvider(dir).initialize(
+                StubHttpBlobProvider.defaultProperties());
+        try {
+            provider.setServer(connection -> connection.respond(200, content));
+            ManagedBlob blob = provider.blob("https://my.site.com/file.txt?token=s3cr3t", "0123456789abcdef");
+            assertNotNull(provider.getFile(blob));
+
+            // getFile, connect, waitResponse, transfer
+            Map<String, SpanData> spans = waitForSpans(4);
+            SpanData getFile = spans.get(FetchTracing.SPAN_PREFIX + "getFile");
+            assertNotNull(getFile);
+            assertNull(getFile.getParentSpanId());
+            assertEquals(AttributeValue.stringAttributeValue("miss"),
+                    attribute(getFile, FetchTracing.ATTR_CACHE_OUTCOME));
+            assertEquals(AttributeValue.stringAttributeValue(StubHttpBlobProvider.ID),
+                    attribute(getFile, FetchTracing.ATTR_PROVIDER));
+            assertEquals(AttributeValue.stringAttributeValue("/file.txt"), attribute(getFile, FetchTracing.ATTR_PATH));
+
+            for (String phase : List.of("connect", "waitResponse", "transfer")) {
+                SpanData span = spans.get(FetchTracing.SPAN_PREFIX + phase);
+                assertNotNull(phase, span);
+                // In the trace of the call
+                assertEquals(getFile.getContext().getTraceId(), span.getContext().getTraceId());
+            }
+            assertEquals(AttributeValue.longAttributeValue(200),
+                    attribute(spans.get(FetchTracing.SPAN_PREFIX + "waitResponse"), FetchTracing.ATTR_STATUS_CODE));
+            assertEquals(AttributeValue.longAttributeValue(content.length()),
+                    attribute(spans.get(FetchTracing.SPAN_PREFIX + "transfer"), FetchTracing.ATTR_BYTES));
+
+            for (SpanData span : spans.values()) {
+                for (AttributeValue value : span.getAttributes().getAttributeMap().values()) {
+                    assertFalse(value.toString(), value.toString().contains("s3cr3t"));
+                }
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+}
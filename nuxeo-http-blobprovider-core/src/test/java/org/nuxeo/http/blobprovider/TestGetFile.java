@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+
+public class TestGetFile {
+
+    protected File dir;
+
+    protected StubHttpBlobProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "true");
+        provider = new StubHttpBlobProvider(dir).initialize(properties);
+        provider.setServer(connection -> connection.respond(200, "content of " + connection.getURL().getPath()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testMissThenHit() throws Exception {
+
+        ManagedBlob blob = provider.blob("https://origin.com/a", "0123456789abcdef");
+        File file = provider.getFile(blob);
+        assertNotNull(file);
+        assertEquals("content of /a", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, provider.getRequests().size());
+        assertEquals(file, provider.fileCache.getFile(provider.cacheKey(blob.getDigest())));
+
+        // Same file, no request
+        assertEquals(file, provider.getFile(blob));
+        assertEquals(1, provider.getRequests().size());
+    }
+
+    @Test
+    public void testError() throws Exception {
+
+        provider.setServer(connection -> connection.respond(500, null));
+        ManagedBlob blob = provider.blob("https://origin.com/a", "0123456789abcdef");
+
+        // The caller uses the stream instead
+        assertNull(provider.getFile(blob));
+        assertEquals(0, provider.fileCache.getNumberOfItems());
+        assertEquals(0, provider.fileCache.getSize());
+
+        // Not found
+        provider.setServer(connection -> connection.respond(404, null));
+        assertNull(provider.getFile(provider.blob("https://origin.com/b", "fedcba9876543210")));
+        assertEquals(0, provider.fileCache.getNumberOfItems());
+    }
+
+    @Test
+    public void testNoFile() throws Exception {
+
+        // Without digest, nothing to cache it under
+        assertNull(provider.getFile(provider.blob("https://origin.com/a", null)));
+
+        // Without cache
+        StubHttpBlobProvider noCache = new StubHttpBlobProvider(null)
+                .initialize(StubHttpBlobProvider.defaultProperties());
+        try {
+            assertNull(noCache.getFile(noCache.blob("https://origin.com/a", "0123456789abcdef")));
+            assertEquals(0, noCache.getRequests().size());
+        } finally {
+            noCache.close();
+        }
+        assertEquals(0, provider.getRequests().size());
+    }
+
+    @Test
+    public void testOneHitPerAccess() throws Exception {
+
+        ManagedBlob blob = provider.blob("https://origin.com/a", "0123456789abcdef");
+        provider.getFile(blob);
+        CacheEntry entry = provider.fileCache.peekEntry(provider.cacheKey(blob.getDigest()));
+        long hits = entry.getHits();
+
+        try (InputStream in = provider.getStream(blob)) {
+            assertEquals("content of /a", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(hits + 1, entry.getHits());
+
+        // Already cached, a warm-up is not an access
+        CacheWarmer.Report report = new CacheWarmer(provider, 1).warm(List.of(blob)).get();
+        assertEquals(1, report.alreadyCached);
+        assertEquals(hits + 1, entry.getHits());
+        assertEquals(1, provider.getRequests().size());
+    }
+
+    @Test
+    public void testEvictedFile() throws Exception {
+
+        ManagedBlob blob = provider.blob("https://origin.com/a", "0123456789abcdef");
+        File file = provider.getFile(blob);
+        provider.fileCache.evict(0, 0, 0);
+        // Only valid while cached
+        assertFalse(file.exists());
+
+        File again = provider.getFile(blob);
+        assertNotNull(again);
+        assertEquals(2, provider.getRequests().size());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestHotSet {
+
+    protected static CacheEntry entry(String key, String url, int hits) {
+        CacheEntry entry = new CacheEntry(key, new File("/nonexistent/" + key));
+        entry.setUrl(url);
+        for (int i = 0; i < hits; i++) {
+            entry.touch();
+        }
+        return entry;
+    }
+
+    @Test
+    public void testHottestFirst() throws Exception {
+
+        CacheEntry cold = entry("a", "https://my.site.com/a", 1);
+        CacheEntry hot = entry("b", "https://my.site.com/b", 10);
+        CacheEntry noUrl = entry("c", null, 100);
+        CacheEntry warm = entry("d", "https://my.site.com/d", 5);
+
+        List<HotSet.Item> items = HotSet.select(List.of(cold, hot, noUrl, warm), 2);
+        assertEquals(2, items.size());
+        assertEquals("b", items.get(0).digest);
+        assertEquals(10, items.get(0).hits);
+        assertEquals("d", items.get(1).digest);
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+
+        File dir = Files.createTempDirectory("hotset").toFile();
+        File file = new File(dir, "sub/hotset.txt");
+        try {
+            assertTrue(HotSet.read(file).isEmpty());
+
+            List<HotSet.Item> items = List.of(new HotSet.Item("b", 10, 1234, "https://my.site.com/b?x=1&y=2"),
+                    new HotSet.Item("a", 1, 56, "https://my.site.com/a"));
+            HotSet.write(file, items);
+
+            List<HotSet.Item> read = HotSet.read(file);
+            assertEquals(2, read.size());
+            assertEquals("b", read.get(0).digest);
+            assertEquals(10, read.get(0).hits);
+            assertEquals(1234, read.get(0).length);
+            assertEquals("https://my.site.com/b?x=1&y=2", read.get(0).url);
+            assertEquals("a", read.get(1).digest);
+            // No temporary file left
+            assertEquals(1, file.getParentFile().list().length);
+        } finally {
+            file.delete();
+            file.getParentFile().delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testInvalidLinesAreSkipped() throws Exception {
+
+        File file = File.createTempFile("hotset", ".txt");
+        try {
+            Files.writeString(file.toPath(), HotSet.HEADER + "\nb\t10\t1234\thttps://my.site.com/b\ngarbage\n"
+                    + "c\tten\t1\thttps://my.site.com/c\n", StandardCharsets.UTF_8);
+            List<HotSet.Item> read = HotSet.read(file);
+            assertEquals(1, read.size());
+            assertEquals("b", read.get(0).digest);
+
+            // Not a hot set
+            Files.writeString(file.toPath(), "b\t10\t1234\thttps://my.site.com/b\n", StandardCharsets.UTF_8);
+            assertTrue(HotSet.read(file).isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+}
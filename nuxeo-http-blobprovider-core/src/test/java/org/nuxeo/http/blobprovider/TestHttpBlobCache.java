@@ -0,0 +1,270 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHttpBlobCache {
+
+    protected File dir;
+
+    protected HttpBlobCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        cache = new HttpBlobCache(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected void put(String key, String url) throws Exception {
+        cache.putFile(key, new ByteArrayInputStream(new byte[10]));
+        cache.getEntry(key).setUrl(url);
+    }
+
+    @Test
+    public void testPinnedEntriesAreNotEvicted() throws Exception {
+
+        put("a", "https://site.com/a");
+        put("b", "https://site.com/b");
+        put("c", "https://site.com/c");
+        // Pinning before the entry exists is fine
+        cache.pin("d");
+        put("d", "https://site.com/d");
+        cache.pin("a");
+
+        HttpBlobCache.EvictionResult result = cache.evict(0, 0, 0);
+        assertEquals(2, result.count);
+        assertNotNull(cache.getFile("a"));
+        assertNotNull(cache.getFile("d"));
+        assertNull(cache.getFile("b"));
+
+        assertTrue(cache.unpin("a"));
+        cache.evict(0, 0, 0);
+        assertNull(cache.getFile("a"));
+        assertEquals(1, cache.getNumberOfItems());
+    }
+
+    @Test
+    public void testNamespaceQuotas() throws Exception {
+
+        assertEquals("a:123", HttpBlobCache.key("a", "123"));
+        assertEquals("123", HttpBlobCache.key(null, "123"));
+        assertEquals("a", HttpBlobCache.namespaceOf("a:123"));
+        assertEquals("123", HttpBlobCache.digestOf("a:123"));
+        assertEquals("123", HttpBlobCache.digestOf("123"));
+
+        cache.setNamespaceWeight("a", 1);
+        cache.setNamespaceWeight("b", 3);
+        assertEquals(10, cache.getQuota("a", 40));
+        assertEquals(30, cache.getQuota("b", 40));
+
+        // "a" borrows the space "b" does not use
+        for (int i = 0; i < 4; i++) {
+            put("a:" + i, null);
+        }
+        assertEquals(0, cache.evict(40, 100, 0).count);
+        assertEquals(40, cache.getSize("a"));
+
+        // "b" gets it back, from the least recently used files of "a"
+        cache.getEntry("a:0");
+        put("b:0", null);
+        put("b:1", null);
+        assertEquals(2, cache.evict(40, 100, 0).count);
+        assertTrue(cache.contains("a:0"));
+        assertFalse(cache.contains("a:1"));
+        assertEquals(20, cache.getSize("a"));
+        assertEquals(20, cache.getSize("b"));
+
+        // "b" below its quota loses nothing, even with the oldest files
+        put("b:2", null);
+        cache.evict(40, 100, 0);
+        assertEquals(10, cache.getSize("a"));
+        assertEquals(30, cache.getSize("b"));
+
+        // The files of an unregistered namespace go first
+        cache.removeNamespace("a");
+        assertEquals(0, cache.getQuota("a", 40));
+        assertEquals(40, cache.getQuota("b", 40));
+        put("b:3", null);
+        cache.evict(40, 100, 0);
+        assertEquals(0, cache.getSize("a"));
+        assertEquals(40, cache.getSize("b"));
+    }
+
+    @Test
+    public void testRemoveIf() throws Exception {
+
+        put("a", "https://site.com/folder/a");
+        put("b", "https://site.com/folder/b");
+        put("c", "https://other.com/c");
+        cache.pin("a");
+
+        assertEquals(2, cache.removeIf(entry -> entry.getUrl().startsWith("https://site.com/folder/")));
+        assertEquals(1, cache.getNumberOfItems());
+        assertEquals(10, cache.getSize());
+        assertFalse(cache.contains("a"));
+        // The pin is kept for the next time
+        assertTrue(cache.isPinned("a"));
+    }
+
+    @Test
+    public void testPeekDoesNotChangeTheOrder() throws Exception {
+
+        put("a", null);
+        put("b", null);
+        assertNotNull(cache.peekEntry("a"));
+        assertEquals("a", cache.getEntries().get(0).getKey());
+
+        cache.getEntry("a");
+        assertEquals("b", cache.getEntries().get(0).getKey());
+    }
+
+    @Test
+    public void testFilesAreSharded() throws Exception {
+
+        put("a", null);
+        File file = cache.getFile("a");
+        File shard = file.getParentFile();
+        assertEquals(dir, shard.getParentFile());
+        assertEquals(2, shard.getName().length());
+
+        // Orphans are found in the subdirectories too
+        File orphan = new File(shard, "orphan");
+        Files.write(orphan.toPath(), new byte[5]);
+        assertEquals(1, cache.deleteOrphanedFiles(-1000));
+        assertFalse(orphan.exists());
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String key = "k" + (i % 50);
+                        if ((i + thread) % 3 == 0) {
+                            cache.remove(key);
+                        } else if (cache.getEntry(key) == null) {
+                            cache.putFile(key, new ByteArrayInputStream(new byte[10]));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(cache.getNumberOfItems() * 10L, cache.getSize());
+        for (CacheEntry entry : cache.getEntries()) {
+            assertTrue(entry.getFile().exists());
+        }
+        cache.evict(0, 0, 0);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getNumberOfItems());
+    }
+
+    @Test
+    public void testVolumes() throws Exception {
+
+        CacheVolume small = new CacheVolume(new File(dir, "disk1"), 1000);
+        CacheVolume large = new CacheVolume(new File(dir, "disk2"), 4000);
+        CacheVolume other = new CacheVolume(new File(dir, "disk3"), 4000);
+        HttpBlobCache multi = new HttpBlobCache(List.of(small, large, other));
+
+        Map<String, CacheVolume> placement = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String key = "key" + i;
+            File tmp = multi.getTempFile(key);
+            Files.write(tmp.toPath(), new byte[10]);
+            multi.putFile(key, tmp);
+            placement.put(key, multi.peekEntry(key).getVolume());
+        }
+        assertEquals(3000, multi.getSize());
+        assertEquals(3000, small.getSize() + large.getSize() + other.getSize());
+        // Weighted by the max. size
+        assertTrue(small.getSize() > 0);
+        assertTrue(small.getSize() < large.getSize());
+
+        // Evicting one volume does not touch the others
+        long largeSize = large.getSize();
+        multi.evict(small, 0, 0);
+        assertEquals(0, small.getSize());
+        assertEquals(largeSize, large.getSize());
+
+        // A volume goes offline: its entries are forgotten, the other keys stay where they are
+        FileUtils.deleteDirectory(other.getDirectory());
+        Files.write(other.getDirectory().toPath(), new byte[1]);
+        assertTrue(multi.checkVolumes());
+        assertFalse(other.isOnline());
+        assertEquals(small.getSize() + large.getSize(), multi.getSize());
+        for (Map.Entry<String, CacheVolume> entry : placement.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue() == other) {
+                assertNull(multi.getEntry(key));
+                File tmp = multi.getTempFile(key);
+                multi.putFile(key, tmp);
+                assertNotSame(other, multi.peekEntry(key).getVolume());
+            } else if (entry.getValue() == large) {
+                assertEquals(large, multi.getEntry(key).getVolume());
+            }
+        }
+
+        // And back online
+        other.getDirectory().delete();
+        assertTrue(multi.checkVolumes());
+        assertTrue(other.isOnline());
+        assertTrue(multi.isAvailable());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestMimeTypeSniffer {
+
+    protected static String sniff(byte[] data) {
+        return MimeTypeSniffer.sniff(data, data.length);
+    }
+
+    protected static String sniff(String data) {
+        return sniff(data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testMagicBytes() throws Exception {
+
+        assertEquals("application/pdf", sniff("%PDF-1.7\n%\u00e2\u00e3"));
+        assertEquals("image/png", sniff(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0 }));
+        assertEquals("image/jpeg", sniff(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 }));
+        assertEquals("image/webp", sniff("RIFF\u0000\u0000\u0000\u0000WEBPVP8 "));
+        assertEquals("video/mp4", sniff("\u0000\u0000\u0000\u0018ftypisom\u0000\u0000"));
+        assertEquals("video/quicktime", sniff("\u0000\u0000\u0000\u0014ftypqt  \u0000\u0000"));
+        assertEquals("application/gzip", sniff(new byte[] { 0x1F, (byte) 0x8B, 0x08 }));
+        // Binary, unknown
+        assertNull(sniff(new byte[] { 0x01, 0x02, 0x00, 0x03 }));
+        assertNull(MimeTypeSniffer.sniff(new byte[10], 0));
+    }
+
+    @Test
+    public void testZips() throws Exception {
+
+        String local = "PK\u0003\u0004" + "\u0000".repeat(26);
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                sniff(local + "[Content_Types].xml....PK\u0003\u0004" + "\u0000".repeat(26) + "word/document.xml"));
+        assertEquals("application/vnd.oasis.opendocument.text",
+                sniff(local + "mimetypeapplication/vnd.oasis.opendocument.textPK\u0003\u0004"));
+        assertEquals("application/zip", sniff(local + "folder/file.bin"));
+    }
+
+    @Test
+    public void testText() throws Exception {
+
+        assertEquals("text/plain", sniff("Hello, some text, \u00e9t\u00e9".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("image/svg+xml", sniff("<?xml version=\"1.0\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\">"));
+        assertEquals("application/xml", sniff("<?xml version=\"1.0\"?>\n<root/>"));
+        assertEquals("text/html", sniff("  <!DOCTYPE html><html>"));
+
+        // Truncated in the middle of a multi-byte character
+        byte[] utf8 = "Texte accentu\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertEquals("text/plain", MimeTypeSniffer.sniff(utf8, utf8.length - 1));
+    }
+
+    @Test
+    public void testContentRange() throws Exception {
+
+        assertEquals(123456, HttpBlobProvider.getTotalLength("bytes 0-4095/123456"));
+        assertEquals(-1, HttpBlobProvider.getTotalLength("bytes 0-4095/*"));
+        assertEquals(-1, HttpBlobProvider.getTotalLength(null));
+    }
+
+}
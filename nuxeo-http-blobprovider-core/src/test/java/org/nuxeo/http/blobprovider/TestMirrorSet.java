@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestMirrorSet {
+
+    protected static MirrorSet.Mirror mirror(String baseUrl) {
+        return new MirrorSet.Mirror(baseUrl, new OriginHealth(baseUrl.toLowerCase(), baseUrl, 1));
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+
+        MirrorSet.Mirror origin = mirror("https://my.site.com/files");
+        MirrorSet.Mirror other = mirror("https://mirror.site.com/copy");
+        MirrorSet set = new MirrorSet(List.of(origin, other), 0, 0);
+
+        assertSame(origin, set.find("https://MY.site.com/files/a.pdf"));
+        assertNull(set.find("https://else.site.com/files/a.pdf"));
+        assertEquals("https://mirror.site.com/copy/a.pdf", set.rewrite("https://my.site.com/files/a.pdf", other));
+        assertEquals("https://my.site.com/files/a.pdf", set.rewrite("https://mirror.site.com/copy/a.pdf", origin));
+        assertEquals("https://else.site.com/a.pdf", set.rewrite("https://else.site.com/a.pdf", other));
+    }
+
+    @Test
+    public void testPickSkipsExcludedAndUnavailable() throws Exception {
+
+        MirrorSet.Mirror origin = mirror("https://my.site.com");
+        MirrorSet.Mirror other = mirror("https://mirror.site.com");
+        MirrorSet set = new MirrorSet(List.of(origin, other), 0, 0);
+
+        assertSame(other, set.pick(origin));
+        assertSame(origin, set.pick(other));
+
+        origin.getHealth().recordFailure("Connection refused");
+        for (int i = 0; i < 20; i++) {
+            assertSame(other, set.pick(null));
+        }
+        // No other choice
+        assertSame(origin, set.pick(other));
+        assertTrue(set.isAnyAvailable());
+
+        MirrorSet single = new MirrorSet(List.of(mirror("https://my.site.com")), 0, 0);
+        assertNull(single.pick(single.getMirrors().get(0)));
+    }
+
+    @Test
+    public void testHedgeDelay() throws Exception {
+
+        MirrorSet.Mirror origin = mirror("https://my.site.com");
+        MirrorSet.Mirror other = mirror("https://mirror.site.com");
+        MirrorSet set = new MirrorSet(List.of(origin, other), 90, 5);
+        assertEquals(-1, set.getHedgeDelayMillis());
+
+        for (int i = 1; i <= 100; i++) {
+            set.recordLatency(i % 2 == 0 ? origin : other, i);
+        }
+        long delay = set.getHedgeDelayMillis();
+        assertTrue("Unexpected delay " + delay, delay >= 85 && delay <= 100);
+
+        MirrorSet disabled = new MirrorSet(List.of(origin, other), 0, 5);
+        for (int i = 1; i <= 100; i++) {
+            disabled.recordLatency(origin, i);
+        }
+        assertEquals(-1, disabled.getHedgeDelayMillis());
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+
+public class TestNegativeCache {
+
+    public static final String URL = "https://my.site.com/the/file.pdf";
+
+    @Test
+    public void testTtlPerStatusClass() throws Exception {
+
+        NegativeCache cache = new NegativeCache(60, 30, 5);
+
+        assertEquals(60000, cache.getTtlMillis(404));
+        assertEquals(60000, cache.getTtlMillis(410));
+        assertEquals(30000, cache.getTtlMillis(401));
+        assertEquals(30000, cache.getTtlMillis(403));
+        assertEquals(5000, cache.getTtlMillis(500));
+        assertEquals(5000, cache.getTtlMillis(503));
+        // Not cached
+        assertEquals(0, cache.getTtlMillis(400));
+        assertEquals(0, cache.getTtlMillis(429));
+    }
+
+    @Test
+    public void testRecordAndExpire() throws Exception {
+
+        NegativeCache cache = new NegativeCache(60, 30, 0);
+
+        cache.recordFailure(URL, 404);
+        NegativeCache.Entry entry = cache.get(URL);
+        assertNotNull(entry);
+        assertEquals(404, entry.status);
+
+        cache.remove(URL);
+        assertNull(cache.get(URL));
+
+        // Server errors have a 0 TTL here => not cached
+        cache.recordFailure(URL, 502);
+        assertNull(cache.get(URL));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+
+        NegativeCache cache = new NegativeCache(60, 30, 5, 10);
+        for (int i = 0; i < 25; i++) {
+            cache.recordFailure(URL + i, 404);
+        }
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void testZeroFromProperties() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_NEGATIVE_CACHE_NOT_FOUND_TTL, "0");
+        properties.put(HttpBlobProvider.PROPERTY_NEGATIVE_CACHE_SERVER_ERROR_TTL, "-1");
+        properties.put(HttpBlobProvider.PROPERTY_FETCH_ACQUIRE_TIMEOUT, "0");
+        StubHttpBlobProvider provider = new StubHttpBlobProvider().initialize(properties);
+        try {
+            // 0 is kept, a negative value gives the default
+            assertEquals(0, provider.negativeCache.getTtlMillis(404));
+            assertEquals(HttpBlobProvider.DEFAULT_NEGATIVE_CACHE_FORBIDDEN_TTL * 1000,
+                    provider.negativeCache.getTtlMillis(403));
+            assertEquals(HttpBlobProvider.DEFAULT_NEGATIVE_CACHE_SERVER_ERROR_TTL * 1000,
+                    provider.negativeCache.getTtlMillis(500));
+            // Waits forever
+            assertEquals(0, provider.fetchScheduler.acquireTimeoutNanos);
+
+            // Not remembered, asked again
+            provider.setServer(connection -> connection.respond(404, null));
+            assertFalse(provider.urlLooksValid(URL));
+            assertFalse(provider.urlLooksValid(URL));
+            assertEquals(2, provider.getRequests().size());
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testProbeAfterRejectedHead() throws Exception {
+
+        StubHttpBlobProvider provider = new StubHttpBlobProvider().initialize(StubHttpBlobProvider.defaultProperties());
+        try {
+            provider.setServer(connection -> {
+                if ("HEAD".equals(connection.getRequestMethod())) {
+                    connection.respond(403, null);
+                } else {
+                    // The first bytes of a PDF
+                    connection.respond(206, "%PDF-1.4 something")
+                              .setHeader("Content-Range", "bytes 0-4095/123456");
+                }
+            });
+            BlobInfo info = provider.guessInfosFromURL(URL);
+            assertNotNull(info);
+            assertEquals(Long.valueOf(123456), info.length);
+            assertEquals("application/pdf", info.mimeType);
+            assertEquals(2, provider.getRequests().size());
+            assertEquals("bytes=0-4095", provider.getRequests().get(1).getRequestProperty("Range"));
+            // The 403 of the HEAD is not remembered
+            assertNull(provider.negativeCache.get(URL));
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testNoProbeAfterFailure() throws Exception {
+
+        StubHttpBlobProvider provider = new StubHttpBlobProvider().initialize(StubHttpBlobProvider.defaultProperties());
+        try {
+            for (int status : new int[] { 404, 410, 503 }) {
+                provider.getRequests().clear();
+                String url = URL + status;
+                provider.setServer(connection -> connection.respond(status, null));
+
+                // HEAD only
+                assertNull(provider.guessInfosFromURL(url));
+                assertEquals(1, provider.getRequests().size());
+                assertEquals(status, provider.negativeCache.get(url).status);
+
+                // Remembered: nothing is sent
+                assertNull(provider.guessInfosFromURL(url));
+                assertEquals(1, provider.getRequests().size());
+                assertEquals(status, provider.negativeCache.get(url).status);
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class TestOriginHealth {
+
+    @Test
+    public void testDownAfterThresholdAndUpAfterOneSuccess() throws Exception {
+
+        OriginHealth health = new OriginHealth("https://my.site.com", "https://my.site.com/ping", 3);
+        assertTrue(health.isAvailable());
+
+        health.recordFailure("HTTP 503");
+        health.recordFailure("HTTP 503");
+        assertTrue(health.isAvailable());
+        health.recordFailure("Connection refused");
+        assertFalse(health.isAvailable());
+        assertEquals("Connection refused", health.getLastError());
+
+        health.recordSuccess(12);
+        assertTrue(health.isAvailable());
+        assertEquals(0, health.getConsecutiveFailures());
+        assertEquals(12, health.getLastLatencyMillis());
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+
+        OriginHealth health = new OriginHealth("https://my.site.com", "https://my.site.com", 1);
+        assertTrue(health.matches("HTTPS://My.Site.com/the/file.pdf"));
+        assertFalse(health.matches("https://other.site.com/the/file.pdf"));
+    }
+
+    @Test
+    public void testPrewarmWithOneFetchThread() throws Exception {
+
+        AtomicInteger probes = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            probes.incrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_ORIGIN, "http://127.0.0.1:" + server.getAddress().getPort());
+        properties.put(HttpBlobProvider.PROPERTY_PREWARM_CONNECTIONS, "3");
+        properties.put(HttpBlobProvider.PROPERTY_USE_VIRTUAL_THREADS, "false");
+        properties.put(HttpBlobProvider.PROPERTY_FETCH_MAX_THREADS, "1");
+        StubHttpBlobProvider provider = new StubHttpBlobProvider().initialize(properties);
+        try {
+            // The probes do not wait for a fetch thread held by the pre-warming
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (probes.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, probes.get());
+        } finally {
+            provider.close();
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Several nodes in the same JVM, each with its own cache and its own server
+ */
+public class TestPeerCache {
+
+    protected static final String SECRET = "s3cr3t";
+
+    // Downloads from the "origin", for all the nodes
+    protected final AtomicInteger originFetches = new AtomicInteger();
+
+    protected final List<Node> nodes = new ArrayList<>();
+
+    protected File dir;
+
+    protected class Node {
+
+        protected final HttpBlobCache cache;
+
+        protected final PeerCache peers;
+
+        protected String url;
+
+        protected Node(File cacheDir, String secret) {
+            cache = new HttpBlobCache(cacheDir);
+            peers = new PeerCache("http", this::get, secret, 5000);
+        }
+
+        // Same logic as HttpBlobProvider#getForPeer
+        protected CacheEntry get(String digest, String url) throws IOException {
+            CacheEntry entry = cache.getEntry(digest);
+            if (entry != null || url == null) {
+                return entry;
+            }
+            if (url.endsWith("/missing")) {
+                throw new FileNotFoundException(url);
+            }
+            originFetches.incrementAndGet();
+            cache.putFile(digest, new ByteArrayInputStream(content(url)));
+            entry = cache.getEntry(digest);
+            entry.setValidators("\"" + digest + "\"", null);
+            return entry;
+        }
+
+        // What the provider does on a miss
+        protected byte[] read(String digest, String url) throws Exception {
+            CacheEntry entry = cache.getEntry(digest);
+            if (entry == null) {
+                File tmp = cache.getTempFile(digest);
+                HttpURLConnection connection = peers.download(digest, url, tmp);
+                if (connection == null) {
+                    originFetches.incrementAndGet();
+                    Files.write(tmp.toPath(), content(url));
+                } else {
+                    assertEquals("\"" + digest + "\"", connection.getHeaderField("ETag"));
+                }
+                cache.putFile(digest, tmp);
+                tmp.delete();
+                entry = cache.getEntry(digest);
+                if (connection == null) {
+                    entry.setValidators("\"" + digest + "\"", null);
+                }
+            }
+            return Files.readAllBytes(entry.getFile().toPath());
+        }
+    }
+
+    protected static byte[] content(String url) {
+        return ("Content of " + url).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("nxhttp-test").toFile();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            File cacheDir = new File(dir, "node" + i);
+            cacheDir.mkdir();
+            Node node = new Node(cacheDir, SECRET);
+            int port = node.peers.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            node.url = "http://127.0.0.1:" + port;
+            urls.add(node.url);
+            nodes.add(node);
+        }
+        for (Node node : nodes) {
+            // Found from the port
+            node.peers.setPeers(urls, null);
+            assertEquals(node.url, node.peers.getSelf());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Node node : nodes) {
+            node.peers.close();
+        }
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected Node ownerOf(String digest) {
+        String owner = nodes.get(0).peers.ownerOf(digest);
+        return nodes.stream().filter(node -> node.url.equals(owner)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void testOwnersAreSpread() {
+        int[] counts = new int[nodes.size()];
+        for (int i = 0; i < 3000; i++) {
+            counts[nodes.indexOf(ownerOf("digest" + i))]++;
+        }
+        for (int count : counts) {
+            assertTrue(String.valueOf(count), count > 500);
+        }
+        // The same owner on all the nodes
+        for (Node node : nodes) {
+            assertEquals(nodes.get(0).peers.ownerOf("abc"), node.peers.ownerOf("abc"));
+        }
+    }
+
+    @Test
+    public void testOneOriginFetchForTheCluster() throws Exception {
+
+        String digest = "0123456789abcdef";
+        String url = "https://origin.com/file";
+        Node owner = ownerOf(digest);
+
+        for (Node node : nodes) {
+            assertArrayEquals(content(url), node.read(digest, url));
+        }
+        // Downloaded by the owner only, the others got it from the owner
+        assertEquals(1, originFetches.get());
+        assertNotNull(owner.cache.peekEntry(digest));
+        assertEquals(nodes.size() - 1, owner.peers.getServedCount());
+        for (Node node : nodes) {
+            assertNotNull(node.cache.peekEntry(digest));
+            if (node != owner) {
+                assertEquals(1, node.peers.getFetchedCount());
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackToTheOrigin() throws Exception {
+
+        String digest = "fedcba9876543210";
+        Node owner = ownerOf(digest);
+        Node other = nodes.get((nodes.indexOf(owner) + 1) % nodes.size());
+
+        // Not found by the owner
+        File tmp = other.cache.getTempFile(digest);
+        assertNull(other.peers.download(digest, "https://origin.com/missing", tmp));
+        assertEquals(1, other.peers.getFailedCount());
+
+        // Wrong secret
+        Node intruder = new Node(new File(dir, "intruder"), "wrong");
+        intruder.peers.setPeers(nodes.stream().map(node -> node.url).toList(), "http://intruder");
+        assertNull(intruder.peers.download(digest, "https://origin.com/file", tmp));
+        assertEquals(0, owner.peers.getServedCount());
+
+        // Owner down: skipped, the origin is used
+        owner.peers.close();
+        byte[] data = other.read(digest, "https://origin.com/file");
+        assertArrayEquals(content("https://origin.com/file"), data);
+        assertEquals(1, originFetches.get());
+        assertEquals(2, other.peers.getFailedCount());
+        assertTrue(other.peers.downUntil.containsKey(owner.url));
+        tmp.delete();
+    }
+
+    @Test
+    public void testSecretIsRequired() {
+        try {
+            new PeerCache("http", (digest, url) -> null, "", 5000);
+            fail("A peer tier without secret was created");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCorruptedFileIsRejected() throws Exception {
+
+        String digest = "fedcba9876543210";
+        String url = "https://origin.com/file";
+        Node owner = ownerOf(digest);
+        Node other = nodes.get((nodes.indexOf(owner) + 1) % nodes.size());
+
+        // Not the MD5 of what the owner sends
+        File tmp = other.cache.getTempFile(digest);
+        Map<String, byte[]> expected = Map.of("MD5", DigestUtils.md5("other content"));
+        assertNull(other.peers.download(digest, url, tmp, expected));
+        assertEquals(1, other.peers.getFailedCount());
+        assertEquals(0, other.peers.getFetchedCount());
+        // Up, still asked
+        assertFalse(other.peers.downUntil.containsKey(owner.url));
+
+        expected = Map.of("MD5", DigestUtils.md5(content(url)));
+        assertNotNull(other.peers.download(digest, url, tmp, expected));
+        assertArrayEquals(content(url), Files.readAllBytes(tmp.toPath()));
+        tmp.delete();
+    }
+
+    @Test
+    public void testPeerRequestsAreChecked() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_ORIGIN, "https://origin.com");
+        properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "true");
+        // Not started without secret
+        properties.put(HttpBlobProvider.PROPERTY_PEERS, "http://127.0.0.1:1,http://127.0.0.1:2");
+        File cacheDir = new File(dir, "provider");
+        cacheDir.mkdir();
+        StubHttpBlobProvider provider = new StubHttpBlobProvider(cacheDir).initialize(properties);
+        try {
+            assertNull(provider.getPeerCache());
+            provider.setServer(connection -> connection.respond(200, "content"));
+
+            // Not served by the origin
+            String other = "https://other.com/file";
+            assertNull(provider.getForPeer(DigestUtils.md5Hex(other), other));
+            // Another digest
+            String url = "https://origin.com/file";
+            assertNull(provider.getForPeer(DigestUtils.md5Hex("https://origin.com/other"), url));
+            assertEquals(0, provider.getRequests().size());
+
+            CacheEntry entry = provider.getForPeer(DigestUtils.md5Hex(url), url);
+            assertNotNull(entry);
+            assertEquals(url, entry.getUrl());
+            assertEquals(1, provider.getRequests().size());
+        } finally {
+            provider.close();
+        }
+    }
+
+}
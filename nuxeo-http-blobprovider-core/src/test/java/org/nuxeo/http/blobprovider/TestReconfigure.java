@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.nuxeo.http.blobprovider.auth.HttpAuthenticator;
+
+public class TestReconfigure {
+
+    protected static String basic(String login, String pwd) {
+        return "Basic " + Base64.getEncoder().encodeToString((login + ":" + pwd).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRollbackOnAnyError() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_ORIGIN, "https://origin.com");
+        properties.put(HttpBlobProvider.PROPERTY_AUTHENTICATION_TYPE, "Basic");
+        properties.put(HttpBlobProvider.PROPERTY_LOGIN, "john");
+        properties.put(HttpBlobProvider.PROPERTY_PWD, "secret");
+        StubHttpBlobProvider provider = new StubHttpBlobProvider().initialize(properties);
+        try {
+            HttpAuthenticator initial = provider.authenticator;
+
+            // The authenticator cannot be built: nothing is changed
+            Map<String, String> newProperties = new HashMap<>(properties);
+            newProperties.put(HttpBlobProvider.PROPERTY_PROBE_WITH_RANGE, "false");
+            newProperties.put(HttpBlobProvider.PROPERTY_AUTHENTICATOR_CLASS, "org.example.NoSuchAuthenticator");
+            try {
+                provider.reconfigure(newProperties);
+                fail("The authenticator class does not exist");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("org.example.NoSuchAuthenticator"));
+            }
+            assertSame(properties, provider.properties);
+            assertSame(initial, provider.authenticator);
+            assertTrue(provider.probeWithRange);
+
+            // Both changed
+            newProperties.remove(HttpBlobProvider.PROPERTY_AUTHENTICATOR_CLASS);
+            newProperties.put(HttpBlobProvider.PROPERTY_LOGIN, "jane");
+            provider.reconfigure(newProperties);
+            assertNotSame(initial, provider.authenticator);
+            assertEquals(basic("jane", "secret"), provider.authenticator.getAuthorizationHeader());
+            assertFalse(provider.probeWithRange);
+        } finally {
+            provider.close();
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TestRemoteRangeStream {
+
+    protected static final byte[] DATA = new byte[1000];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) i;
+        }
+    }
+
+    // Like a remote server honoring the ranges, but returning more than asked
+    protected final List<Long> offsets = new ArrayList<>();
+
+    protected InputStream open(long offset, long length) {
+        offsets.add(offset);
+        if (offset >= DATA.length) {
+            return InputStream.nullInputStream();
+        }
+        return new ByteArrayInputStream(DATA, (int) offset, DATA.length - (int) offset);
+    }
+
+    protected static byte[] slice(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        System.arraycopy(DATA, from, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    @Test
+    public void testOpenedAtFirstRead() throws Exception {
+        RemoteRangeStream in = new RemoteRangeStream(this::open);
+        assertEquals(0, in.getOpenedCount());
+        assertArrayEquals(DATA, IOUtils.toByteArray(in));
+        assertEquals(1, in.getOpenedCount());
+        assertEquals(List.of(0L), offsets);
+    }
+
+    @Test
+    public void testSkipBeforeReadOpensAtOffset() throws Exception {
+        RemoteRangeStream in = new RemoteRangeStream(this::open);
+        assertEquals(600, in.skip(600));
+        assertEquals(0, in.getOpenedCount());
+        assertArrayEquals(slice(600, 1000), IOUtils.toByteArray(in));
+        assertEquals(List.of(600L), offsets);
+    }
+
+    @Test
+    public void testRangeIsBounded() throws Exception {
+        RemoteRangeStream in = new RemoteRangeStream(this::open, 100, 50, 10);
+        assertArrayEquals(slice(100, 150), IOUtils.toByteArray(in));
+        assertEquals(-1, in.read());
+        assertEquals(150, in.getPosition());
+    }
+
+    @Test
+    public void testLargeSkipReopens() throws Exception {
+        RemoteRangeStream in = new RemoteRangeStream(this::open, 0, -1, 100);
+        assertEquals(0, in.read());
+        // Small skip: read through
+        assertEquals(10, in.skip(10));
+        assertEquals(11, in.read());
+        assertEquals(1, in.getOpenedCount());
+        // Large skip: new request
+        assertEquals(500, in.skip(500));
+        assertEquals(512 % 256, in.read());
+        assertEquals(2, in.getOpenedCount());
+        assertEquals(List.of(0L, 512L), offsets);
+    }
+
+    @Test
+    public void testSkipAfterEnd() throws Exception {
+        RemoteRangeStream in = new RemoteRangeStream(this::open);
+        in.skip(5000);
+        assertEquals(-1, in.read());
+        assertEquals(0, in.skip(10));
+
+        // Nothing to request for an empty range
+        RemoteRangeStream empty = new RemoteRangeStream(this::open, 100, 0, 10);
+        assertEquals(-1, empty.read());
+        assertEquals(0, empty.getOpenedCount());
+    }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * An origin and a mirror, each with its own {@link StubConnection.Handler}. The mirror starts unavailable, so the
+ * requests go to the origin first.
+ */
+public class TestRequestDispatcher {
+
+    protected static final String ORIGIN = "https://my.site.com";
+
+    protected static final String MIRROR = "https://mirror.site.com";
+
+    protected static final String URL = ORIGIN + "/file.pdf";
+
+    protected final Map<String, StubConnection.Handler> servers = new ConcurrentHashMap<>();
+
+    protected final List<StubConnection> requests = new CopyOnWriteArrayList<>();
+
+    // Thread name => host, for the requests sent
+    protected final Map<String, String> threads = new ConcurrentHashMap<>();
+
+    protected ExecutorService hedgeExecutor;
+
+    protected MirrorSet mirrors;
+
+    protected RequestDispatcher dispatcher;
+
+    protected static MirrorSet.Mirror mirror(String baseUrl) {
+        return new MirrorSet.Mirror(baseUrl, new OriginHealth(baseUrl.toLowerCase(), baseUrl, 1));
+    }
+
+    @Before
+    public void setUp() {
+        hedgeExecutor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "hedge"));
+        servers.put(ORIGIN, connection -> connection.respond(200, "origin"));
+        servers.put(MIRROR, connection -> connection.respond(200, "mirror"));
+        newDispatcher(0);
+    }
+
+    @After
+    public void tearDown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    protected void newDispatcher(int hedgePercentile) {
+        mirrors = new MirrorSet(List.of(mirror(ORIGIN), mirror(MIRROR)), hedgePercentile, 20);
+        mirrors.getMirrors().get(1).getHealth().recordFailure("Connection refused");
+        dispatcher = new RequestDispatcher(mirrors, new RequestDispatcher.Transport() {
+
+            @Override
+            public HttpURLConnection open(String url, String targetUrl, String method) throws IOException {
+                String base = targetUrl.startsWith(MIRROR) ? MIRROR : ORIGIN;
+                StubConnection connection = new StubConnection(new URL(targetUrl), servers.get(base));
+                connection.setRequestMethod(method);
+                requests.add(connection);
+                return connection;
+            }
+
+            @Override
+            public int send(HttpURLConnection connection) throws IOException {
+                threads.put(connection.getURL().getHost(), Thread.currentThread().getName());
+                return connection.getResponseCode();
+            }
+        }, hedgeExecutor);
+    }
+
+    /*
+     * Hedged after 20 ms
+     */
+    protected void enableHedging() {
+        newDispatcher(50);
+        for (int i = 0; i < MirrorSet.LATENCY_SAMPLES; i++) {
+            mirrors.recordLatency(mirrors.getMirrors().get(0), 1);
+        }
+        assertEquals(20, mirrors.getHedgeDelayMillis());
+    }
+
+    protected static StubConnection.Handler slow(long millis, int code) {
+        return connection -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            connection.respond(code, null);
+        };
+    }
+
+    protected StubConnection requestTo(String host) {
+        return requests.stream().filter(r -> r.getURL().getHost().equals(host)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void testFailoverOnServerError() throws Exception {
+
+        servers.put(ORIGIN, connection -> connection.respond(503, null));
+
+        HttpURLConnection connection = dispatcher.send(URL, "GET", null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("mirror.site.com", connection.getURL().getHost());
+        assertEquals("/file.pdf", connection.getURL().getPath());
+        assertEquals(2, requests.size());
+        assertTrue(requestTo("my.site.com").isDisconnected());
+        assertFalse(mirrors.getMirrors().get(0).getHealth().isAvailable());
+    }
+
+    @Test
+    public void testFailoverOnTransportError() throws Exception {
+
+        servers.put(ORIGIN, connection -> {
+            throw new IOException("Connection refused");
+        });
+
+        HttpURLConnection connection = dispatcher.send(URL, "GET", null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("mirror.site.com", connection.getURL().getHost());
+    }
+
+    @Test
+    public void testNoFailoverOnClientError() throws Exception {
+
+        servers.put(ORIGIN, connection -> connection.respond(404, null));
+
+        HttpURLConnection connection = dispatcher.send(URL, "GET", null);
+        assertEquals(404, connection.getResponseCode());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testAllMirrorsFail() throws Exception {
+
+        servers.put(ORIGIN, connection -> connection.respond(503, null));
+        servers.put(MIRROR, connection -> connection.respond(502, null));
+        assertEquals(502, dispatcher.send(URL, "GET", null).getResponseCode());
+
+        StubConnection.Handler down = connection -> {
+            throw new IOException("Connection refused");
+        };
+        servers.put(ORIGIN, down);
+        servers.put(MIRROR, down);
+        try {
+            dispatcher.send(URL, "GET", null);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Connection refused", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCustomizer() throws Exception {
+
+        HttpURLConnection connection = dispatcher.send(URL, "HEAD", c -> c.setRequestProperty("Range", "bytes=0-9"));
+        assertEquals("HEAD", connection.getRequestMethod());
+        assertEquals("bytes=0-9", connection.getRequestProperty("Range"));
+    }
+
+    @Test
+    public void testHedgedOnTheirOwnExecutor() throws Exception {
+
+        enableHedging();
+        servers.put(ORIGIN, slow(1000, 200));
+
+        // A fetch pool of one thread, waiting for the hedged requests
+        ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+        try {
+            HttpURLConnection connection = fetchExecutor.submit(() -> dispatcher.send(URL, "GET", null))
+                                                        .get(5, TimeUnit.SECONDS);
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("mirror.site.com", connection.getURL().getHost());
+        } finally {
+            fetchExecutor.shutdownNow();
+        }
+        // The slow one is cancelled
+        assertTrue(requestTo("my.site.com").isDisconnected());
+        assertEquals("hedge", threads.get("mirror.site.com"));
+    }
+
+    @Test
+    public void testEarlyServerErrorFailsOver() throws Exception {
+
+        enableHedging();
+        servers.put(ORIGIN, connection -> connection.respond(500, null));
+
+        HttpURLConnection connection = dispatcher.send(URL, "GET", null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("mirror.site.com", connection.getURL().getHost());
+        assertTrue(requestTo("my.site.com").isDisconnected());
+    }
+
+    @Test
+    public void testHedgedServerErrorDoesNotWin() throws Exception {
+
+        enableHedging();
+        servers.put(ORIGIN, slow(200, 200));
+        servers.put(MIRROR, connection -> connection.respond(503, null));
+
+        HttpURLConnection connection = dispatcher.send(URL, "GET", null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("my.site.com", connection.getURL().getHost());
+        assertTrue(requestTo("mirror.site.com").isDisconnected());
+    }
+
+    @Test
+    public void testHedgedBothFail() throws Exception {
+
+        enableHedging();
+        servers.put(ORIGIN, slow(200, 503));
+        servers.put(MIRROR, connection -> connection.respond(503, null));
+
+        assertEquals(503, dispatcher.send(URL, "GET", null).getResponseCode());
+    }
+
+    @Test
+    public void testNegativeCacheNotFailedOver() throws Exception {
+
+        dispatcher = new RequestDispatcher(mirrors, new RequestDispatcher.Transport() {
+
+            @Override
+            public HttpURLConnection open(String url, String targetUrl, String method) throws IOException {
+                throw new FileNotFoundException(url);
+            }
+
+            @Override
+            public int send(HttpURLConnection connection) throws IOException {
+                return connection.getResponseCode();
+            }
+        }, hedgeExecutor);
+        try {
+            dispatcher.send(URL, "GET", null);
+            fail();
+        } catch (FileNotFoundException e) {
+            assertEquals(URL, e.getMessage());
+        }
+    }
+
+}
@@ -33,6 +33,7 @@ import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.BlobInfo;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.BlobProvider;
@@ -48,8 +49,12 @@ import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.TransactionalFeature;
 import javax.inject.Inject;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 @RunWith(FeaturesRunner.class)
 @Features({ AutomationFeature.class, SimpleFeatureCustom.class })
@@ -142,12 +147,11 @@ public class TestService {
         // <-------------------- Test download and check file size -------------------->
         // If we are here, it is very likely downloading worked since Nuxeo could extract the full text from it
         Blob blob = (Blob) doc.getPropertyValue("file:content");
+        // (small files are kept in memory, so there is not always a File)
         Blob downloaded = blopProvider.downloadFile((ManagedBlob) blob);
         assertNotNull(downloaded);
-        File f = downloaded.getFile();
-        assertTrue(f.exists());
         if (fileSize > 0) {
-            assertEquals(fileSize.longValue(), f.length());
+            assertEquals(fileSize.longValue(), downloaded.getLength());
         }
 
         return doc;
@@ -344,4 +348,44 @@ public class TestService {
         commitWaitAndTest(null, doc, 0L, FILE_NO_AUTH_FULLTEXT_TO_SEARCH);
 
     }
+
+    @Test
+    public void testReconfigureKeepsCache() throws Exception {
+
+        HttpBlobProvider bp = getProvider(OTHER_PROVIDER);
+        Map<String, String> initial = bp.properties;
+        try (InputStream in = new ByteArrayInputStream("hello".getBytes())) {
+            bp.fileCache.putFile("reconfigure-test", in);
+        }
+        CacheJanitor janitor = bp.cacheJanitor;
+
+        try {
+            Map<String, String> properties = new HashMap<>(initial);
+            properties.put(HttpBlobProvider.PROPERTY_MORE_HEADERS, "[{\"key\": \"X-Test\", \"value\": \"1\"}]");
+            properties.put(HttpBlobProvider.PROPERTY_CACHE_MAX_COUNT, "5000");
+            Set<String> changed = bp.reconfigure(properties);
+
+            assertEquals(Set.of(HttpBlobProvider.PROPERTY_MORE_HEADERS, HttpBlobProvider.PROPERTY_CACHE_MAX_COUNT),
+                    changed);
+            assertEquals("1", bp.moreHeaders.get("X-Test"));
+            assertNotSame(janitor, bp.cacheJanitor);
+            assertNotNull(bp.getCacheEntry("reconfigure-test"));
+
+            // Nothing changed
+            assertTrue(bp.reconfigure(properties).isEmpty());
+
+            properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "false");
+            try {
+                bp.reconfigure(properties);
+                fail("useCache cannot be changed at runtime");
+            } catch (NuxeoException e) {
+                // expected
+            }
+            assertTrue(bp.isCacheEnabled());
+        } finally {
+            bp.reconfigure(initial);
+            bp.purgeCache("reconfigure-test");
+        }
+        assertTrue(bp.moreHeaders.isEmpty());
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.automation.test.AutomationFeature;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Two providers sharing the cache of the node, with the weights 1 and 3 (see
+ * test/resources/http-blobprovider-stub-test.xml).
+ */
+@RunWith(FeaturesRunner.class)
+@Features(AutomationFeature.class)
+@Deploy("nuxeo-http-blobprovider-test:http-blobprovider-stub-test.xml")
+@Deploy("org.nuxeo.http.blobprovider.nuxeo-http-blobprovider-core")
+public class TestSharedCache {
+
+    public static final String PROVIDER_A = "http-stub-shared-a";
+
+    public static final String PROVIDER_B = "http-stub-shared-b";
+
+    protected static final String DIGEST = "0123456789abcdef";
+
+    @Inject
+    protected BlobManager blobManager;
+
+    @Inject
+    protected HttpBlobCacheService cacheService;
+
+    protected StubHttpBlobProvider providerA;
+
+    protected StubHttpBlobProvider providerB;
+
+    @Before
+    public void setUp() {
+        providerA = (StubHttpBlobProvider) blobManager.getBlobProvider(PROVIDER_A);
+        providerB = (StubHttpBlobProvider) blobManager.getBlobProvider(PROVIDER_B);
+        providerA.setServer(connection -> connection.respond(200, "content of " + connection.getURL().getPath()));
+        providerB.setServer(connection -> connection.respond(200, "content of " + connection.getURL().getPath()));
+        providerA.getRequests().clear();
+        providerB.getRequests().clear();
+        // Shared, empties the cache of both
+        providerA.fileCache.clear();
+    }
+
+    @Test
+    public void testNamespaces() throws Exception {
+
+        assertTrue(providerA.isCacheShared());
+        assertTrue(providerB.isCacheShared());
+        HttpBlobCache cache = cacheService.getCache();
+        assertNotNull(cache);
+        assertSame(cache, providerA.fileCache);
+        assertSame(cache, providerB.fileCache);
+        assertEquals(Map.of(PROVIDER_A, 1, PROVIDER_B, 3), cache.getNamespaceWeights());
+
+        // Same digest, one entry per provider
+        File fileA = providerA.getFile(providerA.blob("https://origin.com/a", DIGEST));
+        assertNotNull(fileA);
+        assertNotNull(cache.peekEntry(providerA.cacheKey(DIGEST)));
+        assertNull(cache.peekEntry(providerB.cacheKey(DIGEST)));
+        assertEquals("content of /a".length(), providerA.getCacheSize());
+        assertEquals(0, providerB.getCacheSize());
+
+        File fileB = providerB.getFile(providerB.blob("https://origin.com/bb", DIGEST));
+        assertNotNull(fileB);
+        assertNotEquals(fileA, fileB);
+        assertEquals("content of /a".length(), providerA.getCacheSize());
+        assertEquals("content of /bb".length(), providerB.getCacheSize());
+        assertEquals(providerA.getCacheSize() + providerB.getCacheSize(), cache.getSize());
+        assertEquals(2, cache.getNumberOfItems());
+
+        // In proportion of the weights
+        long maxSize = cacheService.getJanitor().maxSize;
+        assertEquals(maxSize / 4, providerA.getCacheQuota());
+        assertEquals(maxSize * 3 / 4, providerB.getCacheQuota());
+    }
+
+    @Test
+    public void testCloseKeepsTheOtherFiles() throws Exception {
+
+        // A third provider on the same cache, the contributed ones stay open for the other tests
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.put(HttpBlobProvider.PROPERTY_USE_CACHE, "true");
+        properties.put(HttpBlobProvider.PROPERTY_SHARED_CACHE, "true");
+        StubHttpBlobProvider other = new StubHttpBlobProvider().initialize(properties);
+        other.setServer(connection -> connection.respond(200, "other content"));
+        HttpBlobCache cache = cacheService.getCache();
+        assertSame(cache, other.fileCache);
+        assertEquals(3, cache.getNamespaceWeights().size());
+
+        File fileA = providerA.getFile(providerA.blob("https://origin.com/a", DIGEST));
+        File otherFile = other.getFile(other.blob("https://origin.com/a", DIGEST));
+        assertNotNull(otherFile);
+        long maxSize = cacheService.getJanitor().maxSize;
+        assertEquals(maxSize / 5, providerA.getCacheQuota());
+
+        other.close();
+
+        // Unregistered, its files are evicted first but the cache is not emptied
+        assertFalse(cache.getNamespaceWeights().containsKey(StubHttpBlobProvider.ID));
+        assertEquals(0, cacheService.getQuota(StubHttpBlobProvider.ID));
+        assertEquals(maxSize / 4, providerA.getCacheQuota());
+        assertNotNull(cache.peekEntry(HttpBlobCache.key(StubHttpBlobProvider.ID, DIGEST)));
+        assertTrue(fileA.exists());
+        assertNotNull(cache.getEntry(providerA.cacheKey(DIGEST)));
+        assertEquals("content of /a".length(), providerA.getCacheSize());
+        assertEquals(fileA, providerA.getFile(providerA.blob("https://origin.com/a", DIGEST)));
+        assertEquals(1, providerA.getRequests().size());
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TestStreamTracker {
+
+    protected static InputStream data() {
+        return new ByteArrayInputStream(new byte[1000]);
+    }
+
+    @Test
+    public void testReleasedOnClose() throws Exception {
+
+        StreamTracker tracker = new StreamTracker("test", 0, 0, true);
+        AtomicInteger released = new AtomicInteger();
+        InputStream in = tracker.track(data(), null, "https://my.site.com/a", released::incrementAndGet);
+        assertEquals(1, tracker.getInFlight());
+        assertEquals("https://my.site.com/a", tracker.getInFlightUrls().get(0));
+
+        IOUtils.consume(in);
+        in.close();
+        in.close();
+        assertEquals(0, tracker.getInFlight());
+        assertEquals(1, released.get());
+        assertEquals(0, tracker.getLeakedCount());
+    }
+
+    @Test
+    public void testIdleStreamIsAborted() throws Exception {
+
+        StreamTracker tracker = new StreamTracker("test", 10, 0, false);
+        AtomicInteger released = new AtomicInteger();
+        InputStream in = tracker.track(data(), null, "https://my.site.com/a", released::incrementAndGet);
+        in.read();
+        assertEquals(0, tracker.reap());
+
+        Thread.sleep(50);
+        assertEquals(1, tracker.reap());
+        assertEquals(0, tracker.getInFlight());
+        assertEquals(1, released.get());
+        try {
+            in.read();
+            fail("The stream should be aborted");
+        } catch (StreamTracker.StreamAbortedException e) {
+            // Expected
+        }
+        in.close();
+        assertEquals(1, released.get());
+        assertEquals(1, tracker.getAbortedCount());
+    }
+
+    @Test
+    public void testMaxDuration() throws Exception {
+
+        StreamTracker tracker = new StreamTracker("test", 0, 10, false);
+        InputStream in = tracker.track(data(), null, "https://my.site.com/a", null);
+        in.read();
+        Thread.sleep(50);
+        try {
+            in.read();
+            fail("The stream should be aborted");
+        } catch (StreamTracker.StreamAbortedException e) {
+            // Expected
+        }
+        assertEquals(0, tracker.getInFlight());
+    }
+
+    @Test
+    public void testLeakIsReported() throws Exception {
+
+        StreamTracker tracker = new StreamTracker("test", 0, 0, true);
+        AtomicInteger released = new AtomicInteger();
+        tracker.track(data(), null, "https://my.site.com/leaked", released::incrementAndGet);
+        assertEquals(1, tracker.getInFlight());
+
+        for (int i = 0; i < 100 && tracker.getLeakedCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(1, tracker.getLeakedCount());
+        assertEquals(0, tracker.getInFlight());
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    public void testLeakIsCountedWithoutLeakDetection() throws Exception {
+
+        // The default: no allocation site, the leak is still counted and its connection released
+        StreamTracker tracker = new StreamTracker("test", 0, 0, false);
+        AtomicInteger released = new AtomicInteger();
+        tracker.track(data(), null, "https://my.site.com/leaked", released::incrementAndGet);
+
+        for (int i = 0; i < 100 && tracker.getLeakedCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(1, tracker.getLeakedCount());
+        assertEquals(0, tracker.getInFlight());
+        assertEquals(1, released.get());
+    }
+
+}
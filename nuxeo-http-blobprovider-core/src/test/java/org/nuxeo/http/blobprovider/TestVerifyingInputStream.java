@@ -0,0 +1,161 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TestVerifyingInputStream {
+
+    protected static final byte[] DATA = "Some content to download".getBytes(StandardCharsets.UTF_8);
+
+    protected static byte[] hash(String algorithm, byte[] data) throws Exception {
+        return MessageDigest.getInstance(algorithm).digest(data);
+    }
+
+    protected static HttpURLConnection connection(int status, Map<String, String> headers) throws Exception {
+        return new HttpURLConnection(new URL("https://my.site.com/file.txt")) {
+            @Override
+            public int getResponseCode() {
+                return status;
+            }
+
+            @Override
+            public String getHeaderField(String name) {
+                return headers.get(name);
+            }
+
+            @Override
+            public void disconnect() {
+            }
+
+            @Override
+            public boolean usingProxy() {
+                return false;
+            }
+
+            @Override
+            public void connect() {
+            }
+        };
+    }
+
+    protected static void readAll(InputStream in) throws IOException {
+        byte[] buffer = new byte[7];
+        while (in.read(buffer) != -1) {
+            // Read
+        }
+    }
+
+    @Test
+    public void testValidData() throws Exception {
+
+        Map<String, byte[]> expected = new HashMap<>();
+        expected.put("SHA-256", hash("SHA-256", DATA));
+        expected.put("MD5", hash("MD5", DATA));
+        VerifyingInputStream in = new VerifyingInputStream(new ByteArrayInputStream(DATA), "test", DATA.length,
+                expected);
+        readAll(in);
+        assertEquals(DATA.length, in.getCount());
+    }
+
+    @Test
+    public void testTruncatedData() throws Exception {
+
+        VerifyingInputStream in = new VerifyingInputStream(new ByteArrayInputStream(DATA, 0, 10), "test", DATA.length,
+                new HashMap<>());
+        try {
+            readAll(in);
+            fail("Truncated data was not detected");
+        } catch (VerifyingInputStream.IntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("expected " + DATA.length + " bytes, got 10"));
+        }
+    }
+
+    @Test
+    public void testCorruptedData() throws Exception {
+
+        byte[] corrupted = DATA.clone();
+        corrupted[3] ^= 1;
+        Map<String, byte[]> expected = new HashMap<>();
+        expected.put("MD5", hash("MD5", DATA));
+        VerifyingInputStream in = new VerifyingInputStream(new ByteArrayInputStream(corrupted), "test", DATA.length,
+                expected);
+        try {
+            // Skipped bytes are checked too
+            in.skip(5);
+            IOUtils.read(in, new byte[DATA.length]);
+            in.verify();
+            fail("Corrupted data was not detected");
+        } catch (VerifyingInputStream.IntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("MD5 checksum mismatch"));
+        }
+    }
+
+    @Test
+    public void testChecksumsFromHeaders() throws Exception {
+
+        Base64.Encoder b64 = Base64.getEncoder();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Repr-Digest", "sha-256=:" + b64.encodeToString(hash("SHA-256", DATA)) + ":, unknown=:abc:");
+        headers.put("Digest", "SHA=" + b64.encodeToString(hash("SHA-1", DATA)));
+        headers.put("Content-MD5", b64.encodeToString(hash("MD5", DATA)));
+
+        Map<String, byte[]> checksums = VerifyingInputStream.getExpectedChecksums(connection(200, headers));
+        assertEquals(3, checksums.size());
+        assertArrayEquals(hash("SHA-256", DATA), checksums.get("SHA-256"));
+        assertArrayEquals(hash("SHA-1", DATA), checksums.get("SHA-1"));
+        assertArrayEquals(hash("MD5", DATA), checksums.get("MD5"));
+
+        // Representation digests do not apply to encoded content
+        headers.put("Content-Encoding", "gzip");
+        assertEquals(0, VerifyingInputStream.getExpectedChecksums(connection(200, headers)).size());
+    }
+
+    @Test
+    public void testBlobDigest() throws Exception {
+
+        assertEquals("MD5", VerifyingInputStream.guessAlgorithm("0123456789abcdef0123456789ABCDEF"));
+        assertEquals("SHA-256", VerifyingInputStream.guessAlgorithm("ab".repeat(32)));
+        assertNull(VerifyingInputStream.guessAlgorithm("not-a-digest"));
+        assertNull(VerifyingInputStream.guessAlgorithm("abcd"));
+
+        Map<String, byte[]> checksums = new HashMap<>();
+        VerifyingInputStream.putHexDigest(checksums, "0123456789abcdef0123456789abcdef");
+        assertEquals(16, checksums.get("MD5").length);
+    }
+
+}
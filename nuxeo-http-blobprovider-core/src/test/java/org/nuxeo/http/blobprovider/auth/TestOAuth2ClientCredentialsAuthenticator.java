@@ -0,0 +1,255 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.http.blobprovider.HttpBlobProvider;
+import org.nuxeo.http.blobprovider.StubConnection;
+import org.nuxeo.http.blobprovider.StubHttpBlobProvider;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Against a token endpoint served in the JVM, returning "t1", "t2", ...
+ */
+public class TestOAuth2ClientCredentialsAuthenticator {
+
+    protected HttpServer server;
+
+    protected String tokenUrl;
+
+    protected final AtomicInteger tokenRequests = new AtomicInteger();
+
+    protected final List<String> tokenAuthorizations = new CopyOnWriteArrayList<>();
+
+    protected volatile long expiresIn = 3600;
+
+    protected volatile long delayMillis;
+
+    protected ScheduledExecutorService scheduler;
+
+    protected OAuth2ClientCredentialsAuthenticator auth;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/token", exchange -> {
+            int count = tokenRequests.incrementAndGet();
+            tokenAuthorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"access_token\": \"t" + count + "\", \"token_type\": \"Bearer\", \"expires_in\": "
+                    + expiresIn + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        tokenUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/token";
+        scheduler = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (auth != null) {
+            auth.close();
+        }
+        scheduler.shutdownNow();
+        server.stop(0);
+    }
+
+    protected Map<String, String> properties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(OAuth2ClientCredentialsAuthenticator.PROPERTY_TOKEN_URL, tokenUrl);
+        properties.put(OAuth2ClientCredentialsAuthenticator.PROPERTY_CLIENT_ID, "client");
+        properties.put(OAuth2ClientCredentialsAuthenticator.PROPERTY_CLIENT_SECRET, "secret");
+        return properties;
+    }
+
+    protected void initialize() throws Exception {
+        auth = new OAuth2ClientCredentialsAuthenticator();
+        auth.initialize(properties(), scheduler);
+        // The first token is fetched in the background
+        waitFor(() -> auth.token != null);
+    }
+
+    protected static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testClientCredentials() throws Exception {
+
+        initialize();
+        assertEquals("Bearer t1", auth.getAuthorizationHeader());
+        assertEquals("Bearer t1", auth.getAuthorizationHeader());
+        assertEquals(1, tokenRequests.get());
+        String credentials = Base64.getEncoder().encodeToString("client:secret".getBytes(StandardCharsets.UTF_8));
+        assertEquals("Basic " + credentials, tokenAuthorizations.get(0));
+    }
+
+    @Test
+    public void testRefreshBeforeExpiry() throws Exception {
+
+        // Refreshed at 80% of its life, nobody waits for it
+        expiresIn = 2;
+        initialize();
+        waitFor(() -> tokenRequests.get() == 2);
+        waitFor(() -> "t2".equals(auth.token.value));
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    public void testOneRefreshForConcurrentCallers() throws Exception {
+
+        initialize();
+        auth.token = new OAuth2ClientCredentialsAuthenticator.Token("expired", 0);
+        delayMillis = 300;
+
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return auth.getAuthorizationHeader();
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("Bearer t2", future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        initialize();
+        auth.invalidate();
+        assertEquals("Bearer t2", auth.getAuthorizationHeader());
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    public void testInvalidatedOn401() throws Exception {
+
+        Map<String, String> properties = StubHttpBlobProvider.defaultProperties();
+        properties.putAll(properties());
+        properties.put(HttpBlobProvider.PROPERTY_ORIGIN, "https://origin.com");
+        properties.put(HttpBlobProvider.PROPERTY_AUTHENTICATION_TYPE, "OAuth2");
+        StubHttpBlobProvider provider = new StubHttpBlobProvider(null).initialize(properties);
+        try {
+            // The origin rejects the first token
+            provider.setServer(connection -> connection.respond(
+                    "Bearer t1".equals(connection.getRequestProperty("Authorization")) ? 401 : 200, null));
+
+            String url = "https://origin.com/file";
+            assertFalse(provider.urlLooksValid(url));
+            assertTrue(provider.urlLooksValid(url));
+
+            List<StubConnection> requests = provider.getRequests();
+            assertEquals(2, requests.size());
+            assertEquals("Bearer t1", requests.get(0).getRequestProperty("Authorization"));
+            assertNotNull(requests.get(1).getRequestProperty("Authorization"));
+            assertEquals(200, requests.get(1).getResponseCode());
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testNoRefreshAfterClose() throws Exception {
+
+        // Closed while the first token is being fetched
+        expiresIn = 2;
+        delayMillis = 300;
+        auth = new OAuth2ClientCredentialsAuthenticator();
+        auth.initialize(properties(), scheduler);
+        waitFor(() -> tokenRequests.get() == 1);
+        auth.close();
+        waitFor(() -> auth.token != null);
+
+        // The refresh running when it was closed did not schedule the next one
+        assertNull(auth.scheduledRefresh);
+        Thread.sleep(2000);
+        assertEquals(1, tokenRequests.get());
+    }
+
+    @Test
+    public void testRefreshOnTheExecutor() throws Exception {
+
+        expiresIn = 2;
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            auth = new OAuth2ClientCredentialsAuthenticator();
+            auth.initialize(properties(), scheduler, command -> {
+                executed.incrementAndGet();
+                executor.execute(command);
+            });
+            waitFor(() -> tokenRequests.get() == 2);
+            // The initial fetch and the scheduled refresh
+            assertTrue(executed.get() >= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * (C) Copyright 2026 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Thibaud Arguillere
+ */
+package org.nuxeo.http.blobprovider.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.automation.AutomationService;
+import org.nuxeo.ecm.automation.OperationContext;
+import org.nuxeo.ecm.automation.test.AutomationFeature;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.bulk.BulkService;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.http.blobprovider.StubHttpBlobProvider;
+import org.nuxeo.http.blobprovider.operations.BulkCreateBlobsOp;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * The bulk action against a provider answering the HEAD requests itself: the URL is in dc:source, documents with no
+ * URL or a missing file are errors.
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ AutomationFeature.class, CoreBulkFeature.class })
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@Deploy("nuxeo-http-blobprovider-test:http-blobprovider-stub-test.xml")
+@Deploy("org.nuxeo.http.blobprovider.nuxeo-http-blobprovider-core")
+public class TestCreateBlobsAction {
+
+    public static final String STUB_PROVIDER = "http-stub";
+
+    protected static final String ORIGIN = "https://origin.com/";
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected AutomationService automationService;
+
+    @Inject
+    protected BulkService bulkService;
+
+    @Inject
+    protected BlobManager blobManager;
+
+    @Inject
+    protected TransactionalFeature txFeature;
+
+    protected StubHttpBlobProvider provider;
+
+    protected final AtomicInteger concurrent = new AtomicInteger();
+
+    protected final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        provider = (StubHttpBlobProvider) blobManager.getBlobProvider(STUB_PROVIDER);
+        // Slow enough for the HEAD requests of a batch to overlap
+        provider.setServer(connection -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+            String path = connection.getURL().getPath();
+            if (path.endsWith("/missing")) {
+                connection.respond(404, null);
+            } else {
+                connection.respond(200, null)
+                          .setHeader("Content-Type", "application/pdf")
+                          .setHeader("Content-Length", "1234")
+                          .setHeader("Content-Disposition",
+                                  "attachment; filename=\"" + path.substring(1) + ".pdf\"");
+            }
+        });
+    }
+
+    protected List<DocumentModel> createDocuments(int count) {
+        List<DocumentModel> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:source", ORIGIN + "doc" + i);
+            docs.add(session.createDocument(doc));
+        }
+        // No URL
+        DocumentModel doc = session.createDocumentModel("/", "noUrl", "File");
+        docs.add(session.createDocument(doc));
+        // Not on the server
+        doc = session.createDocumentModel("/", "missing", "File");
+        doc.setPropertyValue("dc:source", ORIGIN + "missing");
+        docs.add(session.createDocument(doc));
+        txFeature.nextTransaction();
+        return docs;
+    }
+
+    protected String runOperation(int bucketSize, int batchSize) throws Exception {
+        OperationContext ctx = new OperationContext(session);
+        Map<String, Object> params = new HashMap<>();
+        params.put("query", "SELECT * FROM File WHERE ecm:isVersion = 0");
+        params.put("provider", STUB_PROVIDER);
+        params.put("urlXPath", "dc:source");
+        params.put("bucketSize", bucketSize);
+        params.put("batchSize", batchSize);
+        Blob result = (Blob) automationService.run(ctx, BulkCreateBlobsOp.ID, params);
+        String commandId = new JSONObject(result.getString()).getString("commandId");
+        assertNotNull(commandId);
+        return commandId;
+    }
+
+    @Test
+    public void testBulkCreateBlobs() throws Exception {
+
+        List<DocumentModel> docs = createDocuments(6);
+        String commandId = runOperation(4, 4);
+        assertTrue(bulkService.await(commandId, Duration.ofSeconds(60)));
+        txFeature.nextTransaction();
+
+        BulkStatus status = bulkService.getStatus(commandId);
+        assertEquals(BulkStatus.State.COMPLETED, status.getState());
+        assertEquals(docs.size(), status.getProcessed());
+        // One per bucket at most in the message, all of them in the count
+        assertEquals(2, status.getErrorCount());
+        assertTrue(status.hasError());
+        assertTrue(status.getErrorMessage().startsWith("Cannot set the remote blob on document "));
+
+        for (DocumentModel doc : docs) {
+            doc = session.getDocument(doc.getRef());
+            ManagedBlob blob = (ManagedBlob) doc.getPropertyValue(CreateBlobsAction.DEFAULT_BLOB_XPATH);
+            String name = doc.getName();
+            if (name.startsWith("doc")) {
+                assertNotNull(name, blob);
+                assertEquals(STUB_PROVIDER + ":" + ORIGIN + name, blob.getKey());
+                assertEquals("application/pdf", blob.getMimeType());
+                assertEquals(name + ".pdf", blob.getFilename());
+                assertEquals(1234, blob.getLength());
+            } else {
+                assertNull(name, blob);
+            }
+        }
+
+        // The HEAD requests of a batch are sent in parallel
+        assertTrue(String.valueOf(maxConcurrent.get()), maxConcurrent.get() > 1);
+    }
+
+    @Test
+    public void testErrorsAreCountedPerBucket() throws Exception {
+
+        List<DocumentModel> docs = createDocuments(1);
+        CreateBlobsAction.CreateBlobsComputation computation = new CreateBlobsAction.CreateBlobsComputation();
+        computation.onError(docs.get(0), "first");
+        computation.onError(docs.get(1), "second");
+
+        BulkStatus delta = BulkStatus.deltaOf("command");
+        computation.endBucket(null, delta);
+        assertEquals(2, delta.getErrorCount());
+        assertTrue(delta.getErrorMessage().endsWith(": first"));
+
+        // Reset for the next bucket
+        delta = BulkStatus.deltaOf("command");
+        computation.endBucket(null, delta);
+        assertEquals(0, delta.getErrorCount());
+        assertNull(delta.getErrorMessage());
+    }
+
+}